@@ -1,8 +1,8 @@
 package chatApp.configuration;
 
 import chatApp.filter.AuthFilter;
-import chatApp.filter.PermissionFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -18,17 +18,23 @@ public class CustomWebSecurityConfigurerAdapter {
     @Autowired
     private AuthFilter authFilter;
 
-    @Autowired
-    private PermissionFilter permissionFilter;
-
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.authorizeRequests().antMatchers(HttpMethod.OPTIONS, "/").permitAll().antMatchers("*").authenticated().and().httpBasic().and().csrf().disable().cors();
         http.addFilterAfter(
                 authFilter, BasicAuthenticationFilter.class);
-        http.addFilterAfter(
-                permissionFilter, AuthFilter.class);
         return http.build();
     }
 
+    /**
+     * AuthFilter runs in the security chain only, without this Boot also registers the component as a servlet
+     * filter and every request checks its token twice
+     */
+    @Bean
+    public FilterRegistrationBean<AuthFilter> authFilterRegistration(AuthFilter authFilter) {
+        FilterRegistrationBean<AuthFilter> registration = new FilterRegistrationBean<>(authFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
 }
\ No newline at end of file
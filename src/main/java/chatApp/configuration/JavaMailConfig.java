@@ -3,7 +3,6 @@ package chatApp.configuration;
 import chatApp.chatApp;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
@@ -45,18 +44,4 @@ public class JavaMailConfig {
 
         return mailSender;
     }
-
-    /**
-     * setting the message with setTo, setFrom, setText
-     *
-     * @return message
-     */
-    @Bean
-    public SimpleMailMessage emailTemplate() {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo("somebody@gmail.com");
-        message.setFrom("admin@gmail.com");
-        message.setText("FATAL - Application crash. Save your job !!");
-        return message;
-    }
 }
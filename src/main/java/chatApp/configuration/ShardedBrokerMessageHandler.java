@@ -0,0 +1,129 @@
+package chatApp.configuration;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * In-process broker that shards destinations across cores: every destination belongs to one shard,
+ * each shard has its own subscription map and a single dispatch thread, so messages of one destination keep their order
+ * while different rooms fan out in parallel.
+ */
+public class ShardedBrokerMessageHandler extends SimpleBrokerMessageHandler {
+
+    private static final Logger logger = LogManager.getLogger(ShardedBrokerMessageHandler.class.getName());
+
+    private final ShardedSubscriptionRegistry registry;
+    private final AtomicLongArray fanOuts;
+    private final AtomicLongArray totalFanOutNanos;
+    private final AtomicLongArray maxFanOutNanos;
+    private final AtomicLong rejectedFanOuts = new AtomicLong();
+    private ExecutorService[] dispatchers;
+
+    public ShardedBrokerMessageHandler(SubscribableChannel clientInboundChannel, MessageChannel clientOutboundChannel,
+                                       SubscribableChannel brokerChannel, Collection<String> destinationPrefixes, int shardCount) {
+        super(clientInboundChannel, clientOutboundChannel, brokerChannel, destinationPrefixes);
+        this.registry = new ShardedSubscriptionRegistry(shardCount);
+        this.fanOuts = new AtomicLongArray(shardCount);
+        this.totalFanOutNanos = new AtomicLongArray(shardCount);
+        this.maxFanOutNanos = new AtomicLongArray(shardCount);
+        setSubscriptionRegistry(registry);
+    }
+
+    @Override
+    public void startInternal() {
+        dispatchers = new ExecutorService[registry.getShardCount()];
+        for (int i = 0; i < dispatchers.length; i++) {
+            String threadName = "broker-shard-" + i;
+            dispatchers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        super.startInternal();
+    }
+
+    @Override
+    public void stopInternal() {
+        super.stopInternal();
+        for (ExecutorService dispatcher : dispatchers) {
+            dispatcher.shutdown();
+        }
+        try {
+            for (ExecutorService dispatcher : dispatchers) {
+                dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * hands the fan out to the dispatch thread of the destination shard
+     *
+     * @param destination - the message destination
+     * @param message     - the message to send to the destination subscribers
+     */
+    @Override
+    protected void sendMessageToSubscribers(String destination, Message<?> message) {
+        if (destination == null) {
+            super.sendMessageToSubscribers(null, message);
+            return;
+        }
+        int shard = registry.shardOf(destination);
+        try {
+            dispatchers[shard].execute(() -> fanOut(shard, destination, message));
+        } catch (RejectedExecutionException e) {
+            rejectedFanOuts.incrementAndGet();
+            logger.warn(fanOutRejected(destination));
+        }
+    }
+
+    private void fanOut(int shard, String destination, Message<?> message) {
+        long start = System.nanoTime();
+        try {
+            super.sendMessageToSubscribers(destination, message);
+        } catch (RuntimeException e) {
+            logger.error(e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        fanOuts.incrementAndGet(shard);
+        totalFanOutNanos.addAndGet(shard, elapsed);
+        maxFanOutNanos.accumulateAndGet(shard, elapsed, Math::max);
+    }
+
+    public int getShardCount() {
+        return registry.getShardCount();
+    }
+
+    public long getFanOuts(int shard) {
+        return fanOuts.get(shard);
+    }
+
+    public long getAverageFanOutNanos(int shard) {
+        long count = fanOuts.get(shard);
+        return count == 0 ? 0 : totalFanOutNanos.get(shard) / count;
+    }
+
+    public long getMaxFanOutNanos(int shard) {
+        return maxFanOutNanos.get(shard);
+    }
+
+    public long getRejectedFanOuts() {
+        return rejectedFanOuts.get();
+    }
+}
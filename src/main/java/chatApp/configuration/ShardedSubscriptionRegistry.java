@@ -0,0 +1,167 @@
+package chatApp.configuration;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.broker.AbstractSubscriptionRegistry;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscription registry split into shards by destination hash. Exact destinations such as /topic/privatechat/{roomId}
+ * are found with one hash lookup, only subscriptions with a pattern destination are matched with the path matcher.
+ */
+public class ShardedSubscriptionRegistry extends AbstractSubscriptionRegistry {
+
+    private static final MultiValueMap<String, String> noSubscriptions = CollectionUtils.unmodifiableMultiValueMap(new LinkedMultiValueMap<>());
+
+    private final Shard[] shards;
+    private final Map<String, Map<String, String>> destinationsBySession = new ConcurrentHashMap<>();
+    private final Map<String, Subscribers> patternSubscribers = new ConcurrentHashMap<>();
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * @param shardCount - the number of shards, usually the number of cores
+     */
+    public ShardedSubscriptionRegistry(int shardCount) {
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * the shard of the destination, the same destination always gets the same shard
+     *
+     * @param destination - the destination
+     * @return the shard index
+     */
+    public int shardOf(String destination) {
+        return Math.floorMod(destination.hashCode(), shards.length);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    protected void addSubscriptionInternal(String sessionId, String subscriptionId, String destination, Message<?> message) {
+        destinationsBySession.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, destination);
+        addSubscriber(destination, sessionId, subscriptionId);
+    }
+
+    @Override
+    protected void removeSubscriptionInternal(String sessionId, String subscriptionId, Message<?> message) {
+        Map<String, String> destinations = destinationsBySession.get(sessionId);
+        String destination = destinations == null ? null : destinations.remove(subscriptionId);
+        if (destination != null) {
+            removeSubscriber(destination, sessionId, subscriptionId);
+        }
+    }
+
+    @Override
+    public void unregisterAllSubscriptions(String sessionId) {
+        Map<String, String> destinations = destinationsBySession.remove(sessionId);
+        if (destinations != null) {
+            destinations.forEach((subscriptionId, destination) -> removeSubscriber(destination, sessionId, subscriptionId));
+        }
+    }
+
+    @Override
+    protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+        Subscribers exactSubscribers = subscribersMapOf(destination).get(destination);
+        MultiValueMap<String, String> exact = exactSubscribers == null ? noSubscriptions : exactSubscribers.snapshot();
+        if (patternSubscribers.isEmpty()) {
+            return exact;
+        }
+        MultiValueMap<String, String> result = new LinkedMultiValueMap<>(exact);
+        patternSubscribers.forEach((pattern, subscribers) -> {
+            if (pathMatcher.match(pattern, destination)) {
+                subscribers.snapshot().forEach((sessionId, subscriptionIds) -> subscriptionIds.forEach(subscriptionId -> result.add(sessionId, subscriptionId)));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * adds the subscriber inside compute, so the destination subscribers can't be removed by the last unsubscribe
+     * between their lookup and the add
+     */
+    private void addSubscriber(String destination, String sessionId, String subscriptionId) {
+        subscribersMapOf(destination).compute(destination, (d, current) -> {
+            Subscribers subscribers = current == null ? new Subscribers() : current;
+            subscribers.add(sessionId, subscriptionId);
+            return subscribers;
+        });
+    }
+
+    private void removeSubscriber(String destination, String sessionId, String subscriptionId) {
+        subscribersMapOf(destination).computeIfPresent(destination, (d, current) -> current.remove(sessionId, subscriptionId) ? null : current);
+    }
+
+    private Map<String, Subscribers> subscribersMapOf(String destination) {
+        return pathMatcher.isPattern(destination) ? patternSubscribers : shards[shardOf(destination)].subscribers;
+    }
+
+    private static class Shard {
+        private final Map<String, Subscribers> subscribers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * the subscribers of one destination, lookups share a snapshot that is rebuilt only after a change. Every change
+     * bumps the version, and a snapshot is served only while its version is the current one, so a rebuild racing
+     * with a change is never kept for the later lookups
+     */
+    private static class Subscribers {
+        private final Map<String, Map<String, Boolean>> subscriptionsBySession = new ConcurrentHashMap<>();
+        private final AtomicLong version = new AtomicLong();
+        private volatile Snapshot snapshot;
+
+        private void add(String sessionId, String subscriptionId) {
+            subscriptionsBySession.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, Boolean.TRUE);
+            version.incrementAndGet();
+        }
+
+        /**
+         * @return true when the destination has no subscribers left
+         */
+        private boolean remove(String sessionId, String subscriptionId) {
+            subscriptionsBySession.computeIfPresent(sessionId, (id, subscriptionIds) -> {
+                subscriptionIds.remove(subscriptionId);
+                return subscriptionIds.isEmpty() ? null : subscriptionIds;
+            });
+            version.incrementAndGet();
+            return subscriptionsBySession.isEmpty();
+        }
+
+        private MultiValueMap<String, String> snapshot() {
+            long currentVersion = version.get();
+            Snapshot current = snapshot;
+            if (current != null && current.version == currentVersion) {
+                return current.subscriptions;
+            }
+            LinkedMultiValueMap<String, String> rebuilt = new LinkedMultiValueMap<>(subscriptionsBySession.size());
+            subscriptionsBySession.forEach((sessionId, subscriptionIds) -> subscriptionIds.keySet().forEach(subscriptionId -> rebuilt.add(sessionId, subscriptionId)));
+            MultiValueMap<String, String> subscriptions = CollectionUtils.unmodifiableMultiValueMap(rebuilt);
+            if (version.get() == currentVersion) {
+                snapshot = new Snapshot(currentVersion, subscriptions);
+            }
+            return subscriptions;
+        }
+    }
+
+    private static class Snapshot {
+        private final long version;
+        private final MultiValueMap<String, String> subscriptions;
+
+        private Snapshot(long version, MultiValueMap<String, String> subscriptions) {
+            this.version = version;
+            this.subscriptions = subscriptions;
+        }
+    }
+}
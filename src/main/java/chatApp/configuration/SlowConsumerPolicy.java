@@ -0,0 +1,20 @@
+package chatApp.configuration;
+
+/**
+ * What a WebSocket session does when its client reads slower than the messages are published
+ * and the session send buffer grows past its limit
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * drops the oldest buffered frames until the buffer is back under the limit
+     */
+    DROP,
+    /**
+     * keeps only the newest buffered frame of every destination, then drops the oldest frames if still over the limit
+     */
+    COALESCE,
+    /**
+     * closes the session, the client reconnects and loads the history again
+     */
+    DISCONNECT
+}
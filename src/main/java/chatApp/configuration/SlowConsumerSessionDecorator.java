@@ -0,0 +1,244 @@
+package chatApp.configuration;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Thread safe session decorator with the same buffering as Spring's ConcurrentWebSocketSessionDecorator: one thread
+ * writes to the socket while the others buffer their frames. When the buffer grows past its limit the slow consumer
+ * policy decides which MESSAGE frames are dropped, the control frames (CONNECTED, RECEIPT, ERROR...) are always kept.
+ * A write stuck for longer than the send time limit always disconnects.
+ * It extends ConcurrentWebSocketSessionDecorator since the STOMP handler requires one to keep the publish order,
+ * but keeps its own buffer as the parent's buffer and limits are private.
+ */
+public class SlowConsumerSessionDecorator extends ConcurrentWebSocketSessionDecorator {
+
+    private static final Logger logger = LogManager.getLogger(SlowConsumerSessionDecorator.class.getName());
+    private static final String messageCommand = "MESSAGE\n";
+    private static final String destinationHeader = "\ndestination:";
+    private static final String headersEnd = "\n\n";
+
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final SlowConsumerPolicy policy;
+    private final SlowConsumerWebSocketHandler handler;
+
+    private final ConcurrentLinkedDeque<PendingFrame> buffer = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger bufferSize = new AtomicInteger();
+    private volatile Consumer<WebSocketMessage<?>> messageCallback;
+    private volatile long sendStartTime;
+    private volatile boolean limitExceeded;
+    private volatile boolean closeInProgress;
+    private final Lock flushLock = new ReentrantLock();
+    private final Lock closeLock = new ReentrantLock();
+
+    public SlowConsumerSessionDecorator(WebSocketSession delegate, int sendTimeLimit, int bufferSizeLimit,
+                                        SlowConsumerPolicy policy, SlowConsumerWebSocketHandler handler) {
+        super(delegate, sendTimeLimit, bufferSizeLimit);
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.policy = policy;
+        this.handler = handler;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize.get();
+    }
+
+    @Override
+    public void setMessageCallback(Consumer<WebSocketMessage<?>> callback) {
+        messageCallback = callback;
+    }
+
+    @Override
+    public long getTimeSinceSendStarted() {
+        long start = sendStartTime;
+        return start > 0 ? System.currentTimeMillis() - start : 0;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (shouldNotSend()) {
+            return;
+        }
+        buffer.add(new PendingFrame(message));
+        bufferSize.addAndGet(message.getPayloadLength());
+        Consumer<WebSocketMessage<?>> callback = messageCallback;
+        if (callback != null) {
+            callback.accept(message);
+        }
+        do {
+            if (!tryFlushBuffer()) {
+                checkSessionLimits();
+                break;
+            }
+        } while (!buffer.isEmpty() && !shouldNotSend());
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        closeLock.lock();
+        try {
+            if (closeInProgress) {
+                return;
+            }
+            closeInProgress = true;
+            getDelegate().close(status);
+        } finally {
+            closeLock.unlock();
+        }
+    }
+
+    private boolean shouldNotSend() {
+        return limitExceeded || closeInProgress;
+    }
+
+    private boolean tryFlushBuffer() throws IOException {
+        if (!flushLock.tryLock()) {
+            return false;
+        }
+        try {
+            while (!shouldNotSend()) {
+                PendingFrame frame = buffer.poll();
+                if (frame == null) {
+                    break;
+                }
+                bufferSize.addAndGet(-frame.message.getPayloadLength());
+                sendStartTime = System.currentTimeMillis();
+                getDelegate().sendMessage(frame.message);
+                sendStartTime = 0;
+            }
+        } finally {
+            sendStartTime = 0;
+            flushLock.unlock();
+        }
+        return true;
+    }
+
+    private void checkSessionLimits() {
+        if (shouldNotSend() || !closeLock.tryLock()) {
+            return;
+        }
+        try {
+            if (getTimeSinceSendStarted() > sendTimeLimit) {
+                disconnect(slowConsumerSendTimeExceeded(getId(), sendTimeLimit));
+            } else if (bufferSize.get() > bufferSizeLimit) {
+                switch (policy) {
+                    case COALESCE:
+                        coalesce();
+                        dropOldest();
+                        break;
+                    case DROP:
+                        dropOldest();
+                        break;
+                    default:
+                        disconnect(slowConsumerBufferExceeded(getId(), bufferSizeLimit));
+                }
+            }
+        } finally {
+            closeLock.unlock();
+        }
+    }
+
+    /**
+     * removes every buffered MESSAGE frame that has a newer MESSAGE frame of the same destination behind it
+     */
+    private void coalesce() {
+        Set<String> newerDestinations = new HashSet<>();
+        int coalesced = 0;
+        Iterator<PendingFrame> newestFirst = buffer.descendingIterator();
+        while (newestFirst.hasNext()) {
+            PendingFrame frame = newestFirst.next();
+            String destination = frame.destination();
+            if (destination != null && !newerDestinations.add(destination) && buffer.removeFirstOccurrence(frame)) {
+                bufferSize.addAndGet(-frame.message.getPayloadLength());
+                coalesced++;
+            }
+        }
+        if (coalesced > 0) {
+            handler.onCoalesced(coalesced);
+            logger.debug(slowConsumerCoalesced(getId(), coalesced));
+        }
+    }
+
+    /**
+     * removes the oldest buffered MESSAGE frames until the buffer is back under its limit, the control frames stay
+     */
+    private void dropOldest() {
+        int dropped = 0;
+        Iterator<PendingFrame> oldestFirst = buffer.iterator();
+        while (bufferSize.get() > bufferSizeLimit && oldestFirst.hasNext()) {
+            PendingFrame frame = oldestFirst.next();
+            if (frame.isMessage() && buffer.removeFirstOccurrence(frame)) {
+                bufferSize.addAndGet(-frame.message.getPayloadLength());
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            handler.onDropped(dropped);
+            logger.debug(slowConsumerDropped(getId(), dropped));
+        }
+    }
+
+    private void disconnect(String reason) {
+        limitExceeded = true;
+        handler.onDisconnected();
+        logger.warn(reason);
+        throw new SessionLimitExceededException(reason, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    /**
+     * a buffered frame, compared by identity so coalescing removes exactly this frame
+     */
+    private static class PendingFrame {
+        private final WebSocketMessage<?> message;
+
+        private PendingFrame(WebSocketMessage<?> message) {
+            this.message = message;
+        }
+
+        /**
+         * @return true for a STOMP MESSAGE frame, the only frames a slow consumer policy may drop
+         */
+        private boolean isMessage() {
+            return message instanceof TextMessage && ((TextMessage) message).getPayload().startsWith(messageCommand);
+        }
+
+        /**
+         * @return the STOMP destination header of a MESSAGE frame, null for the other frames
+         */
+        private String destination() {
+            if (!isMessage()) {
+                return null;
+            }
+            String frame = ((TextMessage) message).getPayload();
+            int end = frame.indexOf(headersEnd);
+            int start = frame.indexOf(destinationHeader);
+            if (start < 0 || (end >= 0 && start > end)) {
+                return null;
+            }
+            start += destinationHeader.length();
+            int lineEnd = frame.indexOf('\n', start);
+            return frame.substring(start, lineEnd < 0 ? frame.length() : lineEnd);
+        }
+    }
+}
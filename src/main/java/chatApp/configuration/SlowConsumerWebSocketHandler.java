@@ -0,0 +1,59 @@
+package chatApp.configuration;
+
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sub-protocol handler that wraps every session in a SlowConsumerSessionDecorator instead of Spring's
+ * ConcurrentWebSocketSessionDecorator, so a slow client is dropped, coalesced or disconnected by the configured
+ * policy, and counts every policy outcome
+ */
+public class SlowConsumerWebSocketHandler extends SubProtocolWebSocketHandler {
+
+    private final SlowConsumerPolicy policy;
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong coalescedMessages = new AtomicLong();
+    private final AtomicLong disconnectedSessions = new AtomicLong();
+
+    public SlowConsumerWebSocketHandler(MessageChannel clientInboundChannel, SubscribableChannel clientOutboundChannel, SlowConsumerPolicy policy) {
+        super(clientInboundChannel, clientOutboundChannel);
+        this.policy = policy;
+    }
+
+    @Override
+    protected WebSocketSession decorateSession(WebSocketSession session) {
+        return new SlowConsumerSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit(), policy, this);
+    }
+
+    public SlowConsumerPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getDroppedMessages() {
+        return droppedMessages.get();
+    }
+
+    public long getCoalescedMessages() {
+        return coalescedMessages.get();
+    }
+
+    public long getDisconnectedSessions() {
+        return disconnectedSessions.get();
+    }
+
+    void onDropped(int messages) {
+        droppedMessages.addAndGet(messages);
+    }
+
+    void onCoalesced(int messages) {
+        coalescedMessages.addAndGet(messages);
+    }
+
+    void onDisconnected() {
+        disconnectedSessions.incrementAndGet();
+    }
+}
@@ -0,0 +1,128 @@
+package chatApp.configuration;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Gauges of the WebSocket inbound and outbound channel executors: queue depth, active threads and completed tasks,
+ * and the outcomes of the slow consumer policy, logged every chat.ws.stats-log-seconds so a backlog building up
+ * behind a slow db or a slow client shows in the log
+ */
+@Component
+public class WebSocketChannelStats {
+
+    private static final Logger logger = LogManager.getLogger(WebSocketChannelStats.class.getName());
+
+    @Autowired
+    @Qualifier("clientInboundChannelExecutor")
+    private TaskExecutor inboundExecutor;
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private TaskExecutor outboundExecutor;
+
+    @Autowired
+    @Qualifier("subProtocolWebSocketHandler")
+    private WebSocketHandler webSocketHandler;
+
+    @Value("${chat.ws.stats-log-seconds:60}")
+    private long logSeconds;
+
+    private ScheduledExecutorService statsLogger;
+
+    /**
+     * starts logging the gauges once the application started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (logSeconds <= 0 || statsLogger != null) {
+            return;
+        }
+        statsLogger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-channel-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        statsLogger.scheduleAtFixedRate(this::log, logSeconds, logSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (statsLogger != null) {
+            statsLogger.shutdownNow();
+        }
+    }
+
+    public int getInboundQueueDepth() {
+        return pool(inboundExecutor).getQueue().size();
+    }
+
+    public int getInboundActiveThreads() {
+        return pool(inboundExecutor).getActiveCount();
+    }
+
+    public long getInboundCompletedTasks() {
+        return pool(inboundExecutor).getCompletedTaskCount();
+    }
+
+    public int getOutboundQueueDepth() {
+        return pool(outboundExecutor).getQueue().size();
+    }
+
+    public int getOutboundActiveThreads() {
+        return pool(outboundExecutor).getActiveCount();
+    }
+
+    public long getOutboundCompletedTasks() {
+        return pool(outboundExecutor).getCompletedTaskCount();
+    }
+
+    public long getSlowConsumerDroppedMessages() {
+        return slowConsumers().getDroppedMessages();
+    }
+
+    public long getSlowConsumerCoalescedMessages() {
+        return slowConsumers().getCoalescedMessages();
+    }
+
+    public long getSlowConsumerDisconnectedSessions() {
+        return slowConsumers().getDisconnectedSessions();
+    }
+
+    private void log() {
+        logger.info(channelExecutorStats(((ThreadPoolTaskExecutor) inboundExecutor).getThreadNamePrefix(), getInboundActiveThreads(), pool(inboundExecutor).getPoolSize(), getInboundQueueDepth(), getInboundCompletedTasks()));
+        logger.info(channelExecutorStats(((ThreadPoolTaskExecutor) outboundExecutor).getThreadNamePrefix(), getOutboundActiveThreads(), pool(outboundExecutor).getPoolSize(), getOutboundQueueDepth(), getOutboundCompletedTasks()));
+        logger.info(slowConsumerStats(slowConsumers().getPolicy().name(), getSlowConsumerDroppedMessages(), getSlowConsumerCoalescedMessages(), getSlowConsumerDisconnectedSessions()));
+    }
+
+    /**
+     * the sub-protocol handler bean is declared as WebSocketHandler, WebSocketConfig replaces it by the slow consumer handler
+     */
+    private SlowConsumerWebSocketHandler slowConsumers() {
+        return (SlowConsumerWebSocketHandler) webSocketHandler;
+    }
+
+    /**
+     * the channel executor beans are declared as TaskExecutor, WebSocketConfig registers them as thread pools
+     */
+    private static ThreadPoolExecutor pool(TaskExecutor executor) {
+        return ((ThreadPoolTaskExecutor) executor).getThreadPoolExecutor();
+    }
+}
@@ -1,23 +1,214 @@
 package chatApp.configuration;
 
+import chatApp.filter.StompAuthInterceptor;
+import chatApp.filter.StompEncodingInterceptor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static chatApp.utilities.messages.LoggerMessages.*;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final Logger logger = LogManager.getLogger(WebSocketConfig.class.getName());
+    private static final String shardedBrokerMode = "sharded";
+    private static final String relayBrokerMode = "relay";
+    private static final String userDestinationPrefix = "/user/";
+    private static final String inboundChannelName = "clientInboundChannel";
+    private static final String outboundChannelName = "clientOutboundChannel";
+
+    @Autowired
+    private StompAuthInterceptor stompAuthInterceptor;
+
+    @Autowired
+    private StompEncodingInterceptor stompEncodingInterceptor;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+    @Value("${chat.broker.relay.client-login:guest}")
+    private String relayClientLogin;
+    @Value("${chat.broker.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+    @Value("${chat.broker.relay.system-login:guest}")
+    private String relaySystemLogin;
+    @Value("${chat.broker.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+    @Value("${chat.ws.inbound.pool-size:0}")
+    private int inboundPoolSize;
+    @Value("${chat.ws.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+    @Value("${chat.ws.outbound.pool-size:0}")
+    private int outboundPoolSize;
+    @Value("${chat.ws.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+    @Value("${chat.ws.outbound.preserve-order:true}")
+    private boolean outboundPreserveOrder;
+    @Value("${chat.ws.send-time-limit-ms:10000}")
+    private int sendTimeLimit;
+    @Value("${chat.ws.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+    @Value("${chat.ws.slow-consumer.policy:disconnect}")
+    private String slowConsumerPolicy;
+
+    /**
+     * chat.broker.mode=relay forwards /topic to an external STOMP broker so every node sees every message,
+     * otherwise /topic is served in memory by the simple (or sharded) broker.
+     * The messages of every session are sent in publish order when chat.ws.outbound.preserve-order is on
+     */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        if (relayBrokerMode.equalsIgnoreCase(brokerMode)) {
+            logger.info(relayBrokerSelected(relayHost, relayPort));
+            config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode);
+        } else {
+            config.enableSimpleBroker("/topic");
+        }
         config.setApplicationDestinationPrefixes("/app");
+        config.setPreservePublishOrder(outboundPreserveOrder);
+    }
+
+    /**
+     * authenticates the STOMP frames before they reach the controllers and the broker, then moves the subscriptions
+     * of the sessions that negotiated the compact encoding to the compact chat topics.
+     * The handlers block on db saves, so the inbound pool is sized for blocking work apart from the outbound pool,
+     * and a full queue runs the frame on the WebSocket thread of its session to slow that client down
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        int poolSize = inboundPoolSize > 0 ? inboundPoolSize : Runtime.getRuntime().availableProcessors() * 4;
+        logger.info(channelExecutorConfigured(inboundChannelName, poolSize, inboundQueueCapacity));
+        registration.interceptors(stompAuthInterceptor, stompEncodingInterceptor)
+                .taskExecutor(channelExecutor(poolSize, inboundQueueCapacity, new ThreadPoolExecutor.CallerRunsPolicy()));
+    }
+
+    /**
+     * the outbound pool only writes to the WebSocket sessions, so a slow db never holds back message delivery
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        int poolSize = outboundPoolSize > 0 ? outboundPoolSize : Runtime.getRuntime().availableProcessors() * 2;
+        logger.info(channelExecutorConfigured(outboundChannelName, poolSize, outboundQueueCapacity));
+        registration.taskExecutor(channelExecutor(poolSize, outboundQueueCapacity, new ThreadPoolExecutor.AbortPolicy()));
+    }
+
+    /**
+     * limits how long one write to a session may take and how many bytes a session may buffer behind it,
+     * what happens to a session over the limits is set by chat.ws.slow-consumer.policy
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        logger.info(slowConsumerPolicySelected(slowConsumerPolicy, sendTimeLimit, sendBufferSizeLimit));
+        registration.setSendTimeLimit(sendTimeLimit)
+                .setSendBufferSizeLimit(sendBufferSizeLimit);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
     }
+
+    /**
+     * swaps the simple broker for the sharded broker when chat.broker.mode=sharded, the simple broker stays the default
+     *
+     * @param brokerMode - simple or sharded
+     * @param shards     - the number of broker shards, 0 for one shard per core
+     * @return the post processor replacing the broker handler
+     */
+    @Bean
+    public static BeanPostProcessor brokerModePostProcessor(@Value("${chat.broker.mode:simple}") String brokerMode,
+                                                            @Value("${chat.broker.shards:0}") int shards) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!shardedBrokerMode.equalsIgnoreCase(brokerMode) || bean.getClass() != SimpleBrokerMessageHandler.class) {
+                    return bean;
+                }
+                int shardCount = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+                logger.info(brokerModeSelected(shardedBrokerMode, shardCount));
+                return shardedBroker((SimpleBrokerMessageHandler) bean, shardCount);
+            }
+        };
+    }
+
+    /**
+     * swaps the sub-protocol handler for one that applies the slow consumer policy to every session
+     *
+     * @param beanFactory - to get the client channels of the replaced handler
+     * @param policy      - drop, coalesce or disconnect
+     * @return the post processor replacing the sub-protocol handler
+     */
+    @Bean
+    public static BeanPostProcessor slowConsumerPostProcessor(BeanFactory beanFactory,
+                                                              @Value("${chat.ws.slow-consumer.policy:disconnect}") String policy) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean.getClass() != SubProtocolWebSocketHandler.class) {
+                    return bean;
+                }
+                return new SlowConsumerWebSocketHandler(beanFactory.getBean("clientInboundChannel", MessageChannel.class),
+                        beanFactory.getBean("clientOutboundChannel", SubscribableChannel.class),
+                        SlowConsumerPolicy.valueOf(policy.toUpperCase(Locale.ROOT)));
+            }
+        };
+    }
+
+    private static ShardedBrokerMessageHandler shardedBroker(SimpleBrokerMessageHandler simpleBroker, int shardCount) {
+        ShardedBrokerMessageHandler shardedBroker = new ShardedBrokerMessageHandler(simpleBroker.getClientInboundChannel(),
+                simpleBroker.getClientOutboundChannel(), simpleBroker.getBrokerChannel(),
+                simpleBroker.getDestinationPrefixes(), shardCount);
+        shardedBroker.setTaskScheduler(simpleBroker.getTaskScheduler());
+        shardedBroker.setHeartbeatValue(simpleBroker.getHeartbeatValue());
+        shardedBroker.setHeaderInitializer(simpleBroker.getHeaderInitializer());
+        shardedBroker.setPreservePublishOrder(simpleBroker.isPreservePublishOrder());
+        shardedBroker.setApplicationEventPublisher(simpleBroker.getApplicationEventPublisher());
+        shardedBroker.setUserDestinationPredicate(destination -> destination.startsWith(userDestinationPrefix));
+        return shardedBroker;
+    }
+
+    /**
+     * the thread names are set by Spring from the channel names
+     */
+    private static ThreadPoolTaskExecutor channelExecutor(int poolSize, int queueCapacity, RejectedExecutionHandler rejectedHandler) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(60);
+        executor.setRejectedExecutionHandler(rejectedHandler);
+        return executor;
+    }
 }
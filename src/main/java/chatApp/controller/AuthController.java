@@ -5,6 +5,7 @@ import chatApp.customEntities.UserDTO;
 import chatApp.entities.User;
 import chatApp.service.AuthService;
 import chatApp.utilities.EmailUtilityFacade;
+import chatApp.utilities.UserValidator.Field;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +17,7 @@ import java.util.Optional;
 import static chatApp.utilities.messages.LoggerMessages.*;
 import static chatApp.utilities.messages.SuccessMessages.*;
 import static chatApp.utilities.Utility.*;
+import static chatApp.utilities.UserValidator.checkValidUser;
 
 @RestController
 @CrossOrigin
@@ -36,11 +38,7 @@ public class AuthController {
     public ResponseEntity<CustomResponse<UserDTO>> registerUser(@RequestBody User user) {
         CustomResponse<UserDTO> response = new CustomResponse<>(null, emptyString);
         try {
-            Optional<CustomResponse<UserDTO>> isValid = checkValidEmail(user.getEmail(), response);
-            if(isValid.isPresent()){ return ResponseEntity.badRequest().body(isValid.get());}
-            isValid = checkValidName(user.getName(), response);
-            if(isValid.isPresent()){ return ResponseEntity.badRequest().body(isValid.get());}
-            isValid = checkValidPassword(user.getPassword(), response);
+            Optional<CustomResponse<UserDTO>> isValid = checkValidUser(user, response, Field.EMAIL, Field.NAME, Field.PASSWORD);
             if(isValid.isPresent()){ return ResponseEntity.badRequest().body(isValid.get());}
 
             logger.info(beforeAnAction(user.getEmail(), "register"));
@@ -67,16 +65,14 @@ public class AuthController {
     public ResponseEntity<CustomResponse<UserDTO>> login(@RequestBody User user) {
         CustomResponse<UserDTO> response = new CustomResponse<>(null, emptyString);
         try {
-            Optional<CustomResponse<UserDTO>> isValid = checkValidEmail(user.getEmail(), response);
-            if(isValid.isPresent()){ return ResponseEntity.badRequest().body(isValid.get());}
-            isValid = checkValidPassword(user.getPassword(), response);
+            Optional<CustomResponse<UserDTO>> isValid = checkValidUser(user, response, Field.EMAIL, Field.PASSWORD);
             if(isValid.isPresent()){ return ResponseEntity.badRequest().body(isValid.get());}
 
             logger.info(beforeAnAction(user.getEmail(), "login"));
             User loginUser = authService.login(user);
             response.setResponse(UserDTO.userToUserDTO(loginUser));
             response.setMessage(loginSuccessfulMessage);
-            response.setHeaders(authService.getKeyEmailsValTokens().get(loginUser.getEmail()));
+            response.setHeaders(authService.getSessionToken(loginUser.getEmail()));
             logger.info(loginSuccessfulMessage);
             return ResponseEntity.ok().body(response);
         } catch (IllegalArgumentException e) {
@@ -96,14 +92,14 @@ public class AuthController {
     public ResponseEntity<CustomResponse<UserDTO>> loginAsGuest(@RequestBody User user) {
         CustomResponse<UserDTO> response = new CustomResponse<>(null, emptyString);
         try {
-            Optional<CustomResponse<UserDTO>> isValid = checkValidName(user.getName(), response);
+            Optional<CustomResponse<UserDTO>> isValid = checkValidUser(user, response, Field.NAME);
             if(isValid.isPresent()){ return ResponseEntity.badRequest().body(isValid.get());}
 
             logger.info(beforeLoginAsGuest);
             User guestUser = authService.addGuest(user);
             response.setResponse(UserDTO.userGuestToUserDTO(guestUser));
             response.setMessage(loginSuccessfulMessage);
-            response.setHeaders(authService.getKeyEmailsValTokens().get(guestUser.getEmail()));
+            response.setHeaders(authService.getSessionToken(guestUser.getEmail()));
             logger.info(loginSuccessfulMessage);
             return ResponseEntity.ok().body(response);
         } catch (IllegalArgumentException e) {
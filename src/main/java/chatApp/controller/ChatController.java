@@ -1,21 +1,34 @@
 package chatApp.controller;
 
+import chatApp.customEntities.ChatPrincipal;
 import chatApp.customEntities.CustomResponse;
+import chatApp.customEntities.PresentUsers;
 import chatApp.customEntities.UserDTO;
 import chatApp.entities.Message;
+import chatApp.service.AuthService;
+import chatApp.service.ChatBroadcaster;
 import chatApp.service.MessageService;
 import chatApp.service.UserService;
+import chatApp.utilities.MessageExportWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Supplier;
 
+import static chatApp.utilities.messages.ExceptionMessages.*;
 import static chatApp.utilities.messages.LoggerMessages.*;
 import static chatApp.utilities.messages.SuccessMessages.*;
 import static chatApp.utilities.Utility.*;
@@ -32,19 +45,45 @@ public class ChatController {
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private ChatBroadcaster chatBroadcaster;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
-     * sends the message to the addMessageToMainChat method in the messageService
+     * sends the message of the STOMP session user to the addMessageToMainChat method in the messageService
+     * and broadcasts the saved message to the main chat topic
      *
      * @param message - the message's data
-     * @return a saved message
+     * @param sender  - the STOMP session user
      */
     @MessageMapping("/plain")
-    @SendTo("/topic/mainChat")
-    public ResponseEntity<CustomResponse<Message>> sendMainPlainMessage(Message message) {
+    public void sendMainPlainMessage(Message message, ChatPrincipal sender) {
+        chatBroadcaster.broadcastMain(sendMainMessage(() -> messageService.addMessageToMainChat(message, sender)));
+    }
+
+    /**
+     * sends the message of the STOMP session user to the addMessageToPrivateChat method in the messageService
+     * and broadcasts the saved message to the room topic
+     *
+     * @param roomId  - the room id of the destination, the message is saved in this room
+     * @param message - the message's data
+     * @param sender  - the STOMP session user, a member of the room
+     */
+    @MessageMapping("/plain/privatechat/{roomId}")
+    public void sendPrivatePlainMessage(@DestinationVariable String roomId, Message message, ChatPrincipal sender) {
+        chatBroadcaster.broadcastPrivate(roomId, sendPrivateMessage(() -> messageService.addMessageToPrivateChat(roomId, message, sender)));
+    }
+
+    private ResponseEntity<CustomResponse<Message>> sendMainMessage(Supplier<Message> addMessage) {
         CustomResponse<Message> response = new CustomResponse<>(null, emptyString);
         try {
             logger.info(beforeSendMessageInMain);
-            Message mainMessage = messageService.addMessageToMainChat(message);
+            Message mainMessage = addMessage.get();
             response.setResponse(mainMessage);
             response.setMessage(mainMessageSentSuccessfully);
             logger.info(mainMessageSentSuccessfully);
@@ -56,19 +95,11 @@ public class ChatController {
         }
     }
 
-    /**
-     * sends the message to the addMessageToPrivateChat method in the messageService
-     *
-     * @param message - the message's data
-     * @return a saved message
-     */
-    @MessageMapping("/plain/privatechat/{roomId}")
-    @SendTo("/topic/privatechat/{roomId}")
-    public ResponseEntity<CustomResponse<Message>> sendPrivatePlainMessage(Message message) {
+    private ResponseEntity<CustomResponse<Message>> sendPrivateMessage(Supplier<Message> addMessage) {
         CustomResponse<Message> response = new CustomResponse<>(null, emptyString);
         try {
             logger.info(beforeSendPrivateMessage);
-            Message privateMessage = messageService.addMessageToPrivateChat(message);
+            Message privateMessage = addMessage.get();
             response.setResponse(privateMessage);
             response.setMessage(privateMessageSentSuccessfully);
             logger.info(privateMessageSentSuccessfully);
@@ -81,16 +112,21 @@ public class ChatController {
     }
 
     /**
-     * calling the getAllUsers method in the userService
+     * calling the getAllUsers method in the userService, answers 304 when the client already holds the same list
      *
-     * @return list of all users
+     * @param ifNoneMatch - the etag of the list the client holds
+     * @return list of all present users
      */
     @RequestMapping(value = "/getusers", method = RequestMethod.GET)
-    public ResponseEntity<CustomResponse<List<UserDTO>>> getAllUsers() {
+    public ResponseEntity<CustomResponse<List<UserDTO>>> getAllUsers(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.info(beforeGettingAllUsers);
-        CustomResponse<List<UserDTO>> response = new CustomResponse<>(UserDTO.userListToUserListDTO(userService.getAllUsers()), listOfAllUsersSuccessfulMessage);
+        PresentUsers presentUsers = userService.getAllUsers();
+        if (presentUsers.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(presentUsers.getEtag()).build();
+        }
+        CustomResponse<List<UserDTO>> response = new CustomResponse<>(presentUsers.getUsers(), listOfAllUsersSuccessfulMessage);
         logger.info(listOfAllUsersSuccessfulMessage);
-        return ResponseEntity.ok().body(response);
+        return ResponseEntity.ok().eTag(presentUsers.getEtag()).body(response);
     }
 
     /**
@@ -140,6 +176,56 @@ public class ChatController {
         }
     }
 
+    /**
+     * sends the cursor to the getRoomHistory method in the messageService for the main chat room
+     *
+     * @param beforeId    - the id of the oldest message the client has
+     * @param beforeEpoch - the issue time in epoch seconds of the oldest message the client has, sent with beforeId
+     * @param limit       - the number of returned messages
+     * @return list of main chat room messages older than the cursor
+     */
+    @RequestMapping(value = "/mainchatroom/history", method = RequestMethod.GET)
+    public ResponseEntity<CustomResponse<List<Message>>> getMainRoomHistory(@RequestParam(value = "beforeId", required = false) Long beforeId, @RequestParam(value = "beforeEpoch", required = false) Long beforeEpoch, @RequestParam("limit") int limit) {
+        return getRoomHistory(mainRoomId, beforeId, beforeEpoch, limit);
+    }
+
+    /**
+     * sends the roomId and the cursor to the getRoomHistory method in the messageService for a private chat room,
+     * only for the two members of the room
+     *
+     * @param token       - the session token of the caller
+     * @param roomId      - the room id in any order
+     * @param beforeId    - the id of the oldest message the client has
+     * @param beforeEpoch - the issue time in epoch seconds of the oldest message the client has, sent with beforeId
+     * @param limit       - the number of returned messages
+     * @return list of private chat room messages older than the cursor
+     */
+    @RequestMapping(value = "/privatechatroom/history", method = RequestMethod.GET)
+    public ResponseEntity<CustomResponse<List<Message>>> getPrivateRoomHistory(@RequestParam("token") String token, @RequestParam("roomId") String roomId, @RequestParam(value = "beforeId", required = false) Long beforeId, @RequestParam(value = "beforeEpoch", required = false) Long beforeEpoch, @RequestParam("limit") int limit) {
+        ChatPrincipal principal = authService.getSessionPrincipal(token);
+        if (principal == null || !isRoomMember(roomId, principal.getUserId())) {
+            logger.error(notRoomMemberMessage);
+            return ResponseEntity.badRequest().body(new CustomResponse<>(null, notRoomMemberMessage));
+        }
+        return getRoomHistory(canonicalRoomId(roomId), beforeId, beforeEpoch, limit);
+    }
+
+    private ResponseEntity<CustomResponse<List<Message>>> getRoomHistory(String roomId, Long beforeId, Long beforeEpoch, int limit) {
+        CustomResponse<List<Message>> response = new CustomResponse<>(null, emptyString);
+        try {
+            logger.info(beforeGettingRoomHistory);
+            List<Message> roomHistory = messageService.getRoomHistory(roomId, beforeId, beforeEpoch, limit);
+            response.setResponse(roomHistory);
+            response.setMessage(roomHistorySentSuccessfully);
+            logger.info(roomHistorySentSuccessfully);
+            return ResponseEntity.ok().body(response);
+        } catch (IllegalArgumentException e) {
+            logger.error(e.getMessage());
+            response.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     /**
      * sends the roomId to the downloadPrivateRoomMessages method in the messageService
      *
@@ -176,4 +262,48 @@ public class ChatController {
         logger.info(downloadMainRoomSentSuccessfully);
         return ResponseEntity.ok().body(response);
     }
+
+    /**
+     * streams the messages of a specific private chat room straight to the response
+     *
+     * @param roomId - the room id
+     * @param format - ndjson or csv
+     * @return the room messages written row by row
+     */
+    @RequestMapping(value = "/downloadprivatechatroom/stream", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> streamPrivateRoom(@RequestParam("roomId") String roomId, @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        logger.info(beforeDownloadingPrivateRoom);
+        return streamRoom(roomId, 0, MessageExportWriter.formatOf(format));
+    }
+
+    /**
+     * streams the main chat room messages from the time in epoch-seconds till now straight to the response
+     *
+     * @param time   - the time in epoch seconds, 0 for the whole room
+     * @param format - ndjson or csv
+     * @return the main chat room messages written row by row
+     */
+    @RequestMapping(value = "/downloadmainchatroom/stream", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> streamMainRoom(@RequestParam("time") long time, @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        logger.info(beforeDownloadingMainRoom);
+        return streamRoom(mainRoomId, time, MessageExportWriter.formatOf(format));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamRoom(String roomId, long time, MessageExportWriter.Format format) {
+        StreamingResponseBody body = outputStream -> {
+            try (MessageExportWriter writer = MessageExportWriter.of(format, outputStream, objectMapper)) {
+                messageService.streamRoomMessages(roomId, time, message -> {
+                    try {
+                        writer.write(message);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(MessageExportWriter.contentType(format)))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=room-" + roomId + MessageExportWriter.fileExtension(format))
+                .body(body);
+    }
 }
\ No newline at end of file
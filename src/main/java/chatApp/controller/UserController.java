@@ -1,10 +1,13 @@
 package chatApp.controller;
 
+import chatApp.customEntities.ChatPrincipal;
 import chatApp.customEntities.CustomResponse;
 import chatApp.customEntities.UserDTO;
 import chatApp.entities.User;
 import chatApp.service.AuthService;
+import chatApp.service.UserMessagesRenamer;
 import chatApp.service.UserService;
+import chatApp.utilities.UserValidator.Field;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +20,7 @@ import static chatApp.utilities.messages.LoggerMessages.*;
 import static chatApp.utilities.messages.ExceptionMessages.*;
 import static chatApp.utilities.messages.SuccessMessages.*;
 import static chatApp.utilities.Utility.*;
+import static chatApp.utilities.UserValidator.checkValidUser;
 
 @RestController
 @CrossOrigin
@@ -40,16 +44,12 @@ public class UserController {
         CustomResponse<UserDTO> response = new CustomResponse<>(null, emptyString);
         try {
             logger.info(beforeAnAction(user.getEmail(), "update"));
-            String userEmail = authService.getKeyTokensValEmails().get(token);
+            String userEmail = authService.getSessionEmail(token);
             if (userEmail == null) {
                 logger.error(tokenSessionExpired);
                 throw new IllegalArgumentException(tokenSessionExpired);
             }
-            Optional<CustomResponse<UserDTO>> isValid = checkValidEmail(user.getEmail(), response);
-            if(isValid.isPresent()){ return ResponseEntity.badRequest().body(isValid.get());}
-            isValid = checkValidPassword(user.getPassword(), response);
-            if(isValid.isPresent()){ return ResponseEntity.badRequest().body(isValid.get());}
-            isValid = checkValidName(user.getName(), response);
+            Optional<CustomResponse<UserDTO>> isValid = checkValidUser(user, response, Field.EMAIL, Field.PASSWORD, Field.NAME);
             if(isValid.isPresent()){ return ResponseEntity.badRequest().body(isValid.get());}
 
             User updateUser = userService.updateUser(user, userEmail);
@@ -75,15 +75,14 @@ public class UserController {
         CustomResponse<UserDTO> response = new CustomResponse<>(null, emptyString);
         try {
             logger.info(beforeLogout);
-            String userEmail = authService.getKeyTokensValEmails().get(token);
+            String userEmail = authService.getSessionEmail(token);
             if (userEmail == null) {
                 logger.error(tokenSessionExpired);
                 throw new IllegalArgumentException(tokenSessionExpired);
             }
             User user = User.dbUser(userService.logoutUser(userEmail));
             if (user.getEmail() != null) {
-                authService.getKeyTokensValEmails().remove(token);
-                authService.getKeyEmailsValTokens().remove(userEmail);
+                authService.closeSession(token);
             }
             response.setResponse(UserDTO.userToUserDTO(user));
             response.setMessage(logoutSuccessfulMessage);
@@ -108,14 +107,11 @@ public class UserController {
         CustomResponse<UserDTO> response = new CustomResponse<>(null, emptyString);
         try {
             logger.info(beforeMuteUnmute);
-            String userEmail = authService.getKeyTokensValEmails().get(token);
+            String userEmail = authService.getSessionEmail(token);
             if (userEmail == null) {
                 logger.error(tokenSessionExpired);
                 throw new IllegalArgumentException(tokenSessionExpired);
             }
-            if (!authService.getKeyEmailsValTokens().get(userEmail).equals(token)) {
-                throw new IllegalArgumentException(tokenSessionExpired);
-            }
             User updateMutedUser = userService.updateMuteUnmuteUser(id, userEmail);
             response.setResponse(UserDTO.userToUserDTO(updateMutedUser));
             response.setMessage(updateMuteUnmuteUserSuccessfulMessage);
@@ -141,13 +137,10 @@ public class UserController {
         CustomResponse<UserDTO> response = new CustomResponse<>(null, emptyString);
         try {
             logger.info(beforeUpdateStatus);
-            String userEmail = authService.getKeyTokensValEmails().get(token);
+            String userEmail = authService.getSessionEmail(token);
             if (userEmail == null) {
                 throw new IllegalArgumentException(tokenSessionExpired);
             }
-            if (!authService.getKeyEmailsValTokens().get(userEmail).equals(token)) {
-                throw new IllegalArgumentException(tokenSessionExpired);
-            }
             User updateStatusUser = userService.updateStatusUser(userEmail, status);
             response.setResponse(UserDTO.userToUserDTO(updateStatusUser));
             response.setMessage(updateStatusUserSuccessfulMessage);
@@ -159,4 +152,30 @@ public class UserController {
             return ResponseEntity.badRequest().body(response);
         }
     }
+
+    /**
+     * Get the status of the background rename of the user messages after an email or nickname change
+     *
+     * @param token - the token of the user
+     * @return the progress of the last rename, whether it is done and whether it failed
+     */
+    @RequestMapping(value = "update/messages/status", method = RequestMethod.GET)
+    public ResponseEntity<CustomResponse<UserMessagesRenamer.RenameProgress>> getRenameStatus(@RequestParam("token") String token) {
+        CustomResponse<UserMessagesRenamer.RenameProgress> response = new CustomResponse<>(null, emptyString);
+        try {
+            logger.info(beforeGettingRenameStatus);
+            ChatPrincipal principal = authService.getSessionPrincipal(token);
+            if (principal == null) {
+                throw new IllegalArgumentException(tokenSessionExpired);
+            }
+            response.setResponse(userService.getRenameProgress(principal.getUserId()));
+            response.setMessage(renameStatusSuccessfulMessage);
+            logger.info(renameStatusSuccessfulMessage);
+            return ResponseEntity.ok().body(response);
+        } catch (IllegalArgumentException e) {
+            logger.error(e.getMessage());
+            response.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
 }
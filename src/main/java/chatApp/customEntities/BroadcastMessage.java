@@ -0,0 +1,86 @@
+package chatApp.customEntities;
+
+import chatApp.entities.Message;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Compact broadcast form of a chat message for the STOMP sessions that negotiated the compact encoding at CONNECT:
+ * only the message fields and the issue time in epoch seconds, without the ResponseEntity envelope,
+ * a failed send has only the error
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BroadcastMessage {
+    private Long id;
+    private String sender;
+    private String receiver;
+    private String content;
+    private String roomId;
+    private Long time;
+    private String error;
+
+    private BroadcastMessage() {
+    }
+
+    /**
+     * BroadcastMessage: get the response of a send and convert it to its compact form
+     *
+     * @param response - the response of the send, with the saved message or with the error
+     * @return the compact message
+     */
+    public static BroadcastMessage responseToBroadcastMessage(CustomResponse<Message> response) {
+        BroadcastMessage broadcastMessage = new BroadcastMessage();
+        Message message = response.getResponse();
+        if (message == null) {
+            broadcastMessage.error = response.getMessage();
+            return broadcastMessage;
+        }
+        broadcastMessage.id = message.getId();
+        broadcastMessage.sender = message.getSender();
+        broadcastMessage.receiver = message.getReceiver();
+        broadcastMessage.content = message.getContent();
+        broadcastMessage.roomId = message.getRoomId();
+        broadcastMessage.time = message.getIssueDateEpoch();
+        return broadcastMessage;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public String getReceiver() {
+        return receiver;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public Long getTime() {
+        return time;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "BroadcastMessage{" +
+                "id=" + id +
+                ", sender='" + sender + '\'' +
+                ", receiver='" + receiver + '\'' +
+                ", content='" + content + '\'' +
+                ", roomId='" + roomId + '\'' +
+                ", time=" + time +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
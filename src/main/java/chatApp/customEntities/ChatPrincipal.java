@@ -0,0 +1,62 @@
+package chatApp.customEntities;
+
+import chatApp.entities.UserType;
+
+import java.security.Principal;
+
+/**
+ * The user of a STOMP session, resolved once from the session token at CONNECT
+ */
+public class ChatPrincipal implements Principal {
+    private final String token;
+    private final Long userId;
+    private final String email;
+    private final String nickname;
+    private final UserType type;
+
+    public ChatPrincipal(String token, Long userId, String email, String nickname, UserType type) {
+        this.token = token;
+        this.userId = userId;
+        this.email = email;
+        this.nickname = nickname;
+        this.type = type;
+    }
+
+    /**
+     * the principal name is the email, the only user field that is unique and stable for the session
+     */
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+    public UserType getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "ChatPrincipal{" +
+                "userId=" + userId +
+                ", email='" + email + '\'' +
+                ", nickname='" + nickname + '\'' +
+                ", type=" + type +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package chatApp.customEntities;
+
+/**
+ * An immutable plain text mail, a new MimeMessage is built from it for every send
+ */
+public class OutgoingMail {
+    private final String to;
+    private final String subject;
+    private final String text;
+
+    private OutgoingMail(String to, String subject, String text) {
+        this.to = to;
+        this.subject = subject;
+        this.text = text;
+    }
+
+    public static OutgoingMail of(String to, String subject, String text) {
+        return new OutgoingMail(to, subject, text);
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "OutgoingMail{" +
+                "to='" + to + '\'' +
+                ", subject='" + subject + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,31 @@
+package chatApp.customEntities;
+
+import java.util.List;
+
+/**
+ * The user changes of one coalescing window, the etag of the user list they apply to and the etag of the list with
+ * them applied, a client whose list has another etag than the base one missed a delta and fetches the whole list again
+ */
+public class PresenceDelta {
+    private final String baseEtag;
+    private final String etag;
+    private final List<PresenceEvent> events;
+
+    public PresenceDelta(String baseEtag, String etag, List<PresenceEvent> events) {
+        this.baseEtag = baseEtag;
+        this.etag = etag;
+        this.events = events;
+    }
+
+    public String getBaseEtag() {
+        return baseEtag;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public List<PresenceEvent> getEvents() {
+        return events;
+    }
+}
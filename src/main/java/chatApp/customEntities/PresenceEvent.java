@@ -0,0 +1,39 @@
+package chatApp.customEntities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One user change in a presence delta, the user is the user as shown in the user list and is null when the user left
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PresenceEvent {
+    private final PresenceEventType type;
+    private final Long userId;
+    private final UserDTO user;
+
+    public PresenceEvent(PresenceEventType type, Long userId, UserDTO user) {
+        this.type = type;
+        this.userId = userId;
+        this.user = user;
+    }
+
+    public PresenceEventType getType() {
+        return type;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public UserDTO getUser() {
+        return user;
+    }
+
+    @Override
+    public String toString() {
+        return "PresenceEvent{" +
+                "type=" + type +
+                ", userId=" + userId +
+                '}';
+    }
+}
@@ -0,0 +1,5 @@
+package chatApp.customEntities;
+
+public enum PresenceEventType {
+    JOINED, LEFT, STATUS_CHANGED, MUTED, UPDATED;
+}
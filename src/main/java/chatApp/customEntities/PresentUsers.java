@@ -0,0 +1,45 @@
+package chatApp.customEntities;
+
+import java.util.List;
+
+/**
+ * The users that aren't offline sorted by type and the etag of that list, a client holding the same etag
+ * already has the same list
+ */
+public class PresentUsers {
+    private final String etag;
+    private final List<UserDTO> users;
+
+    public PresentUsers(String etag, List<UserDTO> users) {
+        this.etag = etag;
+        this.users = users;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public List<UserDTO> getUsers() {
+        return users;
+    }
+
+    /**
+     * @param ifNoneMatch - the If-None-Match header of the request, null when it has none
+     * @return true when the client already holds this list
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals(etag) || trimmed.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
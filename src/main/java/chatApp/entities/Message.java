@@ -11,7 +11,11 @@ import static chatApp.utilities.Utility.*;
 import static chatApp.utilities.messages.LoggerMessages.createPrivateRoomMessage;
 
 @Entity
-@Table(name = "message")
+@Table(name = "message", indexes = {
+        @Index(name = "message_room_date_id_idx", columnList = "roomId, issue_date_time, id"),
+        @Index(name = "message_room_key_date_id_idx", columnList = "roomKey, issue_date_time, id"),
+        @Index(name = "message_sender_id_idx", columnList = "senderId"),
+        @Index(name = "message_receiver_id_idx", columnList = "receiverId")})
 public class Message {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,6 +32,9 @@ public class Message {
     private LocalDateTime issueDate;
     @Column(nullable = false, name = "issue_date_time")
     private long issueDateEpoch;
+    private Long senderId;
+    private Long receiverId;
+    private Long roomKey;
 
 
     Message() {
@@ -61,12 +68,29 @@ public class Message {
         m.setIssueDateEpoch(m.getIssueDate().toEpochSecond(ZoneOffset.of(zoneOffsetId)));
         return m;
     }
+    public static Message copyOf(Message message) {
+        Message m = new Message();
+        m.setId(message.getId());
+        m.setSender(message.getSender());
+        m.setContent(message.getContent());
+        m.setRoomId(message.getRoomId());
+        m.setReceiver(message.getReceiver());
+        m.setIssueDate(message.getIssueDate());
+        m.setIssueDateEpoch(message.getIssueDateEpoch());
+        m.setSenderId(message.getSenderId());
+        m.setReceiverId(message.getReceiverId());
+        m.setRoomKey(message.getRoomKey());
+        return m;
+    }
     public static Message createFirstPrivateRoomMessageFactory(String senderUser, String receiverUser, Long senderId ,Long receiverId) {
         Message m = new Message();
         m.setSender(senderUser);
         m.setContent(firstPrivateMessage);
-        m.setRoomId(senderId + separator + receiverId);
+        m.setRoomId(privateRoomId(senderId, receiverId));
         m.setReceiver(receiverUser);
+        m.setSenderId(senderId);
+        m.setReceiverId(receiverId);
+        m.setRoomKey(roomKey(m.getRoomId()));
         m.setIssueDate(getLocalDateTimeNow());
         m.setIssueDateEpoch(m.getIssueDate().toEpochSecond(ZoneOffset.of(zoneOffsetId)));
         return m;
@@ -119,6 +143,30 @@ public class Message {
         this.issueDate = issueDate;
     }
 
+    public Long getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(Long senderId) {
+        this.senderId = senderId;
+    }
+
+    public Long getReceiverId() {
+        return receiverId;
+    }
+
+    public void setReceiverId(Long receiverId) {
+        this.receiverId = receiverId;
+    }
+
+    public Long getRoomKey() {
+        return roomKey;
+    }
+
+    public void setRoomKey(Long roomKey) {
+        this.roomKey = roomKey;
+    }
+
     public long getIssueDateEpoch() {
         return issueDateEpoch;
     }
@@ -0,0 +1,40 @@
+package chatApp.entities;
+
+import chatApp.service.PresenceRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import static chatApp.utilities.Utility.runAfterCommit;
+
+/**
+ * Keeps the presence registry in line with every saved or deleted user, so login, guest login, logout and status
+ * changes all reach it, looked up lazily like in UserMuteListener. The registry is changed only once the
+ * transaction committed, a rolled back save never shows in the user list
+ */
+public class PresenceListener {
+
+    @Autowired
+    private ObjectProvider<PresenceRegistry> presenceRegistry;
+
+    @PostPersist
+    @PostUpdate
+    public void userSaved(User user) {
+        PresenceRegistry registry = presenceRegistry == null ? null : presenceRegistry.getIfAvailable();
+        if (registry != null) {
+            runAfterCommit(() -> registry.update(user));
+        }
+    }
+
+    @PostRemove
+    public void userRemoved(User user) {
+        PresenceRegistry registry = presenceRegistry == null ? null : presenceRegistry.getIfAvailable();
+        if (registry != null) {
+            Long userId = user.getId();
+            runAfterCommit(() -> registry.remove(userId));
+        }
+    }
+}
@@ -10,6 +10,7 @@ import static chatApp.utilities.Utility.*;
 import static chatApp.utilities.Utility.randomString;
 
 @Entity
+@EntityListeners({UserMuteListener.class, UserCacheListener.class, PresenceListener.class})
 @Table(name = "user")
 public class User {
     @Id
@@ -82,11 +83,11 @@ public class User {
         currUser.setIssueDate(user.getIssueDate());
         return currUser;
     }
-    public static User registeredUser(User user) {
+    public static User registeredUser(User user, String passwordHash) {
         User currUser = new User();
         currUser.setName(user.getName());
         currUser.setEmail(user.getEmail());
-        currUser.setPassword(encrypt((user.getPassword())));
+        currUser.setPassword(passwordHash);
         currUser.setEnabled(user.isEnabled());
         currUser.setMute(user.isMute());
         currUser.setUserStatus(UserStatuses.OFFLINE);
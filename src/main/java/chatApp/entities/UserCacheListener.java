@@ -0,0 +1,40 @@
+package chatApp.entities;
+
+import chatApp.service.UserCache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import static chatApp.utilities.Utility.runAfterCommit;
+
+/**
+ * Keeps the user cache in line with every saved or deleted user, looked up lazily like in UserMuteListener.
+ * The cache is changed only once the transaction committed, a rolled back rename never resolves
+ */
+public class UserCacheListener {
+
+    @Autowired
+    private ObjectProvider<UserCache> userCache;
+
+    @PostPersist
+    @PostUpdate
+    public void userSaved(User user) {
+        UserCache cache = userCache == null ? null : userCache.getIfAvailable();
+        if (cache != null) {
+            User savedUser = User.dbUser(user);
+            runAfterCommit(() -> cache.update(savedUser));
+        }
+    }
+
+    @PostRemove
+    public void userRemoved(User user) {
+        UserCache cache = userCache == null ? null : userCache.getIfAvailable();
+        if (cache != null) {
+            Long userId = user.getId();
+            runAfterCommit(() -> cache.remove(userId));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package chatApp.entities;
+
+import chatApp.service.MuteRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Keeps the mute registry in line with every saved or deleted user, whichever code path saved it.
+ * The registry is looked up lazily since the listener is created while the entity manager factory is built.
+ */
+public class UserMuteListener {
+
+    @Autowired
+    private ObjectProvider<MuteRegistry> muteRegistry;
+
+    @PostPersist
+    @PostUpdate
+    public void userSaved(User user) {
+        MuteRegistry registry = muteRegistry == null ? null : muteRegistry.getIfAvailable();
+        if (registry != null) {
+            registry.update(user);
+        }
+    }
+
+    @PostRemove
+    public void userRemoved(User user) {
+        MuteRegistry registry = muteRegistry == null ? null : muteRegistry.getIfAvailable();
+        if (registry != null) {
+            registry.remove(user.getId());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package chatApp.filter;
 
+import chatApp.entities.UserType;
 import chatApp.service.AuthService;
+import chatApp.utilities.PathPermissionTable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.GenericFilterBean;
@@ -15,9 +17,15 @@ import java.io.IOException;
 
 import static chatApp.utilities.Utility.*;
 
+/**
+ * Checks the session token and the route permissions of the user type in one pass,
+ * the route permissions are compiled once into a path trie
+ */
 @Component
 public class AuthFilter extends GenericFilterBean {
 
+    private static final PathPermissionTable permissionTable = PathPermissionTable.compile(permissionPathsForAll, permissionPathsForGuest, noPermissionsPathsForRegistered);
+
     @Autowired
     AuthService authService;
 
@@ -30,22 +38,14 @@ public class AuthFilter extends GenericFilterBean {
         res.setHeader("Access-Control-Allow-Methods", "ACL, CANCELUPLOAD, CHECKIN, CHECKOUT, PATCH, COPY, DELETE, GET, HEAD, LOCK, MKCALENDAR, MKCOL, MOVE, OPTIONS, POST, PROPFIND, PROPPATCH, PUT, REPORT, SEARCH, UNCHECKOUT, UNLOCK, UPDATE, VERSION-CONTROL");
         res.setHeader("Access-Control-Max-Age", "86400");
         res.setHeader("Access-Control-Allow-Headers", "Origin, X-Requested-With, Content-Type, Accept, Key, Authorization");
-        String auth = req.getParameter("token");
-        String path = req.getRequestURI();
-        if (permissionPathsForAll.stream().noneMatch(path::contains)) {
-            if (!authService.getKeyTokensValEmails().containsKey(auth)) {
+        int permissions = permissionTable.lookup(req.getRequestURI());
+        if ((permissions & PathPermissionTable.publicPath) == 0) {
+            UserType userType = authService.getSessionType(req.getParameter("token"));
+            if (userType == null || !PathPermissionTable.isAllowed(permissions, userType)) {
                 res.setStatus(HttpServletResponse.SC_FORBIDDEN);
                 return;
-            } else {
-                String userEmail = authService.getKeyTokensValEmails().get(auth);
-                if (!auth.equals(authService.getKeyEmailsValTokens().get(userEmail))) {
-                    res.setStatus(HttpServletResponse.SC_FORBIDDEN);
-                    return ;
-                }
             }
         }
-
         chain.doFilter(request, response);
-
     }
-}
\ No newline at end of file
+}
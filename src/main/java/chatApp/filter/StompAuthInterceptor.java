@@ -0,0 +1,114 @@
+package chatApp.filter;
+
+import chatApp.customEntities.ChatPrincipal;
+import chatApp.service.AuthService;
+import chatApp.service.ChatBroadcaster;
+import chatApp.utilities.Utility;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import static chatApp.utilities.Utility.*;
+import static chatApp.utilities.messages.ExceptionMessages.*;
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Authenticates STOMP frames on the client inbound channel: the token header of CONNECT is checked once and the
+ * session user is kept as the STOMP session principal, SEND and SUBSCRIBE frames must come from an authenticated
+ * session and private room destinations only accept the two room members. SEND only reaches the /app controllers,
+ * which stamp the sender and check the mute, and SUBSCRIBE only takes exact destinations since the registries and
+ * the relayed brokers match patterns
+ */
+@Component
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LogManager.getLogger(StompAuthInterceptor.class.getName());
+    private static final String tokenHeader = "token";
+    private static final String privateRoomSegment = "/privatechat/";
+    private static final String applicationPrefix = "/app/";
+    private static final String[] patternTokens = {"*", "{", "#", ">"};
+
+    @Autowired
+    private AuthService authService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.CONNECT) {
+            ChatPrincipal principal = authService.getSessionPrincipal(accessor.getFirstNativeHeader(tokenHeader));
+            if (principal == null) {
+                logger.error(tokenSessionExpired);
+                throw new IllegalArgumentException(tokenSessionExpired);
+            }
+            logger.debug(stompConnected(principal.getEmail()));
+            accessor.setUser(principal);
+        } else if (command == StompCommand.SEND || command == StompCommand.SUBSCRIBE) {
+            if (!(accessor.getUser() instanceof ChatPrincipal)) {
+                logger.error(tokenSessionExpired);
+                throw new IllegalArgumentException(tokenSessionExpired);
+            }
+            ChatPrincipal principal = (ChatPrincipal) accessor.getUser();
+            String destination = accessor.getDestination();
+            if (command == StompCommand.SEND && (destination == null || !destination.startsWith(applicationPrefix))) {
+                logger.error(brokerDestinationMessage);
+                throw new IllegalArgumentException(brokerDestinationMessage);
+            }
+            if (command == StompCommand.SUBSCRIBE && isPattern(destination)) {
+                logger.error(patternDestinationMessage);
+                throw new IllegalArgumentException(patternDestinationMessage);
+            }
+            if (!isRoomMember(destination, principal)) {
+                logger.error(notRoomMemberMessage);
+                throw new IllegalArgumentException(notRoomMemberMessage);
+            }
+        }
+        return message;
+    }
+
+    /**
+     * @param destination - the subscribed destination
+     * @return true for a missing destination or one matching many destinations, like /topic/** or /topic/{room}
+     */
+    static boolean isPattern(String destination) {
+        if (destination == null) {
+            return true;
+        }
+        for (String token : patternTokens) {
+            if (destination.contains(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * checks that the principal is one of the two users of a private room destination or of its compact twin,
+     * other destinations are open
+     *
+     * @param destination - the frame destination
+     * @param principal   - the session user
+     * @return true when the destination isn't a private room or the principal belongs to it
+     */
+    static boolean isRoomMember(String destination, ChatPrincipal principal) {
+        int roomStart = destination == null ? -1 : destination.indexOf(privateRoomSegment);
+        if (roomStart < 0) {
+            return true;
+        }
+        String roomId = destination.substring(roomStart + privateRoomSegment.length());
+        if (roomId.endsWith(ChatBroadcaster.compactDestinationSuffix)) {
+            roomId = roomId.substring(0, roomId.length() - ChatBroadcaster.compactDestinationSuffix.length());
+        }
+        return Utility.isRoomMember(roomId, principal.getUserId());
+    }
+}
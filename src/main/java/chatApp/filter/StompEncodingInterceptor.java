@@ -0,0 +1,48 @@
+package chatApp.filter;
+
+import chatApp.service.ChatBroadcaster;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Negotiates the broadcast encoding of a STOMP session: a CONNECT frame with the encoding:compact header keeps the
+ * choice in the session attributes, and the chat topic subscriptions of that session are moved to the compact twin
+ * of the topic. Runs after StompAuthInterceptor, which checks the room membership on the original destination.
+ * Without chat.broadcast.compact the twins aren't published, so every session keeps the envelope topics
+ */
+@Component
+public class StompEncodingInterceptor implements ChannelInterceptor {
+
+    static final String encodingHeader = "encoding";
+    static final String compactEncoding = "compact";
+    static final String encodingAttribute = "chat.encoding";
+
+    @Value("${chat.broadcast.compact:false}")
+    private boolean compactEnabled;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (!compactEnabled || accessor == null || accessor.getCommand() == null || accessor.getSessionAttributes() == null) {
+            return message;
+        }
+        Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+        if (accessor.getCommand() == StompCommand.CONNECT) {
+            if (compactEncoding.equalsIgnoreCase(accessor.getFirstNativeHeader(encodingHeader))) {
+                sessionAttributes.put(encodingAttribute, compactEncoding);
+            }
+        } else if (accessor.getCommand() == StompCommand.SUBSCRIBE && compactEncoding.equals(sessionAttributes.get(encodingAttribute))
+                && ChatBroadcaster.isChatDestination(accessor.getDestination())) {
+            accessor.setDestination(ChatBroadcaster.compactDestination(accessor.getDestination()));
+        }
+        return message;
+    }
+}
@@ -3,6 +3,10 @@ package chatApp.repository;
 import chatApp.entities.Message;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -14,6 +18,36 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
 
     List<Message> findByRoomId(String roomId, Pageable pageable);
 
+    @Query("select m from Message m where m.roomId = :roomId and (m.issueDateEpoch < :issueDateEpoch or (m.issueDateEpoch = :issueDateEpoch and m.id < :id))")
+    List<Message> findByRoomIdBefore(@Param("roomId") String roomId, @Param("issueDateEpoch") long issueDateEpoch, @Param("id") Long id, Pageable pageable);
+
+    @Query("select distinct m.roomId from Message m where m.roomId <> :mainRoomId")
+    List<String> findDistinctRoomIds(@Param("mainRoomId") String mainRoomId);
+
+    @Transactional
+    @Modifying
+    @Query("update Message m set m.roomId = :newRoomId where m.roomId = :oldRoomId")
+    int updateRoomId(@Param("oldRoomId") String oldRoomId, @Param("newRoomId") String newRoomId);
+
+    List<Message> findByIdGreaterThanAndRoomKeyIsNull(Long id, Pageable pageable);
+
+    boolean existsByRoomKeyIsNull();
+
+    @Query("select max(m.id) from Message m")
+    Long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("update Message m set m.sender = :newSender where m.sender = :oldSender and m.id > :fromId and m.id <= :toId")
+    int updateSender(@Param("oldSender") String oldSender, @Param("newSender") String newSender, @Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Transactional
+    @Modifying
+    @Query("update Message m set m.receiver = :newReceiver where m.receiver = :oldReceiver and m.id > :fromId and m.id <= :toId")
+    int updateReceiver(@Param("oldReceiver") String oldReceiver, @Param("newReceiver") String newReceiver, @Param("fromId") long fromId, @Param("toId") long toId);
+
+    Message findFirstByRoomIdOrderByIdAsc(String roomId);
+
     List<Message> findByContent(String content);
 
     List<Message> findBySender(String sender);
@@ -1,6 +1,7 @@
 package chatApp.repository;
 
 import chatApp.entities.User;
+import chatApp.entities.UserStatuses;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -14,4 +15,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByName(String name);
 
     User findByNickname(String userNickname);
+
+    List<User> findByIsMuteTrue();
+
+    List<User> findByUserStatusNot(UserStatuses userStatus);
 }
@@ -1,5 +1,6 @@
 package chatApp.service;
 
+import chatApp.customEntities.ChatPrincipal;
 import chatApp.utilities.EmailUtilityFacade;
 import chatApp.utilities.Utility;
 import chatApp.entities.User;
@@ -9,12 +10,9 @@ import chatApp.repository.UserRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.Map;
 
 import static chatApp.utilities.messages.ExceptionMessages.*;
 import static chatApp.utilities.Utility.*;
@@ -30,20 +28,10 @@ public class AuthService {
     private static final Logger logger = LogManager.getLogger(AuthService.class.getName());
     @Autowired
     private UserRepository userRepository;
-
-
-    private Map<String, String> keyTokensValEmails;
-    private Map<String, String> keyEmailsValTokens;
-
-    /**
-     * AuthService constructor
-     * Initializes keyTokensValEmails new Map
-     * Initializes keyEmailsValTokens new Map
-     */
-    AuthService() {
-        this.keyTokensValEmails = getTokensInstance();
-        this.keyEmailsValTokens = getEmailsInstance();
-    }
+    @Autowired
+    private SessionStore sessionStore;
+    @Autowired
+    private PasswordHasher passwordHasher;
 
     /**
      * Adds a user crypt password to the database if the user`s email exist in the db
@@ -55,25 +43,27 @@ public class AuthService {
     public User login(User user) {
         try {
             logger.debug(checkIfExistsAlready);
-            if (userRepository.findByEmail(user.getEmail()) == null) {
+            User dbUser = userRepository.findByEmail(user.getEmail());
+            if (dbUser == null) {
                 logger.error(loginFailedMessage);
                 throw new IllegalArgumentException(loginFailedMessage);
             }
-            User dbUser = User.dbUser(userRepository.findByEmail(user.getEmail()));
 
             logger.debug(checkPassword);
-            BCryptPasswordEncoder bEncoder = new BCryptPasswordEncoder();
-            if (!bEncoder.matches(user.getPassword(), dbUser.getPassword())) {
+            if (!passwordHasher.matches(user.getPassword(), dbUser.getPassword())) {
                 logger.error(loginFailedMessage);
                 throw new IllegalArgumentException(loginFailedMessage);
             }
+            if (passwordHasher.needsRehash(dbUser.getPassword())) {
+                dbUser.setPassword(passwordHasher.hash(user.getPassword()));
+                logger.info(passwordRehashed(dbUser.getEmail(), passwordHasher.getStrength()));
+            }
             logger.info(createToken);
             logger.info(userLogged);
-            String sessionToken = randomString();
-            keyTokensValEmails.put(sessionToken, dbUser.getEmail());
-            keyEmailsValTokens.put(dbUser.getEmail(), sessionToken);
             dbUser.setUserStatus(UserStatuses.ONLINE);
-            return userRepository.save(dbUser);
+            User savedUser = userRepository.save(dbUser);
+            sessionStore.open(savedUser);
+            return savedUser;
         } catch (RuntimeException e) {
             logger.error(e.getMessage());
             throw new IllegalArgumentException(e.getMessage());
@@ -96,11 +86,10 @@ public class AuthService {
             }
             logger.info(guestValid);
             User guestUser = User.guestUser(user);
-            String sessionToken = randomString();
-            keyTokensValEmails.put(sessionToken, guestUser.getEmail());
-            keyEmailsValTokens.put(guestUser.getEmail(), sessionToken);
             logger.info(saveInDB);
-            return userRepository.save(guestUser);
+            User savedGuest = userRepository.save(guestUser);
+            sessionStore.open(savedGuest);
+            return savedGuest;
         } catch (RuntimeException e) {
             logger.error(e.getMessage());
             throw new IllegalArgumentException(e.getMessage());
@@ -122,7 +111,7 @@ public class AuthService {
                 throw new IllegalArgumentException(emailExistsInSystemMessage(user.getEmail()));
             }
             logger.info(userValid);
-            User registeredUser = User.registeredUser(user);
+            User registeredUser = User.registeredUser(user, passwordHasher.hash(user.getPassword()));
             logger.info(saveInDbWaitToActivate);
             return userRepository.save(registeredUser);
         } catch (RuntimeException e) {
@@ -143,13 +132,12 @@ public class AuthService {
     public User verifyEmail(User user) {
         try {
             logger.debug(checkIfExistsAlready);
-            if (userRepository.findByEmail(user.getEmail()) == null) {
+            User dbUser = userRepository.findByEmail(user.getEmail());
+            if (dbUser == null) {
                 logger.error(emailNotExistsMessage(user.getEmail()));
                 throw new IllegalArgumentException(emailNotExistsMessage(user.getEmail()));
             }
 
-            User dbUser = User.dbUser(userRepository.findByEmail(user.getEmail()));
-
             logger.debug(checkIfActivatedEmail);
             if (dbUser.isEnabled()) {
                 logger.error(emailAlreadyActivatedMessage(user.getEmail()));
@@ -165,7 +153,9 @@ public class AuthService {
 
             User.verifyUser(dbUser);
             logger.info(saveInDB);
-            return userRepository.save(dbUser);
+            User verifiedUser = userRepository.save(dbUser);
+            sessionStore.refresh(verifiedUser.getEmail(), verifiedUser);
+            return verifiedUser;
         } catch (RuntimeException e) {
             logger.error(e.getMessage());
             throw new IllegalArgumentException(e.getMessage());
@@ -174,35 +164,52 @@ public class AuthService {
 
 
     /**
-     * Initializes the keyTokensValEmails if the keyTokensValEmails is null
+     * gets the email of the token session
+     *
+     * @param token - the session token
+     * @return the email, null when the session is unknown, replaced by a newer login or expired
      */
-    Map<String, String> getTokensInstance() {
-        if (this.keyTokensValEmails == null)
-            this.keyTokensValEmails = new HashMap<>();
-        return this.keyTokensValEmails;
+    public String getSessionEmail(String token) {
+        return sessionStore.getEmail(token);
     }
 
     /**
-     * Initializes the keyEmailsValTokens if the keyEmailsValTokens is null
+     * gets the user type of the token session, read from the session without a db query
+     *
+     * @param token - the session token
+     * @return the user type, null when the session is unknown, replaced by a newer login or expired
      */
-    Map<String, String> getEmailsInstance() {
-        if (this.keyEmailsValTokens == null)
-            this.keyEmailsValTokens = new HashMap<>();
-        return this.keyEmailsValTokens;
+    public UserType getSessionType(String token) {
+        return sessionStore.getType(token);
     }
 
     /**
-     * gets the KeyTokensValEmails Map
+     * gets the user of the token session as a chat principal, read from the session without a db query
+     *
+     * @param token - the session token
+     * @return the principal, null when the session is unknown, replaced by a newer login or expired
      */
-    public Map<String, String> getKeyTokensValEmails() {
-        return this.keyTokensValEmails;
+    public ChatPrincipal getSessionPrincipal(String token) {
+        return sessionStore.getPrincipal(token);
     }
 
     /**
-     * gets the KeyEmailsValTokens Map
+     * gets the token of the email session
+     *
+     * @param email - the user's email
+     * @return the token, null when the user has no live session
+     */
+    public String getSessionToken(String email) {
+        return sessionStore.getToken(email);
+    }
+
+    /**
+     * closes the token session
+     *
+     * @param token - the session token
      */
-    public Map<String, String> getKeyEmailsValTokens() {
-        return this.keyEmailsValTokens;
+    public void closeSession(String token) {
+        sessionStore.close(token);
     }
 
 }
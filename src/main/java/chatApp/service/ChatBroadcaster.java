@@ -0,0 +1,103 @@
+package chatApp.service;
+
+import chatApp.customEntities.BroadcastMessage;
+import chatApp.customEntities.CustomResponse;
+import chatApp.entities.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Broadcasts the sent chat messages to their room topic. With chat.broadcast.compact on, the sessions that negotiated
+ * the compact encoding at CONNECT subscribe to the compact twin of the topic and get a BroadcastMessage instead of the
+ * ResponseEntity envelope. The twin costs a second encode and fan-out of every message, so it is off by default.
+ * Each payload is encoded to json bytes once here and the broker hands the same bytes to all the subscribers
+ * of the topic, only the STOMP headers of every subscription are written per session
+ */
+@Service
+public class ChatBroadcaster {
+
+    public static final String mainChatDestination = "/topic/mainChat";
+    public static final String privateChatDestinationPrefix = "/topic/privatechat/";
+    public static final String compactDestinationSuffix = ".compact";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${chat.broadcast.compact:false}")
+    private boolean compactEnabled;
+
+    /**
+     * sends the response of a main chat message to the main chat topic
+     *
+     * @param response - the response of the send
+     */
+    public void broadcastMain(ResponseEntity<CustomResponse<Message>> response) {
+        broadcast(mainChatDestination, response);
+    }
+
+    /**
+     * sends the response of a private message to the topic of its room
+     *
+     * @param roomId   - the room id of the STOMP destination
+     * @param response - the response of the send
+     */
+    public void broadcastPrivate(String roomId, ResponseEntity<CustomResponse<Message>> response) {
+        broadcast(privateChatDestinationPrefix + roomId, response);
+    }
+
+    private void broadcast(String destination, ResponseEntity<CustomResponse<Message>> response) {
+        send(destination, response);
+        if (compactEnabled && response.getBody() != null) {
+            send(compactDestination(destination), BroadcastMessage.responseToBroadcastMessage(response.getBody()));
+        }
+    }
+
+    /**
+     * sends the payload already encoded, so the template skips its message converters
+     */
+    private void send(String destination, Object payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(encode(payload), accessor.getMessageHeaders()));
+    }
+
+    private byte[] encode(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param destination - a subscription destination
+     * @return true for the chat topics that have a compact twin
+     */
+    public static boolean isChatDestination(String destination) {
+        return destination != null && !destination.endsWith(compactDestinationSuffix)
+                && (destination.equals(mainChatDestination) || destination.startsWith(privateChatDestinationPrefix));
+    }
+
+    /**
+     * @param destination - a chat topic
+     * @return the compact twin of the topic
+     */
+    public static String compactDestination(String destination) {
+        return destination + compactDestinationSuffix;
+    }
+}
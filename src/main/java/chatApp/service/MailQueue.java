@@ -0,0 +1,394 @@
+package chatApp.service;
+
+import chatApp.customEntities.OutgoingMail;
+import chatApp.entities.User;
+import chatApp.repository.UserRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static chatApp.utilities.messages.ExceptionMessages.*;
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Outbound mail queue: a mail is written to the spool directory on the request thread and sent by a pool of
+ * worker threads, so a slow SMTP server never holds a request thread. Every worker takes up to batch-size ready
+ * mails at once and sends them over one SMTP connection. A failed send is retried with an exponential
+ * backoff up to max-attempts, then the mail is moved to the failed directory of the spool, which is emptied of
+ * the mails older than the failed retention.
+ * The spool only keeps a reference to the verification code: the recipient, the body stays in memory. The mails
+ * left by a stop or a crash are sent again on the next start with the code read back from the users table, unless
+ * the code expired, the user is already activated or the mail is older than the spool ttl.
+ * The spool directory is an absolute path readable by the application user only, and no address is logged
+ */
+@Component
+public class MailQueue {
+
+    private static final Logger logger = LogManager.getLogger(MailQueue.class.getName());
+    private static final String spoolSuffix = ".mail";
+    private static final String failedDirectory = "failed";
+    private static final Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rwx------");
+
+    @Autowired
+    private MailSenderService mailSenderService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${chat.mail.spool-dir:${user.home}/.chat-app/spool/mail}")
+    private String spoolDir;
+    @Value("${chat.mail.spool-ttl-hours:24}")
+    private long spoolTtlHours;
+    @Value("${chat.mail.failed-retention-hours:168}")
+    private long failedRetentionHours;
+    @Value("${chat.mail.workers:2}")
+    private int workers;
+    @Value("${chat.mail.batch-size:20}")
+    private int batchSize;
+    @Value("${chat.mail.retry.max-attempts:6}")
+    private int maxAttempts;
+    @Value("${chat.mail.retry.backoff-ms:2000}")
+    private long backoffMs;
+    @Value("${chat.mail.retry.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    private Path spool;
+    private final BlockingQueue<SpooledMail> readyMails = new LinkedBlockingQueue<>();
+    private ExecutorService senders;
+    private ScheduledExecutorService retries;
+
+    private final AtomicInteger pendingMails = new AtomicInteger();
+    private final AtomicLong sentMails = new AtomicLong();
+    private final AtomicLong retriedMails = new AtomicLong();
+    private final AtomicLong failedMails = new AtomicLong();
+
+    /**
+     * starts the worker threads and queues the mails left in the spool directory
+     */
+    @PostConstruct
+    void start() throws IOException {
+        spool = ownerOnlyDirectory(Paths.get(spoolDir));
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "mail-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mail-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int loaded = 0;
+        try (DirectoryStream<Path> spooled = Files.newDirectoryStream(spool, "*" + spoolSuffix)) {
+            for (Path file : spooled) {
+                SpooledMail mail = read(file);
+                if (mail == null || mail.text == null || expired(mail)) {
+                    drop(file);
+                } else {
+                    pendingMails.incrementAndGet();
+                    readyMails.add(mail);
+                    loaded++;
+                }
+            }
+        }
+        if (loaded > 0) {
+            logger.info(mailSpoolLoaded(loaded));
+        }
+        for (int i = 0; i < workers; i++) {
+            senders.execute(this::sendLoop);
+        }
+        long cleanupMs = TimeUnit.HOURS.toMillis(1);
+        retries.scheduleWithFixedDelay(this::cleanFailed, 0, cleanupMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * creates the directory when missing and keeps it to the application user
+     *
+     * @throws IllegalArgumentException when the configured path isn't absolute
+     */
+    private Path ownerOnlyDirectory(Path directory) throws IOException {
+        if (!directory.isAbsolute()) {
+            logger.error(mailSpoolNotAbsoluteMessage(directory.toString()));
+            throw new IllegalArgumentException(mailSpoolNotAbsoluteMessage(directory.toString()));
+        }
+        Files.createDirectories(directory);
+        if (Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(directory, ownerOnly);
+        }
+        return directory;
+    }
+
+    /**
+     * stops the workers, the mails not sent yet stay in the spool directory for the next start
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (senders == null) {
+            return;
+        }
+        retries.shutdownNow();
+        senders.shutdownNow();
+        senders.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * spools the mail and queues it for the workers, when the spool can't be written the mail is still sent
+     * but won't survive a restart
+     *
+     * @param to      - the recipient
+     * @param subject - the subject
+     * @param text    - the plain text body
+     */
+    public void enqueue(String to, String subject, String text) {
+        SpooledMail mail = new SpooledMail(spool.resolve(UUID.randomUUID() + spoolSuffix), to, subject, text, 0, System.currentTimeMillis());
+        write(mail);
+        pendingMails.incrementAndGet();
+        readyMails.add(mail);
+    }
+
+    private void sendLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<SpooledMail> batch = new ArrayList<>(batchSize);
+            try {
+                batch.add(readyMails.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            readyMails.drainTo(batch, batchSize - 1);
+            try {
+                deliver(batch);
+            } catch (RuntimeException e) {
+                logger.error(mailBatchCrashed(batch.size()) + e.getClass().getSimpleName(), e);
+                batch.stream().filter(mail -> Files.exists(mail.file)).forEach(mail -> retry(mail, e));
+            }
+        }
+    }
+
+    private void deliver(List<SpooledMail> batch) {
+        Map<OutgoingMail, SpooledMail> mails = new IdentityHashMap<>();
+        for (SpooledMail mail : batch) {
+            if (expired(mail)) {
+                pendingMails.decrementAndGet();
+                drop(mail.file);
+            } else {
+                mails.put(OutgoingMail.of(mail.to, mail.subject, mail.text), mail);
+            }
+        }
+        if (mails.isEmpty()) {
+            return;
+        }
+        Map<OutgoingMail, Exception> failed = mailSenderService.send(new ArrayList<>(mails.keySet()));
+        mails.forEach((outgoing, mail) -> {
+            Exception error = failed.get(outgoing);
+            if (error == null) {
+                sent(mail);
+            } else {
+                retry(mail, error);
+            }
+        });
+    }
+
+    private void sent(SpooledMail mail) {
+        sentMails.incrementAndGet();
+        pendingMails.decrementAndGet();
+        try {
+            Files.deleteIfExists(mail.file);
+        } catch (IOException e) {
+            logger.error(mailSpoolFailed(mail.file.getFileName().toString()) + e.getMessage());
+        }
+    }
+
+    private void retry(SpooledMail mail, Exception error) {
+        mail.attempts++;
+        if (mail.attempts >= maxAttempts) {
+            giveUp(mail);
+            logger.error(mailSendFailed(mail.id(), mail.attempts) + error.getClass().getSimpleName());
+            return;
+        }
+        write(mail);
+        long delay = backoff(mail.attempts);
+        retriedMails.incrementAndGet();
+        logger.warn(mailSendRetry(mail.id(), mail.attempts, delay) + error.getClass().getSimpleName());
+        try {
+            retries.schedule(() -> readyMails.add(mail), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.warn(mailSendRetry(mail.id(), mail.attempts, delay) + e.getMessage());
+        }
+    }
+
+    /**
+     * @param attempts - the failed attempts so far
+     * @return backoff-ms doubled on every failed attempt after the first, capped at max-backoff-ms
+     */
+    long backoff(int attempts) {
+        long delay = backoffMs << Math.min(attempts - 1, 30);
+        return delay <= 0 || delay > maxBackoffMs ? maxBackoffMs : delay;
+    }
+
+    private void giveUp(SpooledMail mail) {
+        failedMails.incrementAndGet();
+        pendingMails.decrementAndGet();
+        try {
+            Path failed = Files.createDirectories(spool.resolve(failedDirectory));
+            Path target = failed.resolve(mail.file.getFileName());
+            Files.move(mail.file, target, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            logger.error(mailSpoolFailed(mail.file.getFileName().toString()) + e.getMessage());
+        }
+    }
+
+    /**
+     * deletes the failed mails kept longer than the failed retention
+     */
+    void cleanFailed() {
+        Path failed = spool.resolve(failedDirectory);
+        if (!Files.isDirectory(failed)) {
+            return;
+        }
+        long oldest = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(failedRetentionHours);
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(failed, "*" + spoolSuffix)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < oldest && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error(mailSpoolFailed(failedDirectory) + e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.info(mailFailedCleaned(deleted));
+        }
+    }
+
+    /**
+     * @return true when the mail was spooled longer ago than the spool ttl, its code isn't worth sending anymore
+     */
+    private boolean expired(SpooledMail mail) {
+        return mail.created + TimeUnit.HOURS.toMillis(spoolTtlHours) < System.currentTimeMillis();
+    }
+
+    private void drop(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            logger.info(mailSpoolDropped(file.getFileName().toString()));
+        } catch (IOException e) {
+            logger.error(mailSpoolFailed(file.getFileName().toString()) + e.getMessage());
+        }
+    }
+
+    /**
+     * writes the mail without its body to a temporary file then renames it, so a crash never leaves a partial
+     * mail in the spool
+     */
+    private void write(SpooledMail mail) {
+        Properties properties = new Properties();
+        properties.setProperty("to", mail.to);
+        properties.setProperty("subject", mail.subject);
+        properties.setProperty("attempts", String.valueOf(mail.attempts));
+        properties.setProperty("created", String.valueOf(mail.created));
+        Path temporary = mail.file.resolveSibling(mail.file.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+            Files.move(temporary, mail.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error(mailSpoolFailed(mail.file.getFileName().toString()) + e.getMessage());
+        }
+    }
+
+    private SpooledMail read(Path file) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            if (properties.getProperty("to") == null) {
+                throw new IllegalArgumentException("to");
+            }
+            String to = properties.getProperty("to");
+            return new SpooledMail(file, to, properties.getProperty("subject"), verificationCode(to),
+                    Integer.parseInt(properties.getProperty("attempts", "0")), Long.parseLong(properties.getProperty("created", "0")));
+        } catch (IOException | RuntimeException e) {
+            logger.error(mailSpoolFailed(file.getFileName().toString()) + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param email - the recipient of a spooled mail
+     * @return the verification code of the user, null when the user is gone, activated or the code expired
+     */
+    private String verificationCode(String email) {
+        User user = userRepository.findByEmail(email);
+        if (user == null || user.isEnabled() || user.getIssueDate() == null || LocalDate.now().isAfter(user.getIssueDate().plusDays(1))) {
+            return null;
+        }
+        return user.getVerifyCode();
+    }
+
+    public int getPendingMails() {
+        return pendingMails.get();
+    }
+
+    public long getSentMails() {
+        return sentMails.get();
+    }
+
+    public long getRetriedMails() {
+        return retriedMails.get();
+    }
+
+    public long getFailedMails() {
+        return failedMails.get();
+    }
+
+    private static class SpooledMail {
+        private final Path file;
+        private final String to;
+        private final String subject;
+        private final String text;
+        private final long created;
+        private int attempts;
+
+        private SpooledMail(Path file, String to, String subject, String text, int attempts, long created) {
+            this.file = file;
+            this.to = to;
+            this.subject = subject;
+            this.text = text;
+            this.attempts = attempts;
+            this.created = created;
+        }
+
+        /**
+         * @return the spool file name without its suffix, logged in place of the address
+         */
+        private String id() {
+            String name = file.getFileName().toString();
+            return name.substring(0, name.length() - spoolSuffix.length());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package chatApp.service;
+
+import chatApp.customEntities.OutgoingMail;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static chatApp.utilities.Utility.innerSystemEmail;
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Sends mails over SMTP. Every mail gets its own MimeMessage built from an immutable OutgoingMail, so concurrent
+ * senders never share a message, and a batch of mails is sent over one SMTP connection instead of one per mail.
+ * A failure of one mail doesn't fail the rest of its batch
+ */
+@Service
+public class MailSenderService {
+
+    private static final Logger logger = LogManager.getLogger(MailSenderService.class.getName());
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    private final AtomicLong sentMails = new AtomicLong();
+    private final AtomicLong failedMails = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalSendNanos = new AtomicLong();
+    private final AtomicLong lastSendNanos = new AtomicLong();
+
+    /**
+     * sends the mails over one SMTP connection
+     *
+     * @param mails - the mails of the batch
+     * @return the mails that weren't sent with the error of each, empty when all of them were sent
+     */
+    public Map<OutgoingMail, Exception> send(List<OutgoingMail> mails) {
+        Map<OutgoingMail, Exception> failed = new IdentityHashMap<>();
+        Map<MimeMessage, OutgoingMail> prepared = new IdentityHashMap<>();
+        for (OutgoingMail mail : mails) {
+            try {
+                prepared.put(prepare(mail), mail);
+            } catch (MessagingException | RuntimeException e) {
+                failed.put(mail, e);
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            if (!prepared.isEmpty()) {
+                mailSender.send(prepared.keySet().toArray(new MimeMessage[0]));
+            }
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                prepared.values().forEach(mail -> failed.put(mail, e));
+            }
+            e.getFailedMessages().forEach((message, error) -> {
+                OutgoingMail mail = prepared.get(message);
+                if (mail != null) {
+                    failed.put(mail, error);
+                }
+            });
+        } catch (MailException e) {
+            prepared.values().forEach(mail -> failed.put(mail, e));
+        }
+        long elapsed = System.nanoTime() - start;
+        batches.incrementAndGet();
+        totalSendNanos.addAndGet(elapsed);
+        lastSendNanos.set(elapsed);
+        sentMails.addAndGet(mails.size() - failed.size());
+        failedMails.addAndGet(failed.size());
+        logger.debug(mailBatchSent(mails.size() - failed.size(), failed.size(), TimeUnit.NANOSECONDS.toMillis(elapsed)));
+        return failed;
+    }
+
+    private MimeMessage prepare(OutgoingMail mail) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+        helper.setFrom(innerSystemEmail);
+        helper.setTo(mail.getTo());
+        helper.setSubject(mail.getSubject());
+        helper.setText(mail.getText());
+        return message;
+    }
+
+    public long getSentMails() {
+        return sentMails.get();
+    }
+
+    public long getFailedMails() {
+        return failedMails.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getLastSendLatencyNanos() {
+        return lastSendNanos.get();
+    }
+
+    public long getAverageSendLatencyNanos() {
+        long count = batches.get();
+        return count == 0 ? 0 : totalSendNanos.get() / count;
+    }
+}
@@ -0,0 +1,265 @@
+package chatApp.service;
+
+import chatApp.entities.Message;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static chatApp.utilities.messages.ExceptionMessages.*;
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Write-behind stage for main chat messages: messages are queued on the request thread and
+ * persisted by a single flusher thread as JDBC batch inserts, bounded by batch size and flush interval.
+ */
+@Component
+public class MessageBatchWriter {
+
+    private static final Logger logger = LogManager.getLogger(MessageBatchWriter.class.getName());
+    private static final String insertMessageSql = "insert into message (sender, receiver, content, room_id, issue_date, issue_date_time, sender_id, receiver_id, room_key) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${chat.message.write-behind.enabled:false}")
+    private boolean enabled;
+    @Value("${chat.message.write-behind.batch-size:100}")
+    private int batchSize;
+    @Value("${chat.message.write-behind.flush-interval-ms:50}")
+    private long flushIntervalMs;
+    @Value("${chat.message.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+    @Value("${chat.message.write-behind.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+    @Value("${chat.message.write-behind.durable-ack:false}")
+    private boolean durableAck;
+    @Value("${chat.message.write-behind.ack-timeout-ms:5000}")
+    private long ackTimeoutMs;
+
+    private BlockingQueue<PendingMessage> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final AtomicLong enqueuedMessages = new AtomicLong();
+    private final AtomicLong rejectedMessages = new AtomicLong();
+    private final AtomicLong persistedMessages = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+
+    /**
+     * starts the flusher thread when the write-behind mode is enabled
+     */
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        flusher = new Thread(this::flushLoop, "message-batch-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * stops accepting messages and drains everything still queued before shutdown
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * queues the message for the next batch insert, when durable-ack is on waits until the batch holding it is committed
+     *
+     * @param message - the message to persist
+     * @return the same message, without the generated id
+     * @throws IllegalArgumentException when the queue stays full past the offer timeout or the batch insert failed
+     */
+    public Message enqueue(Message message) {
+        PendingMessage pending = new PendingMessage(message);
+        try {
+            if (!running || !queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedMessages.incrementAndGet();
+                logger.error(messageQueueFullMessage);
+                throw new IllegalArgumentException(messageQueueFullMessage);
+            }
+            enqueuedMessages.incrementAndGet();
+            if (durableAck) {
+                pending.persisted.get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            return message;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException(messageNotPersistedMessage);
+        } catch (ExecutionException | TimeoutException e) {
+            logger.error(messageNotPersistedMessage);
+            throw new IllegalArgumentException(messageNotPersistedMessage);
+        }
+    }
+
+    /**
+     * waits until every message enqueued before the call was inserted or failed: a flush marker is queued behind
+     * them and the flusher, which handles the queue in order, completes it once their batch is done
+     *
+     * @return true when they were handled within the ack timeout, or when the write-behind mode is off
+     */
+    public boolean awaitFlushed() {
+        if (queue == null) {
+            return true;
+        }
+        PendingMessage marker = new PendingMessage(null);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        try {
+            if (!queue.offer(marker, ackTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            marker.persisted.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * collects a batch until it is full or the flush interval since its first message passed, then inserts it
+     */
+    private void flushLoop() {
+        while (running || !queue.isEmpty()) {
+            List<PendingMessage> batch = new ArrayList<>(batchSize);
+            try {
+                PendingMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingMessage next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+        }
+    }
+
+    /**
+     * inserts the messages of the batch, then completes the flush markers queued among them
+     */
+    private void flush(List<PendingMessage> pendings) {
+        List<PendingMessage> batch = new ArrayList<>(pendings.size());
+        List<PendingMessage> markers = new ArrayList<>();
+        pendings.forEach(pending -> (pending.message == null ? markers : batch).add(pending));
+        if (!batch.isEmpty()) {
+            insert(batch);
+        }
+        markers.forEach(marker -> marker.persisted.complete(null));
+    }
+
+    private void insert(List<PendingMessage> batch) {
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(insertMessageSql, batch, batch.size(), (ps, pending) -> {
+                Message message = pending.message;
+                ps.setString(1, message.getSender());
+                ps.setString(2, message.getReceiver());
+                ps.setString(3, message.getContent());
+                ps.setString(4, message.getRoomId());
+                ps.setTimestamp(5, Timestamp.valueOf(message.getIssueDate()));
+                ps.setLong(6, message.getIssueDateEpoch());
+                ps.setObject(7, message.getSenderId(), Types.BIGINT);
+                ps.setObject(8, message.getReceiverId(), Types.BIGINT);
+                ps.setObject(9, message.getRoomKey(), Types.BIGINT);
+            });
+            persistedMessages.addAndGet(batch.size());
+            batch.forEach(pending -> pending.persisted.complete(null));
+        } catch (RuntimeException e) {
+            failedMessages.addAndGet(batch.size());
+            logger.error(batchInsertFailed(batch.size()) + e.getMessage());
+            batch.forEach(pending -> pending.persisted.completeExceptionally(e));
+        }
+        long elapsed = System.nanoTime() - start;
+        flushes.incrementAndGet();
+        totalFlushNanos.addAndGet(elapsed);
+        lastFlushNanos.set(elapsed);
+        logger.debug(batchFlushed(batch.size(), TimeUnit.NANOSECONDS.toMillis(elapsed)));
+    }
+
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    public long getEnqueuedMessages() {
+        return enqueuedMessages.get();
+    }
+
+    public long getRejectedMessages() {
+        return rejectedMessages.get();
+    }
+
+    public long getPersistedMessages() {
+        return persistedMessages.get();
+    }
+
+    public long getFailedMessages() {
+        return failedMessages.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getLastFlushLatencyNanos() {
+        return lastFlushNanos.get();
+    }
+
+    public long getAverageFlushLatencyNanos() {
+        long count = flushes.get();
+        return count == 0 ? 0 : totalFlushNanos.get() / count;
+    }
+
+    /**
+     * a queued message and its commit, a null message is a flush marker
+     */
+    private static class PendingMessage {
+        private final Message message;
+        private final CompletableFuture<Void> persisted = new CompletableFuture<>();
+
+        private PendingMessage(Message message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package chatApp.service;
+
+import chatApp.entities.Message;
+import chatApp.repository.MessageRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static chatApp.utilities.Utility.*;
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Normalized schema mode of the messages: every new message carries the sender and receiver user ids and the
+ * numeric room key next to the nickname strings. With chat.message.schema=normalized the rows saved before are
+ * backfilled online in id order, batch-size rows at a time, and once the backfill is done the nicknames are
+ * resolved from the user cache at read time, so a rename no longer rewrites the message history.
+ * The backfill state lives in the db: the backfill is done once no row is left without a room key.
+ * User ids are never taken from a nickname for a new message, only a backfilled row is matched by its stored
+ * nickname, between two renames and within the two users of its private room
+ */
+@Component
+public class MessageNormalizer {
+
+    private static final Logger logger = LogManager.getLogger(MessageNormalizer.class.getName());
+    private static final String normalizedSchema = "normalized";
+    private static final String backfillSql = "update message set sender_id = ?, receiver_id = ?, room_key = ? where id = ?";
+    private static final long unkeyedRoomKey = -1L;
+
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private UserCache userCache;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserMessagesRenamer userMessagesRenamer;
+
+    @Value("${chat.message.schema:legacy}")
+    private String schema;
+    @Value("${chat.message.backfill.batch-size:500}")
+    private int batchSize;
+    @Value("${chat.message.backfill.pause-ms:20}")
+    private long pauseMs;
+
+    private Thread backfill;
+    private volatile boolean running;
+    private volatile boolean backfilled;
+    private volatile long backfilledUpToId;
+
+    /**
+     * once the application started, reads from the db whether an earlier run finished the backfill
+     * and else starts the backfill of the rows saved before the normalized mode
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!normalizedSchema.equalsIgnoreCase(schema) || backfill != null) {
+            return;
+        }
+        if (!messageRepository.existsByRoomKeyIsNull()) {
+            backfilled = true;
+            logger.info(messageBackfillAlreadyDone);
+            return;
+        }
+        running = true;
+        backfill = new Thread(this::backfill, "message-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (backfill != null) {
+            backfill.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * @return true when the normalized mode is on and no row of the db is left without its room key
+     */
+    public boolean isNormalized() {
+        return backfilled;
+    }
+
+    public long getBackfilledUpToId() {
+        return backfilledUpToId;
+    }
+
+    /**
+     * sets the user ids and the room key of a new message, the ids come from the session and the room id only
+     *
+     * @param message  - the message before it is saved
+     * @param senderId - the id of the session sender, null when the caller has no session
+     */
+    public void addUserIds(Message message, Long senderId) {
+        message.setSenderId(senderId);
+        message.setReceiverId(otherRoomUser(message.getRoomId(), senderId));
+        message.setRoomKey(roomKeyOf(message.getRoomId()));
+    }
+
+    /**
+     * sets the current nicknames of the users of the messages when the normalized mode is on
+     *
+     * @param messages - the messages read from the db or the history cache, left unchanged
+     * @return the messages, a copy in place of every message whose nicknames changed
+     */
+    public List<Message> resolveNicknames(List<Message> messages) {
+        if (!backfilled) {
+            return messages;
+        }
+        List<Message> resolved = new ArrayList<>(messages.size());
+        messages.forEach(message -> resolved.add(resolveNicknames(message)));
+        return resolved;
+    }
+
+    /**
+     * sets the current nicknames of the users of the message when the normalized mode is on, on a copy so neither
+     * the row nor a message shared by the history cache is changed
+     *
+     * @param message - a message read from the db or the history cache, left unchanged
+     * @return the message, or a copy of it with the current nicknames when they changed
+     */
+    public Message resolveNicknames(Message message) {
+        if (!backfilled) {
+            return message;
+        }
+        String sender = userCache.getNickname(message.getSenderId());
+        String receiver = userCache.getNickname(message.getReceiverId());
+        boolean senderChanged = sender != null && !sender.equals(message.getSender());
+        boolean receiverChanged = receiver != null && !receiver.equals(message.getReceiver());
+        if (!senderChanged && !receiverChanged) {
+            return message;
+        }
+        Message resolved = Message.copyOf(message);
+        if (senderChanged) {
+            resolved.setSender(sender);
+        }
+        if (receiverChanged) {
+            resolved.setReceiver(receiver);
+        }
+        return resolved;
+    }
+
+    /**
+     * the other user of a private room, null for the main room or when the user isn't one of the room users
+     */
+    private static Long otherRoomUser(String roomId, Long userId) {
+        long[] roomUserIds = roomUserIds(roomId);
+        if (roomUserIds == null || userId == null || (roomUserIds[0] != userId && roomUserIds[1] != userId)) {
+            return null;
+        }
+        return roomUserIds[0] == userId ? roomUserIds[1] : roomUserIds[0];
+    }
+
+    /**
+     * the room key, or a key no room has for a room id that can't be keyed, so no saved row is left without one
+     */
+    private static Long roomKeyOf(String roomId) {
+        Long key = roomKey(roomId);
+        return key == null ? unkeyedRoomKey : key;
+    }
+
+    /**
+     * sets the user ids of a row saved before the normalized mode from its stored nicknames: a private row only
+     * matches the two users of its room, a main room row the user holding the nickname, which is safe because
+     * the batch runs between renames, when the stored nicknames are the current ones
+     */
+    private void addLegacyUserIds(Message message) {
+        long[] roomUserIds = roomUserIds(message.getRoomId());
+        Long senderId = null;
+        if (roomUserIds == null) {
+            senderId = mainRoomId.equals(message.getRoomId()) ? userCache.getUserId(message.getSender()) : null;
+        } else {
+            for (long roomUserId : roomUserIds) {
+                String nickname = userCache.getNickname(roomUserId);
+                if (nickname == null) {
+                    continue;
+                }
+                if (nickname.equals(message.getSender())) {
+                    senderId = roomUserId;
+                } else if (senderId == null && nickname.equals(message.getReceiver())) {
+                    senderId = otherRoomUser(message.getRoomId(), roomUserId);
+                }
+            }
+        }
+        message.setSenderId(senderId);
+        message.setReceiverId(otherRoomUser(message.getRoomId(), senderId));
+        message.setRoomKey(roomKeyOf(message.getRoomId()));
+    }
+
+    /**
+     * backfills the next batch of rows without a room key
+     *
+     * @return the number of backfilled rows, 0 when none is left after the cursor
+     */
+    private int backfillBatch() {
+        List<Message> batch = messageRepository.findByIdGreaterThanAndRoomKeyIsNull(backfilledUpToId, PageRequest.of(0, batchSize, Sort.Direction.ASC, userIdNameInTable));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batch.forEach(this::addLegacyUserIds);
+        jdbcTemplate.batchUpdate(backfillSql, batch, batch.size(), (ps, message) -> {
+            ps.setObject(1, message.getSenderId(), Types.BIGINT);
+            ps.setObject(2, message.getReceiverId(), Types.BIGINT);
+            ps.setObject(3, message.getRoomKey(), Types.BIGINT);
+            ps.setLong(4, message.getId());
+        });
+        backfilledUpToId = batch.get(batch.size() - 1).getId();
+        return batch.size();
+    }
+
+    /**
+     * walks the rows without a room key by ascending id, one batch at a time between two renames, the rows whose
+     * users were deleted or can't be matched keep only their nicknames. At the end the db is checked again, the
+     * rows committed meanwhile below the cursor are walked by another pass
+     */
+    void backfill() {
+        long start = System.nanoTime();
+        int filled = 0;
+        try {
+            while (running) {
+                int batchFilled = userMessagesRenamer.runBetweenRenames(this::backfillBatch);
+                if (batchFilled == 0) {
+                    if (!messageRepository.existsByRoomKeyIsNull()) {
+                        backfilled = true;
+                        logger.info(messageBackfillFinished(filled, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+                        return;
+                    }
+                    backfilledUpToId = 0;
+                    continue;
+                }
+                filled += batchFilled;
+                logger.debug(messageBackfillProgress(backfilledUpToId, filled));
+                Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error(messageBackfillFailed(backfilledUpToId) + e.getMessage());
+        }
+    }
+}
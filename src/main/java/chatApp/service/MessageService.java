@@ -1,39 +1,80 @@
 package chatApp.service;
 
+import chatApp.customEntities.ChatPrincipal;
 import chatApp.entities.Message;
 import chatApp.entities.User;
 import chatApp.repository.MessageRepository;
-import chatApp.repository.UserRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static chatApp.utilities.messages.ExceptionMessages.*;
 import static chatApp.utilities.Utility.*;
 import static chatApp.utilities.messages.LoggerMessages.*;
-import static chatApp.utilities.messages.LoggerMessages.checkPrivateRoomMessage;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @CrossOrigin
 @Service
 public class MessageService {
 
     private static final Logger logger = LogManager.getLogger(MessageService.class.getName());
+    private static final String mySqlDatabase = "MySQL";
+    private static final String streamRoomMessagesQuery = "select m from Message m where m.roomId = :roomId order by m.id asc";
+    private static final String streamRoomMessagesByTimeQuery = "select m from Message m where m.roomId = :roomId and m.issueDateEpoch between :from and :to order by m.id asc";
 
     @Autowired
-    private UserRepository userRepository;
+    private UserCache userCache;
 
     @Autowired
     private MessageRepository messageRepository;
 
+    @Autowired
+    private MessageBatchWriter messageBatchWriter;
+
+    @Autowired
+    private RecentMessagesCache recentMessagesCache;
+
+    @Autowired
+    private SessionStore sessionStore;
+
+    @Autowired
+    private MuteRegistry muteRegistry;
+
+    @Autowired
+    private MessageNormalizer messageNormalizer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${chat.message.stream.fetch-size:500}")
+    private int fetchSize;
+
+    private volatile Integer streamingFetchSize;
+
     /**
-     * finding the room id by the userEmail and the receiverId combination
+     * finding the room id by the userEmail and the receiverId combination, the room id is canonical so
+     * the history is loaded with one query whoever opens the room
      *
      * @param userEmail  - user email to get the roomId
      * @param receiverId - user id to get the roomId
@@ -43,21 +84,23 @@ public class MessageService {
     public List<Message> getPrivateRoomMessages(String userEmail, Long receiverId) {
         try {
             logger.info(getPrivateRoom);
-            User senderUser = User.dbUser(userRepository.findByEmail(userEmail));
-            User receiverUser = User.dbUser(userRepository.findById(receiverId).get());
-            Long senderId = senderUser.getId();
-            logger.info(getPrivateRoom + senderUser.getNickname() + " " + receiverUser.getNickname());
-            logger.info(checkPrivateRoomMessage(senderId, receiverId));
-            List<Message> messageList = messageRepository.findByRoomId(senderId + separator + receiverId);
+            Long senderId = userCache.getUserIdByEmail(userEmail);
+            if (senderId == null) {
+                throw new IllegalArgumentException(privateChatRoomMessagesFailed);
+            }
+            String roomId = privateRoomId(senderId, receiverId);
+            logger.info(checkPrivateRoomMessage(roomId));
+            List<Message> messageList = messageRepository.findByRoomId(roomId);
             if (messageList.isEmpty()) {
-                logger.info(checkPrivateRoomMessage(receiverId, senderId));
-                messageList = messageRepository.findByRoomId(receiverId + separator + senderId);
-                if (messageList.isEmpty()) {
-                    logger.info(createPrivateRoomMessage(senderId, receiverId));
-                    messageList.add(messageRepository.save(Message.createFirstPrivateRoomMessageFactory(senderUser.getNickname(), receiverUser.getNickname(), senderId , receiverId)));
+                String senderNickname = userCache.getNickname(senderId);
+                String receiverNickname = userCache.getNickname(receiverId);
+                if (receiverNickname == null) {
+                    throw new IllegalArgumentException(privateChatRoomMessagesFailed);
                 }
+                logger.info(createPrivateRoomMessage(roomId));
+                messageList.add(messageRepository.save(Message.createFirstPrivateRoomMessageFactory(senderNickname, receiverNickname, senderId, receiverId)));
             }
-            return messageList;
+            return messageNormalizer.resolveNicknames(messageList);
         } catch (RuntimeException e) {
             logger.error(privateChatRoomMessagesFailed);
             throw new IllegalArgumentException(privateChatRoomMessagesFailed);
@@ -74,14 +117,51 @@ public class MessageService {
     public Message addMessageToPrivateChat(Message message) {
         try {
             logger.info(addMessageToPrivateRoom(message.getRoomId()));
-            Message messageFactory = Message.PrivateChatMessageFactory(message);
-            return messageRepository.save(messageFactory);
+            return savePrivateMessage(message, null);
+        } catch (RuntimeException e) {
+            logger.error(FailedToSendPrivateMessage);
+            throw new IllegalArgumentException(FailedToSendPrivateMessage);
+        }
+    }
+
+    /**
+     * adds message of the STOMP session user to private chat room to the db, the room is taken from the STOMP
+     * destination and the sender from the live session of the token, the room id of the message body is ignored
+     *
+     * @param roomId  - the room id of the destination
+     * @param message - the message`s data
+     * @param sender  - the session user
+     * @return saved message
+     * @throws IllegalArgumentException when the session expired or the sender isn't one of the two users of the room
+     */
+    public Message addMessageToPrivateChat(String roomId, Message message, ChatPrincipal sender) {
+        ChatPrincipal session = sessionStore.getPrincipal(sender.getToken());
+        if (session == null) {
+            logger.error(tokenSessionExpired);
+            throw new IllegalArgumentException(tokenSessionExpired);
+        }
+        if (!isRoomMember(roomId, session.getUserId())) {
+            logger.error(notRoomMemberMessage);
+            throw new IllegalArgumentException(notRoomMemberMessage);
+        }
+        try {
+            logger.info(addMessageToPrivateRoom(roomId));
+            message.setRoomId(roomId);
+            message.setSender(session.getNickname());
+            return savePrivateMessage(message, session.getUserId());
         } catch (RuntimeException e) {
             logger.error(FailedToSendPrivateMessage);
             throw new IllegalArgumentException(FailedToSendPrivateMessage);
         }
     }
 
+    private Message savePrivateMessage(Message message, Long senderId) {
+        Message messageFactory = Message.PrivateChatMessageFactory(message);
+        messageFactory.setRoomId(canonicalRoomId(message.getRoomId()));
+        messageNormalizer.addUserIds(messageFactory, senderId);
+        return messageRepository.save(messageFactory);
+    }
+
     /**
      * downloads private room messages
      *
@@ -92,7 +172,7 @@ public class MessageService {
     public List<Message> downloadPrivateRoomMessages(String roomId) {
         try {
             logger.info(downloadPrivateChat);
-            return messageRepository.findByRoomId(roomId);
+            return messageNormalizer.resolveNicknames(messageRepository.findByRoomId(roomId));
         } catch (RuntimeException e) {
             logger.error(downloadPrivateRoomFailed);
             throw new IllegalArgumentException(downloadPrivateRoomFailed);
@@ -100,30 +180,63 @@ public class MessageService {
     }
 
     /**
-     * adding message to db
+     * adding message to db, through the write-behind batch writer when it is enabled,
+     * the sender mute flag is checked in the mute registry without a db query
      *
      * @param message - the message`s data
-     * @return a saved message body
+     * @return a saved message body, without id when it was queued for a batch insert
      * @throws IllegalArgumentException
      */
     public Message addMessageToMainChat(Message message) {
         try {
             logger.info(addMessageInMainChat);
-            String userNickname = message.getSender();
-            User user = User.dbUser(userRepository.findByNickname(userNickname));
-            if (user.isMute()) {
+            if (muteRegistry.isMuted(message.getSender())) {
+                throw new IllegalArgumentException(userIsMutedMessage);
+            }
+            return saveMainMessage(message, null);
+        } catch (RuntimeException e) {
+            logger.error(e.getMessage());
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /**
+     * adding message of the STOMP session user to db, the sender is taken from the live session of the token, so an
+     * email or nickname change since CONNECT is seen, and the mute flag from the mute registry without a db query
+     *
+     * @param message - the message`s data
+     * @param sender  - the session user of the STOMP CONNECT
+     * @return a saved message body, without id when it was queued for a batch insert
+     * @throws IllegalArgumentException
+     */
+    public Message addMessageToMainChat(Message message, ChatPrincipal sender) {
+        try {
+            logger.info(addMessageInMainChat);
+            ChatPrincipal session = sessionStore.getPrincipal(sender.getToken());
+            if (session == null) {
+                throw new IllegalArgumentException(tokenSessionExpired);
+            }
+            if (muteRegistry.isMuted(session.getUserId())) {
                 throw new IllegalArgumentException(userIsMutedMessage);
             }
-            Message messageFactory = Message.MainChatMessageFactory(message);
-            return messageRepository.save(messageFactory);
+            message.setSender(session.getNickname());
+            return saveMainMessage(message, session.getUserId());
         } catch (RuntimeException e) {
             logger.error(e.getMessage());
             throw new IllegalArgumentException(e.getMessage());
         }
     }
 
+    private Message saveMainMessage(Message message, Long senderId) {
+        Message messageFactory = Message.MainChatMessageFactory(message);
+        messageNormalizer.addUserIds(messageFactory, senderId);
+        Message savedMessage = messageBatchWriter.isEnabled() ? messageBatchWriter.enqueue(messageFactory) : messageRepository.save(messageFactory);
+        recentMessagesCache.add(savedMessage);
+        return savedMessage;
+    }
+
     /**
-     * find all the main chat room messages in the db
+     * find the newest main chat room messages, from the history cache when it holds enough messages else from the db
      *
      * @param size - the number of returned rows
      * @return list of messages sorted by DESC timestamp
@@ -132,13 +245,54 @@ public class MessageService {
     public List<Message> getMainRoomMessages(int size) {
         try {
             logger.info(getMainChatMessages);
-            return messageRepository.findByRoomId(mainRoomId, PageRequest.of(0, size, Sort.Direction.DESC, userIdNameInTable));
+            Optional<List<Message>> cachedMessages = recentMessagesCache.getNewest(mainRoomId, size);
+            if (cachedMessages.isPresent()) {
+                return messageNormalizer.resolveNicknames(cachedMessages.get());
+            }
+            return messageNormalizer.resolveNicknames(messageRepository.findByRoomId(mainRoomId, PageRequest.of(0, size, Sort.Direction.DESC, userIdNameInTable)));
         } catch (RuntimeException e) {
             logger.error(mainChatRoomMessagesFailed);
             throw new IllegalArgumentException(mainChatRoomMessagesFailed);
         }
     }
 
+    /**
+     * find the room messages older than the cursor, using keyset predicates on (issueDateEpoch, id) instead of an offset.
+     * Every page is sorted by (issueDateEpoch, id) since the write-behind rows can have ids out of issue order, a cursor
+     * sent without beforeEpoch takes the issue time of the beforeId message
+     *
+     * @param roomId      - the room id
+     * @param beforeId    - the id of the oldest message the client has, null for the newest page
+     * @param beforeEpoch - the issue time in epoch seconds of the oldest message the client has, only together with
+     *                    beforeId since many messages share the same second, null to read it from the beforeId message
+     * @param limit       - the number of returned rows, at most maxHistoryPageSize
+     * @return list of messages sorted by DESC timestamp
+     * @throws IllegalArgumentException
+     */
+    public List<Message> getRoomHistory(String roomId, Long beforeId, Long beforeEpoch, int limit) {
+        try {
+            logger.info(getRoomHistory);
+            if (limit < 1 || limit > maxHistoryPageSize) {
+                throw new IllegalArgumentException(roomHistoryFailed);
+            }
+            PageRequest page = PageRequest.of(0, limit, Sort.Direction.DESC, issueDateEpochNameInTable, userIdNameInTable);
+            if (beforeEpoch != null && beforeId == null) {
+                throw new IllegalArgumentException(roomHistoryFailed);
+            }
+            if (beforeId == null) {
+                return messageNormalizer.resolveNicknames(messageRepository.findByRoomId(roomId, page));
+            }
+            if (beforeEpoch == null) {
+                Message before = messageRepository.findById(beforeId).filter(message -> roomId.equals(message.getRoomId())).orElseThrow(() -> new IllegalArgumentException(roomHistoryFailed));
+                beforeEpoch = before.getIssueDateEpoch();
+            }
+            return messageNormalizer.resolveNicknames(messageRepository.findByRoomIdBefore(roomId, beforeEpoch, beforeId, page));
+        } catch (RuntimeException e) {
+            logger.error(roomHistoryFailed);
+            throw new IllegalArgumentException(roomHistoryFailed);
+        }
+    }
+
     /**
      * find all the main chat room messages in the db from specific time till now
      *
@@ -147,11 +301,49 @@ public class MessageService {
      */
     public List<Message> getMainRoomMessagesByTime(long time) {
         if(time > 0){
-            return messageRepository.findByRoomIdAndIssueDateEpochBetween(mainRoomId, time, getLocalDateTimeNow().toEpochSecond(ZoneOffset.of(zoneOffsetId)));
+            return messageNormalizer.resolveNicknames(messageRepository.findByRoomIdAndIssueDateEpochBetween(mainRoomId, time, getLocalDateTimeNow().toEpochSecond(ZoneOffset.of(zoneOffsetId))));
         }
         else{
-            return messageRepository.findByRoomId(mainRoomId);
+            return messageNormalizer.resolveNicknames(messageRepository.findByRoomId(mainRoomId));
+        }
+    }
+
+    /**
+     * streams the room messages from the db to the consumer one row at a time, every row is detached after
+     * it was consumed so the memory stays constant for any room size
+     *
+     * @param roomId   - the room id
+     * @param time     - the time in epoch seconds to stream from, 0 for the whole room
+     * @param consumer - gets every message of the room sorted by ASC id
+     */
+    @Transactional(readOnly = true)
+    public void streamRoomMessages(String roomId, long time, Consumer<Message> consumer) {
+        logger.info(streamingRoomMessages(roomId));
+        TypedQuery<Message> query = time > 0
+                ? entityManager.createQuery(streamRoomMessagesByTimeQuery, Message.class)
+                        .setParameter("from", time)
+                        .setParameter("to", getLocalDateTimeNow().toEpochSecond(ZoneOffset.of(zoneOffsetId)))
+                : entityManager.createQuery(streamRoomMessagesQuery, Message.class);
+        query.setParameter("roomId", roomId)
+                .setHint(HINT_FETCH_SIZE, streamFetchSize())
+                .setHint(HINT_READONLY, true);
+        try (Stream<Message> messages = query.getResultStream()) {
+            messages.forEach(message -> {
+                consumer.accept(messageNormalizer.resolveNicknames(message));
+                entityManager.detach(message);
+            });
+        }
+    }
+
+    /**
+     * MySQL Connector/J streams the result set row by row only with a fetch size of Integer.MIN_VALUE, which the
+     * other drivers reject, they stream with a positive fetch size
+     */
+    private int streamFetchSize() {
+        if (streamingFetchSize == null) {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            streamingFetchSize = mySqlDatabase.equalsIgnoreCase(database) ? Integer.MIN_VALUE : fetchSize;
         }
+        return streamingFetchSize;
     }
-    //invalidate cache in File FOR TESTS!!!!!!!!!!!!!!!!!!!!!!!!!!!1
-}
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+package chatApp.service;
+
+import chatApp.entities.User;
+import chatApp.repository.UserRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * In memory set of the muted users, keyed by user id and by nickname, so the chat send path checks the mute flag
+ * without a db query. Muted users are rare, so every change copies the small snapshot and the readers only do a
+ * volatile read and a hash lookup.
+ * Changes saved on this node are applied right away by the User entity listener, changes saved on other nodes
+ * are picked up by a periodic resync of the muted users from the db.
+ */
+@Component
+public class MuteRegistry {
+
+    private static final Logger logger = LogManager.getLogger(MuteRegistry.class.getName());
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${chat.mute.resync-ms:30000}")
+    private long resyncMs;
+
+    private volatile MutedUsers muted = new MutedUsers(Collections.emptyMap());
+    private final AtomicLong version = new AtomicLong();
+    private ScheduledExecutorService resyncer;
+
+    /**
+     * loads the muted users once the application started and schedules the resync
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        resync();
+        if (resyncMs > 0 && resyncer == null) {
+            resyncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mute-registry-resync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            resyncer.scheduleWithFixedDelay(this::resync, resyncMs, resyncMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (resyncer != null) {
+            resyncer.shutdownNow();
+        }
+    }
+
+    /**
+     * @param userId - the user id
+     * @return true when the user is muted
+     */
+    public boolean isMuted(Long userId) {
+        return userId != null && muted.nicknamesById.containsKey(userId);
+    }
+
+    /**
+     * @param nickname - the user nickname
+     * @return true when the user is muted
+     */
+    public boolean isMuted(String nickname) {
+        return nickname != null && muted.nicknames.contains(nickname);
+    }
+
+    /**
+     * applies the mute flag and nickname of the saved user
+     *
+     * @param user - the saved user
+     */
+    public synchronized void update(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        boolean wasMuted = muted.nicknamesById.containsKey(user.getId());
+        if (!user.isMute() && !wasMuted) {
+            return;
+        }
+        Map<Long, String> nicknamesById = new HashMap<>(muted.nicknamesById);
+        if (user.isMute()) {
+            nicknamesById.put(user.getId(), user.getNickname());
+        } else {
+            nicknamesById.remove(user.getId());
+        }
+        swap(nicknamesById);
+    }
+
+    /**
+     * forgets a deleted user
+     *
+     * @param userId - the deleted user id
+     */
+    public synchronized void remove(Long userId) {
+        if (userId == null || !muted.nicknamesById.containsKey(userId)) {
+            return;
+        }
+        Map<Long, String> nicknamesById = new HashMap<>(muted.nicknamesById);
+        nicknamesById.remove(userId);
+        swap(nicknamesById);
+    }
+
+    /**
+     * replaces the registry by the muted users in the db, the result is dropped when a local change
+     * happened while it was loaded and the next resync loads it again
+     */
+    public void resync() {
+        long loadedVersion = version.get();
+        try {
+            List<User> mutedUsers = userRepository.findByIsMuteTrue();
+            Map<Long, String> nicknamesById = new HashMap<>();
+            mutedUsers.forEach(user -> nicknamesById.put(user.getId(), user.getNickname()));
+            synchronized (this) {
+                if (version.get() != loadedVersion) {
+                    logger.debug(muteResyncSkipped);
+                    return;
+                }
+                muted = new MutedUsers(nicknamesById);
+            }
+            logger.debug(muteRegistryLoaded(nicknamesById.size()));
+        } catch (RuntimeException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    public int size() {
+        return muted.nicknamesById.size();
+    }
+
+    private void swap(Map<Long, String> nicknamesById) {
+        muted = new MutedUsers(nicknamesById);
+        version.incrementAndGet();
+    }
+
+    private static class MutedUsers {
+        private final Map<Long, String> nicknamesById;
+        private final Set<String> nicknames;
+
+        private MutedUsers(Map<Long, String> nicknamesById) {
+            this.nicknamesById = Collections.unmodifiableMap(nicknamesById);
+            this.nicknames = Collections.unmodifiableSet(new HashSet<>(nicknamesById.values()));
+        }
+    }
+}
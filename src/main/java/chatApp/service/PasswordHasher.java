@@ -0,0 +1,136 @@
+package chatApp.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static chatApp.utilities.messages.ExceptionMessages.*;
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Shared BCrypt hashing of the passwords with a configurable cost. The hashes run on a dedicated pool of threads
+ * with a bounded queue, so a burst of logins takes at most threads cores and the requests over the queue fail fast
+ * instead of holding the request threads every other endpoint needs.
+ */
+@Service
+public class PasswordHasher {
+
+    private static final Logger logger = LogManager.getLogger(PasswordHasher.class.getName());
+    private static final Pattern bcryptCost = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    @Value("${chat.password.bcrypt.strength:10}")
+    private int strength;
+    @Value("${chat.password.hash.threads:0}")
+    private int threads;
+    @Value("${chat.password.hash.queue-capacity:64}")
+    private int queueCapacity;
+    @Value("${chat.password.hash.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor hashers;
+
+    private final AtomicLong hashes = new AtomicLong();
+    private final AtomicLong rejectedHashes = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        encoder = new BCryptPasswordEncoder(strength);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        hashers = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        hashers.allowCoreThreadTimeOut(true);
+        logger.info(passwordHasherConfigured(strength, poolSize, queueCapacity));
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        hashers.shutdown();
+        hashers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param rawPassword - the password as typed
+     * @return the BCrypt hash of the password with the configured cost
+     * @throws IllegalArgumentException when the hashing queue is full or the hash took longer than the timeout
+     */
+    public String hash(String rawPassword) {
+        return run(() -> encoder.encode(rawPassword));
+    }
+
+    /**
+     * @param rawPassword     - the password as typed
+     * @param encodedPassword - the stored hash
+     * @return true when the password matches the hash, whatever the cost of the hash
+     * @throws IllegalArgumentException when the hashing queue is full or the check took longer than the timeout
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * @param encodedPassword - the stored hash
+     * @return true when the hash was made with another cost than the configured one and should be replaced at login
+     */
+    public boolean needsRehash(String encodedPassword) {
+        Matcher matcher = encodedPassword == null ? null : bcryptCost.matcher(encodedPassword);
+        return matcher == null || !matcher.find() || Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public long getHashes() {
+        return hashes.get();
+    }
+
+    public long getRejectedHashes() {
+        return rejectedHashes.get();
+    }
+
+    public int getQueueDepth() {
+        return hashers.getQueue().size();
+    }
+
+    private <T> T run(Callable<T> hashing) {
+        Future<T> result;
+        try {
+            result = hashers.submit(hashing);
+        } catch (RejectedExecutionException e) {
+            rejectedHashes.incrementAndGet();
+            logger.warn(passwordHashingBusyMessage);
+            throw new IllegalArgumentException(passwordHashingBusyMessage);
+        }
+        try {
+            T value = result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            hashes.incrementAndGet();
+            return value;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new IllegalArgumentException(passwordHashingBusyMessage);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejectedHashes.incrementAndGet();
+            logger.warn(passwordHashingBusyMessage);
+            throw new IllegalArgumentException(passwordHashingBusyMessage);
+        } catch (ExecutionException e) {
+            throw new IllegalArgumentException(e.getCause().getMessage());
+        }
+    }
+}
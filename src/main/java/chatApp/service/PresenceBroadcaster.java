@@ -0,0 +1,176 @@
+package chatApp.service;
+
+import chatApp.customEntities.PresenceDelta;
+import chatApp.customEntities.PresenceEvent;
+import chatApp.customEntities.PresenceEventType;
+import chatApp.customEntities.UserDTO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Publishes the changes of the presence registry to /topic/presence, so the clients keep their user list without
+ * polling /chat/getusers. The changes of every user are coalesced for chat.presence.coalesce-ms: only the user as it
+ * was before the window and as it is at its end are kept, so an AWAY/ONLINE flap or a guest that joined and left
+ * within the window sends nothing, and all the changes of the window go out in one frame.
+ * Every delta carries the etag of the list it applies to and of the list it gives, a client whose list has
+ * another etag than the base one missed a delta and fetches the whole list again
+ */
+@Component
+public class PresenceBroadcaster {
+
+    public static final String presenceDestination = "/topic/presence";
+    private static final Logger logger = LogManager.getLogger(PresenceBroadcaster.class.getName());
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Value("${chat.presence.coalesce-ms:1000}")
+    private long coalesceMs;
+
+    private final Map<Long, PendingChange> pendingChanges = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedChanges = new AtomicLong();
+    private final AtomicLong sentEvents = new AtomicLong();
+    private ScheduledExecutorService publisher;
+    private volatile String publishedEtag;
+
+    /**
+     * starts publishing the coalesced changes once the application started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (publisher != null) {
+            return;
+        }
+        synchronized (presenceRegistry) {
+            pendingChanges.clear();
+            publishedEtag = presenceRegistry.getEtag();
+        }
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleWithFixedDelay(this::publish, coalesceMs, coalesceMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (publisher != null) {
+            publisher.shutdownNow();
+        }
+    }
+
+    /**
+     * records a change of the registry, called by the registry on every change of a user as shown in the list
+     *
+     * @param userId - the user id
+     * @param before - the user before the change, null when the user wasn't present
+     * @param after  - the user after the change, null when the user left
+     */
+    public void onChange(Long userId, UserDTO before, UserDTO after) {
+        pendingChanges.merge(userId, new PendingChange(before, after), (pending, change) -> {
+            coalescedChanges.incrementAndGet();
+            return new PendingChange(pending.before, change.after);
+        });
+    }
+
+    /**
+     * sends the net changes of the window in one delta, nothing when they cancelled out. The changes are drained and
+     * the etag read while the registry is locked, so the etag is the one of the list with exactly these changes
+     */
+    void publish() {
+        try {
+            if (pendingChanges.isEmpty()) {
+                return;
+            }
+            List<PresenceEvent> events = new ArrayList<>();
+            String baseEtag;
+            String etag;
+            synchronized (presenceRegistry) {
+                for (Long userId : pendingChanges.keySet()) {
+                    PendingChange change = pendingChanges.remove(userId);
+                    PresenceEvent event = change == null ? null : change.toEvent(userId);
+                    if (event != null) {
+                        events.add(event);
+                    }
+                }
+                etag = presenceRegistry.getEtag();
+                baseEtag = publishedEtag;
+                publishedEtag = etag;
+            }
+            if (events.isEmpty()) {
+                return;
+            }
+            messagingTemplate.convertAndSend(presenceDestination, new PresenceDelta(baseEtag, etag, events));
+            sentEvents.addAndGet(events.size());
+            logger.debug(presenceDeltaSent(events.size()));
+        } catch (RuntimeException e) {
+            logger.error(presenceDeltaFailed + e.getMessage());
+        }
+    }
+
+    public int getPendingChanges() {
+        return pendingChanges.size();
+    }
+
+    public long getCoalescedChanges() {
+        return coalescedChanges.get();
+    }
+
+    public long getSentEvents() {
+        return sentEvents.get();
+    }
+
+    /**
+     * a user as it was before the window and as it is now
+     */
+    private static class PendingChange {
+        private final UserDTO before;
+        private final UserDTO after;
+
+        private PendingChange(UserDTO before, UserDTO after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        private PresenceEvent toEvent(Long userId) {
+            if (before == null && after == null || Objects.equals(before, after)) {
+                return null;
+            }
+            if (before == null) {
+                return new PresenceEvent(PresenceEventType.JOINED, userId, after);
+            }
+            if (after == null) {
+                return new PresenceEvent(PresenceEventType.LEFT, userId, null);
+            }
+            if (before.getUserStatus() != after.getUserStatus()) {
+                return new PresenceEvent(PresenceEventType.STATUS_CHANGED, userId, after);
+            }
+            if (before.isMute() != after.isMute()) {
+                return new PresenceEvent(PresenceEventType.MUTED, userId, after);
+            }
+            return new PresenceEvent(PresenceEventType.UPDATED, userId, after);
+        }
+    }
+}
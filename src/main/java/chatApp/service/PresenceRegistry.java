@@ -0,0 +1,212 @@
+package chatApp.service;
+
+import chatApp.customEntities.PresentUsers;
+import chatApp.customEntities.UserDTO;
+import chatApp.entities.User;
+import chatApp.entities.UserStatuses;
+import chatApp.repository.UserRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * In memory list of the users that aren't offline, kept in line with every committed save or delete of a user by
+ * PresenceListener, and with the changes of the other nodes by a periodic resync from the db.
+ * An update is one map write and bumps the version only when the user as shown in the list changed, the sorted
+ * snapshot is rebuilt on the next read after a version bump. Its etag is a digest of the list content, so the same
+ * list has the same etag on every node and after a restart, and an unchanged list is answered with 304.
+ * Every change is handed to the presence broadcaster, the broadcaster is looked up lazily as it reads the etag here
+ */
+@Component
+public class PresenceRegistry {
+
+    private static final Logger logger = LogManager.getLogger(PresenceRegistry.class.getName());
+    private static final Comparator<UserDTO> byTypeThenId = Comparator.comparing(UserDTO::getUserType, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(UserDTO::getId);
+    private static final int etagBytes = 12;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ObjectProvider<PresenceBroadcaster> presenceBroadcaster;
+
+    @Value("${chat.presence.resync-ms:30000}")
+    private long resyncMs;
+
+    private final Map<Long, UserDTO> presentUsers = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(0, new PresentUsers(etagOf(Collections.emptyList()), Collections.emptyList()));
+    private ScheduledExecutorService resyncer;
+
+    /**
+     * loads the users that aren't offline once the application started and schedules the resync
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        resync();
+        logger.info(presenceLoaded(presentUsers.size()));
+        if (resyncMs > 0 && resyncer == null) {
+            resyncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "presence-registry-resync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            resyncer.scheduleWithFixedDelay(this::resync, resyncMs, resyncMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (resyncer != null) {
+            resyncer.shutdownNow();
+        }
+    }
+
+    /**
+     * replaces the registry by the users that aren't offline in the db, the changes are handed to the broadcaster
+     * like local ones. The result is dropped when a local change happened while it was loaded, the next resync
+     * loads it again
+     */
+    public void resync() {
+        long loadedVersion = version.get();
+        try {
+            List<User> users = userRepository.findByUserStatusNot(UserStatuses.OFFLINE);
+            synchronized (this) {
+                if (version.get() != loadedVersion) {
+                    logger.debug(presenceResyncSkipped);
+                    return;
+                }
+                Set<Long> loadedIds = new HashSet<>();
+                for (User user : users) {
+                    loadedIds.add(user.getId());
+                    update(user);
+                }
+                for (Long userId : new ArrayList<>(presentUsers.keySet())) {
+                    if (!loadedIds.contains(userId)) {
+                        remove(userId);
+                    }
+                }
+            }
+            logger.debug(presenceLoaded(users.size()));
+        } catch (RuntimeException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    /**
+     * adds, updates or removes a saved user by its status
+     *
+     * @param user - the saved user
+     */
+    public synchronized void update(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        if (user.getUserStatus() == UserStatuses.OFFLINE) {
+            remove(user.getId());
+            return;
+        }
+        UserDTO userDTO = UserDTO.userToUserDTO(user);
+        UserDTO previous = presentUsers.put(user.getId(), userDTO);
+        if (!userDTO.equals(previous)) {
+            version.incrementAndGet();
+            changed(user.getId(), previous, userDTO);
+        }
+    }
+
+    /**
+     * removes a deleted user
+     *
+     * @param userId - the deleted user id
+     */
+    public synchronized void remove(Long userId) {
+        UserDTO previous = presentUsers.remove(userId);
+        if (previous != null) {
+            version.incrementAndGet();
+            changed(userId, previous, null);
+        }
+    }
+
+    /**
+     * @return the etag of the current list
+     */
+    public String getEtag() {
+        return getSnapshot().getEtag();
+    }
+
+    private void changed(Long userId, UserDTO before, UserDTO after) {
+        PresenceBroadcaster broadcaster = presenceBroadcaster == null ? null : presenceBroadcaster.getIfAvailable();
+        if (broadcaster != null) {
+            broadcaster.onChange(userId, before, after);
+        }
+    }
+
+    /**
+     * @return the users that aren't offline sorted by type [ADMIN, REGISTERED, GUEST], rebuilt only after a change
+     */
+    public PresentUsers getSnapshot() {
+        Snapshot current = snapshot;
+        if (current.version == version.get()) {
+            return current.presentUsers;
+        }
+        synchronized (this) {
+            current = snapshot;
+            long latest = version.get();
+            if (current.version != latest) {
+                List<UserDTO> users = new ArrayList<>(presentUsers.values());
+                users.sort(byTypeThenId);
+                current = new Snapshot(latest, new PresentUsers(etagOf(users), Collections.unmodifiableList(users)));
+                snapshot = current;
+            }
+            return current.presentUsers;
+        }
+    }
+
+    public int size() {
+        return presentUsers.size();
+    }
+
+    /**
+     * a digest of every shown field of the sorted users, the same on every node for the same list
+     */
+    private static String etagOf(List<UserDTO> users) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            users.forEach(user -> digest.update((user.toString() + "\n").getBytes(StandardCharsets.UTF_8)));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest.digest(), etagBytes)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * the present users as of a registry version
+     */
+    private static class Snapshot {
+        private final long version;
+        private final PresentUsers presentUsers;
+
+        private Snapshot(long version, PresentUsers presentUsers) {
+            this.version = version;
+            this.presentUsers = presentUsers;
+        }
+    }
+}
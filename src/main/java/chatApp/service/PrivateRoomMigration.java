@@ -0,0 +1,77 @@
+package chatApp.service;
+
+import chatApp.entities.Message;
+import chatApp.repository.MessageRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static chatApp.utilities.Utility.*;
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Merges private rooms that were stored under the reversed user ids order into their canonical room id
+ */
+@Component
+public class PrivateRoomMigration {
+
+    private static final Logger logger = LogManager.getLogger(PrivateRoomMigration.class.getName());
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Value("${chat.private-room.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (migrateOnStartup) {
+            mergeReversedRooms();
+        }
+    }
+
+    /**
+     * moves the messages of every non canonical room id to the canonical one, when both rooms exist
+     * the opening message of the reversed room is deleted so the merged room keeps one
+     *
+     * @return the number of merged rooms
+     */
+    public int mergeReversedRooms() {
+        List<String> roomIds = messageRepository.findDistinctRoomIds(mainRoomId);
+        Set<String> existingRoomIds = new HashSet<>(roomIds);
+        int mergedRooms = 0;
+        for (String roomId : roomIds) {
+            String canonicalRoomId = canonicalRoomId(roomId);
+            if (canonicalRoomId.equals(roomId)) {
+                continue;
+            }
+            logger.info(mergePrivateRoomMessage(roomId, canonicalRoomId));
+            if (existingRoomIds.contains(canonicalRoomId)) {
+                deleteOpeningMessage(roomId);
+            }
+            messageRepository.updateRoomId(roomId, canonicalRoomId);
+            existingRoomIds.add(canonicalRoomId);
+            mergedRooms++;
+        }
+        return mergedRooms;
+    }
+
+    /**
+     * the opening message is written when the room is opened, so it is the first row of the room, a user message
+     * with the same text is never deleted
+     */
+    private void deleteOpeningMessage(String roomId) {
+        Message firstMessage = messageRepository.findFirstByRoomIdOrderByIdAsc(roomId);
+        if (firstMessage != null && firstPrivateMessage.equals(firstMessage.getContent())) {
+            messageRepository.delete(firstMessage);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package chatApp.service;
+
+import chatApp.entities.Message;
+import chatApp.repository.MessageRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static chatApp.utilities.Utility.*;
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Keeps a bounded ring buffer of the newest messages per room, so history page loads are served from memory
+ */
+@Component
+public class RecentMessagesCache {
+
+    private static final Logger logger = LogManager.getLogger(RecentMessagesCache.class.getName());
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Value("${chat.history.cache.capacity:200}")
+    private int capacity;
+
+    private final Map<String, RoomBuffer> rooms = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * loads the newest main chat room messages once the application started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        warmUp(mainRoomId);
+    }
+
+    /**
+     * loads the newest messages of the room from the db into a new buffer,
+     * messages added while loading are kept and merged after the loaded ones
+     *
+     * @param roomId - the room id
+     */
+    public void warmUp(String roomId) {
+        logger.info(warmUpRoomCache(roomId));
+        RoomBuffer buffer = new RoomBuffer(capacity);
+        rooms.put(roomId, buffer);
+        try {
+            List<Message> newest = messageRepository.findByRoomId(roomId, PageRequest.of(0, capacity, Sort.Direction.DESC, userIdNameInTable));
+            buffer.load(newest, newest.size() < capacity);
+        } catch (RuntimeException e) {
+            logger.error(e.getMessage());
+            rooms.remove(roomId, buffer);
+        }
+    }
+
+    /**
+     * reloads every cached room, used when old messages were changed in the db
+     */
+    public void reload() {
+        rooms.keySet().forEach(this::warmUp);
+    }
+
+    /**
+     * adds a new message to its room buffer, rooms that were never loaded are ignored
+     *
+     * @param message - the saved message
+     */
+    public void add(Message message) {
+        RoomBuffer buffer = rooms.get(message.getRoomId());
+        if (buffer != null) {
+            buffer.add(message);
+        }
+    }
+
+    /**
+     * gets the newest messages of the room from the buffer
+     *
+     * @param roomId - the room id
+     * @param size   - the number of requested messages
+     * @return the newest messages sorted by DESC id, empty when the buffer can't answer the request
+     */
+    public Optional<List<Message>> getNewest(String roomId, int size) {
+        RoomBuffer buffer = rooms.get(roomId);
+        List<Message> newest = buffer == null || size < 1 ? null : buffer.getNewest(size);
+        if (newest == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(newest);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static class RoomBuffer {
+        private final Message[] ring;
+        private int head;
+        private int count;
+        private boolean complete;
+        private List<Message> addedWhileLoading = new ArrayList<>();
+
+        private RoomBuffer(int capacity) {
+            this.ring = new Message[capacity];
+        }
+
+        private synchronized void load(List<Message> newestFirst, boolean wholeRoom) {
+            complete = wholeRoom;
+            Set<Long> loadedIds = new HashSet<>();
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                loadedIds.add(newestFirst.get(i).getId());
+                append(newestFirst.get(i));
+            }
+            addedWhileLoading.stream().filter(message -> message.getId() == null || !loadedIds.contains(message.getId())).forEach(this::append);
+            addedWhileLoading = null;
+        }
+
+        private synchronized void add(Message message) {
+            if (addedWhileLoading != null) {
+                addedWhileLoading.add(message);
+                return;
+            }
+            append(message);
+        }
+
+        private void append(Message message) {
+            if (count == ring.length) {
+                complete = false;
+            } else {
+                count++;
+            }
+            ring[head] = message;
+            head = (head + 1) % ring.length;
+        }
+
+        private synchronized List<Message> getNewest(int size) {
+            if (addedWhileLoading != null || (size > count && !complete)) {
+                return null;
+            }
+            int returned = Math.min(size, count);
+            List<Message> newest = new ArrayList<>(returned);
+            for (int i = 1; i <= returned; i++) {
+                newest.add(ring[(head - i + ring.length) % ring.length]);
+            }
+            return newest;
+        }
+    }
+}
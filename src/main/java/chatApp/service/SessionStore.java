@@ -0,0 +1,321 @@
+package chatApp.service;
+
+import chatApp.customEntities.ChatPrincipal;
+import chatApp.entities.User;
+import chatApp.entities.UserType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static chatApp.utilities.Utility.*;
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Thread safe store of the logged-in sessions, indexed both by token and by email.
+ * Every session also keeps the user's id, nickname, type and mute flag, so permission checks and chat senders don't need the db.
+ * A session expires a fixed time after login (ttl) or after it was not used for a while (idle),
+ * expired sessions are evicted by a hashed timer wheel so the store never grows past the active users.
+ */
+@Component
+public class SessionStore {
+
+    private static final Logger logger = LogManager.getLogger(SessionStore.class.getName());
+    private static final int wheelSize = 512;
+
+    @Value("${chat.session.ttl-minutes:1440}")
+    private long ttlMinutes;
+    @Value("${chat.session.idle-minutes:120}")
+    private long idleMinutes;
+    @Value("${chat.session.tick-ms:1000}")
+    private long tickMs;
+
+    private final Map<String, Session> sessionsByToken = new ConcurrentHashMap<>();
+    private final Map<String, Session> sessionsByEmail = new ConcurrentHashMap<>();
+    private final Queue<Session>[] wheel = newWheel();
+    private volatile long currentTick;
+    private ScheduledExecutorService ticker;
+
+    private final AtomicLong openedSessions = new AtomicLong();
+    private final AtomicLong replacedSessions = new AtomicLong();
+    private final AtomicLong closedSessions = new AtomicLong();
+    private final AtomicLong expiredSessions = new AtomicLong();
+    private final AtomicLong idleSessions = new AtomicLong();
+
+    /**
+     * starts the timer wheel ticking
+     */
+    @PostConstruct
+    void start() {
+        currentTick = tickOf(System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-store-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * opens a new session for the user, the previous session of the same email is closed in the same step
+     *
+     * @param user - the logged-in user
+     * @return the new session token
+     */
+    public String open(User user) {
+        long now = System.currentTimeMillis();
+        Session session = new Session(randomString(), user.getEmail(), now, now);
+        session.copyUser(user);
+        sessionsByEmail.compute(session.email, (key, previous) -> {
+            if (previous != null) {
+                sessionsByToken.remove(previous.token, previous);
+                replacedSessions.incrementAndGet();
+            }
+            sessionsByToken.put(session.token, session);
+            return session;
+        });
+        openedSessions.incrementAndGet();
+        schedule(session);
+        return session.token;
+    }
+
+    /**
+     * gets the email of a live session and marks the session as used
+     *
+     * @param token - the session token
+     * @return the session email, null when the token is unknown, replaced or expired
+     */
+    public String getEmail(String token) {
+        Session session = live(token);
+        return session == null ? null : session.email;
+    }
+
+    /**
+     * gets the user type of a live session and marks the session as used
+     *
+     * @param token - the session token
+     * @return the user type, null when the token is unknown, replaced or expired
+     */
+    public UserType getType(String token) {
+        Session session = live(token);
+        return session == null ? null : session.type;
+    }
+
+    /**
+     * gets the user of a live session as a chat principal and marks the session as used
+     *
+     * @param token - the session token
+     * @return the principal, null when the token is unknown, replaced or expired
+     */
+    public ChatPrincipal getPrincipal(String token) {
+        Session session = live(token);
+        return session == null ? null : new ChatPrincipal(session.token, session.userId, session.email, session.nickname, session.type);
+    }
+
+    /**
+     * gets the mute flag of the email session
+     *
+     * @param email - the user's email
+     * @return the mute flag, null when the email has no live session
+     */
+    public Boolean isMute(String email) {
+        Session session = email == null ? null : sessionsByEmail.get(email);
+        return session == null ? null : session.mute;
+    }
+
+    /**
+     * copies the type and mute flag of the saved user into its session,
+     * when the email was changed the session moves to the new email and keeps its token
+     *
+     * @param email - the email the session was opened with
+     * @param user  - the saved user
+     */
+    public void refresh(String email, User user) {
+        Session current = email == null ? null : sessionsByEmail.get(email);
+        if (current == null) {
+            return;
+        }
+        if (!email.equals(user.getEmail())) {
+            Session moved = new Session(current.token, user.getEmail(), current.created, current.lastAccess);
+            if (!sessionsByToken.replace(current.token, current, moved)) {
+                return;
+            }
+            sessionsByEmail.remove(email, current);
+            Session replaced = sessionsByEmail.put(moved.email, moved);
+            if (replaced != null) {
+                sessionsByToken.remove(replaced.token, replaced);
+            }
+            schedule(moved);
+            current = moved;
+        }
+        current.copyUser(user);
+    }
+
+    /**
+     * gets the token of the live session of the email
+     *
+     * @param email - the user's email
+     * @return the session token, null when the email has no live session
+     */
+    public String getToken(String email) {
+        Session session = email == null ? null : sessionsByEmail.get(email);
+        return session == null || session.deadline() <= System.currentTimeMillis() ? null : session.token;
+    }
+
+    /**
+     * closes the session of the token
+     *
+     * @param token - the session token
+     * @return the email of the closed session, null when there was no such session
+     */
+    public String close(String token) {
+        Session session = token == null ? null : sessionsByToken.remove(token);
+        if (session == null) {
+            return null;
+        }
+        sessionsByEmail.remove(session.email, session);
+        closedSessions.incrementAndGet();
+        return session.email;
+    }
+
+    public int size() {
+        return sessionsByToken.size();
+    }
+
+    public long getOpenedSessions() {
+        return openedSessions.get();
+    }
+
+    public long getReplacedSessions() {
+        return replacedSessions.get();
+    }
+
+    public long getClosedSessions() {
+        return closedSessions.get();
+    }
+
+    public long getExpiredSessions() {
+        return expiredSessions.get();
+    }
+
+    public long getIdleSessions() {
+        return idleSessions.get();
+    }
+
+    /**
+     * processes every wheel slot the clock passed since the last tick: evicts the sessions that are due,
+     * sessions that were used since they were scheduled go back to the wheel at their new deadline
+     */
+    synchronized void tick() {
+        long now = System.currentTimeMillis();
+        long nowTick = tickOf(now);
+        for (; currentTick <= nowTick; currentTick++) {
+            Queue<Session> slot = wheel[(int) (currentTick % wheelSize)];
+            for (int pending = slot.size(); pending > 0; pending--) {
+                Session session = slot.poll();
+                if (session == null) {
+                    break;
+                }
+                if (sessionsByToken.get(session.token) != session) {
+                    continue;
+                }
+                if (session.deadline() <= now) {
+                    evict(session, now);
+                } else if (tickOf(session.deadline()) <= currentTick) {
+                    slot.add(session);
+                } else {
+                    schedule(session);
+                }
+            }
+        }
+        currentTick = nowTick;
+    }
+
+    private Session live(String token) {
+        Session session = token == null ? null : sessionsByToken.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.deadline() <= now) {
+            evict(session, now);
+            return null;
+        }
+        session.lastAccess = now;
+        return session;
+    }
+
+    private void schedule(Session session) {
+        long tick = Math.max(tickOf(session.deadline()), currentTick + 1);
+        wheel[(int) (tick % wheelSize)].add(session);
+    }
+
+    private void evict(Session session, long now) {
+        if (!sessionsByToken.remove(session.token, session)) {
+            return;
+        }
+        sessionsByEmail.remove(session.email, session);
+        if (session.created + TimeUnit.MINUTES.toMillis(ttlMinutes) <= now) {
+            expiredSessions.incrementAndGet();
+        } else {
+            idleSessions.incrementAndGet();
+        }
+        logger.debug(sessionEvicted(session.email));
+    }
+
+    private long tickOf(long millis) {
+        return millis / tickMs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Queue<Session>[] newWheel() {
+        Queue<Session>[] slots = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        return slots;
+    }
+
+    private class Session {
+        private final String token;
+        private final String email;
+        private final long created;
+        private volatile long lastAccess;
+        private volatile Long userId;
+        private volatile String nickname;
+        private volatile UserType type;
+        private volatile boolean mute;
+
+        private Session(String token, String email, long created, long lastAccess) {
+            this.token = token;
+            this.email = email;
+            this.created = created;
+            this.lastAccess = lastAccess;
+        }
+
+        private void copyUser(User user) {
+            userId = user.getId();
+            nickname = user.getNickname();
+            type = user.getType();
+            mute = user.isMute();
+        }
+
+        private long deadline() {
+            return Math.min(created + TimeUnit.MINUTES.toMillis(ttlMinutes), lastAccess + TimeUnit.MINUTES.toMillis(idleMinutes));
+        }
+    }
+}
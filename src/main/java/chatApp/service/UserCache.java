@@ -0,0 +1,158 @@
+package chatApp.service;
+
+import chatApp.entities.User;
+import chatApp.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache of the user ids, nicknames and emails, so messages that carry only the user ids get the
+ * current nickname of their users at read time. It holds lookups only, the flows that change or authenticate a
+ * user load it from the db. A miss is loaded from the db, the entries are kept in line with every committed save
+ * or delete by UserCacheListener, and an entry older than ttl-ms is loaded again so the users saved by the other
+ * nodes are seen too (0 keeps the entries)
+ */
+@Component
+public class UserCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${chat.user.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    private final Map<Long, CachedUser> usersById = new ConcurrentHashMap<>();
+    private final Map<String, Long> idsByNickname = new ConcurrentHashMap<>();
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+
+    /**
+     * @param userId - the user id
+     * @return the current nickname of the user, null for an unknown user
+     */
+    public String getNickname(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        CachedUser cachedUser = cached(userId);
+        if (cachedUser != null) {
+            return cachedUser.nickname;
+        }
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            remove(userId);
+            return null;
+        }
+        update(user);
+        return user.getNickname();
+    }
+
+    /**
+     * @param nickname - the user nickname
+     * @return the id of the user with that nickname, null for an unknown nickname
+     */
+    public Long getUserId(String nickname) {
+        if (nickname == null) {
+            return null;
+        }
+        Long userId = idsByNickname.get(nickname);
+        CachedUser cachedUser = cached(userId);
+        if (cachedUser != null && nickname.equals(cachedUser.nickname)) {
+            return userId;
+        }
+        return loaded(userRepository.findByNickname(nickname));
+    }
+
+    /**
+     * @param email - the user email
+     * @return the id of the user with that email, null for an unknown email
+     */
+    public Long getUserIdByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        Long userId = idsByEmail.get(email);
+        CachedUser cachedUser = cached(userId);
+        if (cachedUser != null && email.equals(cachedUser.email)) {
+            return userId;
+        }
+        return loaded(userRepository.findByEmail(email));
+    }
+
+    /**
+     * updates the entries of a saved user, the previous email and nickname of the user stop resolving
+     *
+     * @param user - the saved user
+     */
+    public synchronized void update(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        CachedUser previous = usersById.put(user.getId(), new CachedUser(user.getNickname(), user.getEmail()));
+        if (previous != null) {
+            unindex(previous, user.getId());
+        }
+        if (user.getNickname() != null) {
+            idsByNickname.put(user.getNickname(), user.getId());
+        }
+        if (user.getEmail() != null) {
+            idsByEmail.put(user.getEmail(), user.getId());
+        }
+    }
+
+    /**
+     * removes the entries of a deleted user
+     *
+     * @param userId - the deleted user id
+     */
+    public synchronized void remove(Long userId) {
+        CachedUser previous = usersById.remove(userId);
+        if (previous != null) {
+            unindex(previous, userId);
+        }
+    }
+
+    public int size() {
+        return usersById.size();
+    }
+
+    private Long loaded(User user) {
+        if (user == null) {
+            return null;
+        }
+        update(user);
+        return user.getId();
+    }
+
+    private CachedUser cached(Long userId) {
+        CachedUser cachedUser = userId == null ? null : usersById.get(userId);
+        if (cachedUser == null || (ttlMs > 0 && System.nanoTime() - cachedUser.loadedAt > TimeUnit.MILLISECONDS.toNanos(ttlMs))) {
+            return null;
+        }
+        return cachedUser;
+    }
+
+    private void unindex(CachedUser user, Long userId) {
+        if (user.nickname != null) {
+            idsByNickname.remove(user.nickname, userId);
+        }
+        if (user.email != null) {
+            idsByEmail.remove(user.email, userId);
+        }
+    }
+
+    private static class CachedUser {
+        private final String nickname;
+        private final String email;
+        private final long loadedAt = System.nanoTime();
+
+        private CachedUser(String nickname, String email) {
+            this.nickname = nickname;
+            this.email = email;
+        }
+    }
+}
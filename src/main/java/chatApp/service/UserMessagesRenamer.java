@@ -0,0 +1,226 @@
+package chatApp.service;
+
+import chatApp.repository.MessageRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Renames the sender and receiver of the old messages of a user after an email or nickname change, off the request
+ * thread. The messages up to the newest id at the start are updated by bulk updates over id windows of chunk-size
+ * ids, one transaction per window, then the write-behind queue is flushed and the messages added since are caught up
+ * until a pass finds none, so the messages sent during the rename under the old name are renamed too.
+ * Renames run one at a time in the order they were asked, a rename of a new name waits for the rename that gave it.
+ * The progress and the outcome of the last rename of every user is kept as its status, readable through the API
+ */
+@Component
+public class UserMessagesRenamer {
+
+    private static final Logger logger = LogManager.getLogger(UserMessagesRenamer.class.getName());
+    private static final int maxCatchUpPasses = 5;
+
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private MessageBatchWriter messageBatchWriter;
+    @Autowired
+    private RecentMessagesCache recentMessagesCache;
+
+    @Value("${chat.user.rename.chunk-size:1000}")
+    private int chunkSize;
+
+    private ExecutorService renamer;
+    private final Map<Long, RenameProgress> progressByUser = new ConcurrentHashMap<>();
+    private volatile RenameProgress progress;
+
+    @PostConstruct
+    void start() {
+        renamer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-messages-renamer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        renamer.shutdown();
+        renamer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * queues the rename of the messages sent by or to the old name
+     *
+     * @param userId  - the id of the renamed user
+     * @param oldName - the previous email or nickname
+     * @param newName - the new email or nickname
+     * @return the status of the queued rename
+     */
+    public RenameProgress rename(Long userId, String oldName, String newName) {
+        RenameProgress queued = new RenameProgress(oldName, newName);
+        if (userId != null) {
+            progressByUser.put(userId, queued);
+        }
+        renamer.execute(() -> {
+            try {
+                queued.result.complete(renameMessages(queued));
+            } catch (RuntimeException e) {
+                queued.result.completeExceptionally(e);
+            }
+        });
+        return queued;
+    }
+
+    /**
+     * runs the task on the renamer thread and waits for it, so it sees every message rename queued before it done
+     * and none queued after it started
+     *
+     * @param task - the task to run between two renames
+     * @return the result of the task
+     */
+    public <T> T runBetweenRenames(Supplier<T> task) throws InterruptedException {
+        try {
+            return renamer.submit(task::get).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the progress of the running rename, or of the last one when none is running, null before the first
+     */
+    public RenameProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * @param userId - the id of the renamed user
+     * @return the status of the last rename of the user, null when the user was never renamed
+     */
+    public RenameProgress getProgress(Long userId) {
+        return userId == null ? null : progressByUser.get(userId);
+    }
+
+    private int renameMessages(RenameProgress current) {
+        String oldName = current.oldName;
+        String newName = current.newName;
+        logger.info(updatingNewNicknameInOldMessages);
+        long start = System.nanoTime();
+        Long maxId = messageRepository.findMaxId();
+        long lastId = maxId == null ? 0 : maxId;
+        current.lastId = lastId;
+        current.started = true;
+        progress = current;
+        try {
+            for (long fromId = 0; fromId < lastId; fromId += chunkSize) {
+                long toId = Math.min(fromId + chunkSize, lastId);
+                current.renamed += messageRepository.updateSender(oldName, newName, fromId, toId)
+                        + messageRepository.updateReceiver(oldName, newName, fromId, toId);
+                current.scannedUpToId = toId;
+                logger.debug(userMessagesRenameProgress(oldName, newName, current.getPercent(), current.renamed));
+            }
+            if (!messageBatchWriter.awaitFlushed()) {
+                logger.warn(userMessagesRenameFlushTimeout(oldName));
+            }
+            int caughtUp = 0;
+            for (int pass = 0; pass < maxCatchUpPasses; pass++) {
+                caughtUp = messageRepository.updateSender(oldName, newName, lastId, Long.MAX_VALUE)
+                        + messageRepository.updateReceiver(oldName, newName, lastId, Long.MAX_VALUE);
+                current.renamed += caughtUp;
+                if (caughtUp == 0) {
+                    break;
+                }
+            }
+            if (caughtUp > 0) {
+                logger.warn(userMessagesCatchUpCapped(oldName, newName, maxCatchUpPasses));
+            }
+            recentMessagesCache.reload();
+            logger.info(userMessagesRenamed(oldName, newName, current.renamed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            return current.renamed;
+        } catch (RuntimeException e) {
+            logger.error(userMessagesRenameFailed(oldName, newName) + e.getMessage());
+            current.error = e.getMessage();
+            throw e;
+        } finally {
+            current.done = true;
+        }
+    }
+
+    /**
+     * status of one rename: the ids scanned so far out of the newest id at its start, the renamed messages,
+     * and once done whether it failed
+     */
+    public static class RenameProgress {
+        private final String oldName;
+        private final String newName;
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+        private volatile long lastId;
+        private volatile boolean started;
+        private volatile long scannedUpToId;
+        private volatile int renamed;
+        private volatile boolean done;
+        private volatile String error;
+
+        private RenameProgress(String oldName, String newName) {
+            this.oldName = oldName;
+            this.newName = newName;
+        }
+
+        public String getOldName() {
+            return oldName;
+        }
+
+        public String getNewName() {
+            return newName;
+        }
+
+        public int getPercent() {
+            if (!started) {
+                return 0;
+            }
+            return lastId == 0 ? 100 : (int) (scannedUpToId * 100 / lastId);
+        }
+
+        public int getRenamed() {
+            return renamed;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        public boolean isFailed() {
+            return error != null;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * waits for the end of the rename
+         *
+         * @return the number of renamed messages
+         * @throws ExecutionException when the rename failed
+         */
+        public int awaitRenamed(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return result.get(timeout, unit);
+        }
+    }
+}
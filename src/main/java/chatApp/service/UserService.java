@@ -4,11 +4,10 @@ import static chatApp.utilities.messages.ExceptionMessages.*;
 import static chatApp.utilities.Utility.*;
 import static chatApp.utilities.messages.LoggerMessages.*;
 
-import chatApp.entities.Message;
+import chatApp.customEntities.PresentUsers;
 import chatApp.entities.User;
 import chatApp.entities.UserStatuses;
 import chatApp.entities.UserType;
-import chatApp.repository.MessageRepository;
 import chatApp.repository.UserRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,9 +17,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
 import java.time.LocalDate;
-import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
 
 @CrossOrigin
 @Service
@@ -30,7 +26,17 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private MessageRepository messageRepository;
+    private SessionStore sessionStore;
+    @Autowired
+    private MuteRegistry muteRegistry;
+    @Autowired
+    private UserMessagesRenamer userMessagesRenamer;
+    @Autowired
+    private MessageNormalizer messageNormalizer;
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+    @Autowired
+    private PasswordHasher passwordHasher;
 
 
     /**
@@ -45,7 +51,10 @@ public class UserService {
             String oldEmail = emptyString;
             String oldNickname = emptyString;
             logger.debug(checkIfExistsAlready);
-            User dbUser = User.dbUser(userRepository.findByEmail(userEmail));
+            User dbUser = userRepository.findByEmail(userEmail);
+            if (dbUser == null) {
+                throw new IllegalArgumentException(emailNotExistsMessage(userEmail));
+            }
             logger.info(update);
             if (!user.getEmail().equals(emptyString)) {
                 oldEmail = dbUser.getEmail();
@@ -67,7 +76,7 @@ public class UserService {
 
             }
             if (user.getPassword() != null && !user.getPassword().equals(emptyString)) {
-                dbUser.setPassword(encrypt(user.getPassword()));
+                dbUser.setPassword(passwordHasher.hash(user.getPassword()));
                 logger.info(updatePassword);
             }
             if (user.getDateOfBirth() != null) {
@@ -88,12 +97,13 @@ public class UserService {
             }
             logger.info(saveInDB);
             User returnUser =  User.dbUser(userRepository.save(dbUser));
+            sessionStore.refresh(userEmail, returnUser);
             if(!oldEmail.equals(emptyString)){
-                updateUserMessages(oldEmail, user.getEmail());
+                updateUserMessages(returnUser.getId(), oldEmail, user.getEmail());
             }
             if(!oldNickname.equals(emptyString)){
                 if(!user.getNickname().equals(emptyString)) {
-                    updateUserMessages(oldNickname, user.getNickname());
+                    updateUserMessages(returnUser.getId(), oldNickname, user.getNickname());
                 }
             }
             return returnUser;
@@ -116,12 +126,11 @@ public class UserService {
     public User logoutUser(String userEmail) {
         try {
             logger.info(userLogout);
-            User user = userRepository.findByEmail(userEmail);
-            if (user == null) {
+            User dbUser = userRepository.findByEmail(userEmail);
+            if (dbUser == null) {
                 logger.error(emailNotExistsMessage);
                 throw new IllegalArgumentException(emailNotExistsMessage);
             }
-            User dbUser = User.dbUser(user);
             logger.debug(deleteGuest);
             if (dbUser.getType().equals(UserType.GUEST) && dbUser.getEmail().contains(systemEmail)) {
                 userRepository.delete(dbUser);
@@ -146,17 +155,21 @@ public class UserService {
     public User updateMuteUnmuteUser(Long userToMuteId, String adminEmail) {
         try {
             logger.info(beforeMuteUnmute);
-            if (userRepository.findByEmail(adminEmail).getType() != UserType.ADMIN) {
+            User admin = userRepository.findByEmail(adminEmail);
+            if (admin == null || admin.getType() != UserType.ADMIN) {
                 logger.error(notAdminUser);
                 throw new IllegalArgumentException(notAdminUser);
             }
-            if (!userRepository.findById(userToMuteId).isPresent()) {
+            User dbUser = userRepository.findById(userToMuteId).orElse(null);
+            if (dbUser == null) {
                 throw new IllegalArgumentException(emailNotExistsMessage(adminEmail));
             }
-            User dbUser = User.dbUser(userRepository.findById(userToMuteId).get());
             dbUser.setMute(!dbUser.isMute());
             logger.info(toggledMute);
-            return userRepository.save(dbUser);
+            User mutedUser = userRepository.save(dbUser);
+            sessionStore.refresh(mutedUser.getEmail(), mutedUser);
+            muteRegistry.update(mutedUser);
+            return mutedUser;
         } catch (RuntimeException e) {
             logger.error(e.getMessage());
             throw new IllegalArgumentException(e.getMessage());
@@ -174,11 +187,10 @@ public class UserService {
     public User updateStatusUser(String userEmail, String status) {
         try {
             logger.info(beforeUpdateStatus);
-            User user = userRepository.findByEmail(userEmail);
-            if (user == null) {
+            User dbUser = userRepository.findByEmail(userEmail);
+            if (dbUser == null) {
                 throw new IllegalArgumentException(emailNotExistsMessage(userEmail));
             }
-            User dbUser = User.dbUser(user);
             if (status.equals(UserStatuses.AWAY.name().toLowerCase())) {
                 logger.info(UserStatuses.AWAY.name().toLowerCase());
                 dbUser.setUserStatus(UserStatuses.AWAY);
@@ -194,32 +206,45 @@ public class UserService {
     }
 
     /**
-     * Get all users: get all users from DB
+     * Get all users: get the users that aren't offline from the presence registry, without a db query
      *
-     * @return all the users sorted by theirs types [ADMIN(0), REGISTERED(1), GUEST(2)] from DB
+     * @return all the present users sorted by theirs types [ADMIN(0), REGISTERED(1), GUEST(2)] and their etag
      */
-    public List<User> getAllUsers() {
+    public PresentUsers getAllUsers() {
         logger.info(getAllUsers);
-        return userRepository.findAll().stream().filter(currUser -> currUser.getUserStatus() != UserStatuses.OFFLINE).sorted(Comparator.comparing(User::getType)).collect(Collectors.toList());
+        return presenceRegistry.getSnapshot();
     }
 
 
     /**
-     * Update user nickname messages by sender and receiver
+     * Update user nickname messages by sender and receiver, the messages are renamed in the background.
+     * Skipped once the messages reference their users by id, their nicknames are resolved at read time
+     * @param userId      - the id of the renamed user
      * @param oldNickname - previous user email
      * @param newNickname - new user email
+     * @return the status of the queued rename, null when it was skipped
      */
-    public void updateUserMessages(String oldNickname, String newNickname) {
-        logger.info(updatingNewNicknameInOldMessages);
-        List<Message> senderMessages = messageRepository.findBySender(oldNickname);
-        List<Message> newSenderMessages = senderMessages.stream().filter(message -> message.getSender().equals(oldNickname)).collect(Collectors.toList());
-        newSenderMessages.forEach(message -> message.setSender(newNickname));
-        newSenderMessages.forEach(message -> messageRepository.save(message));
+    public UserMessagesRenamer.RenameProgress updateUserMessages(Long userId, String oldNickname, String newNickname) {
+        if (messageNormalizer.isNormalized()) {
+            logger.info(renameSkippedNormalized);
+            return null;
+        }
+        return userMessagesRenamer.rename(userId, oldNickname, newNickname);
+    }
 
-        List<Message> receiverMessages = messageRepository.findByReceiver(oldNickname);
-        List<Message> newReceiverMessages = receiverMessages.stream().filter(message -> message.getReceiver().equals(oldNickname)).collect(Collectors.toList());
-        newReceiverMessages.forEach(message -> message.setReceiver(newNickname));
-        newReceiverMessages.forEach(message -> messageRepository.save(message));
+    /**
+     * Get the status of the last rename of the user messages
+     *
+     * @param userId - the id of the user
+     * @return the progress of the rename, whether it is done and whether it failed
+     * @throws IllegalArgumentException when the messages of the user were never renamed
+     */
+    public UserMessagesRenamer.RenameProgress getRenameProgress(Long userId) {
+        UserMessagesRenamer.RenameProgress progress = userMessagesRenamer.getProgress(userId);
+        if (progress == null) {
+            logger.error(noRenameMessage);
+            throw new IllegalArgumentException(noRenameMessage);
+        }
+        return progress;
     }
 }
-
@@ -0,0 +1,126 @@
+package chatApp.utilities;
+
+import chatApp.entities.Message;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes messages one by one to an output stream as NDJSON or CSV, nothing is kept after a message is written
+ */
+public abstract class MessageExportWriter implements Closeable {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    /**
+     * creates a writer for the requested format
+     *
+     * @param format       - the export format
+     * @param outputStream - the response output stream
+     * @param objectMapper - the mapper used for the NDJSON rows
+     * @return the export writer
+     * @throws IOException
+     */
+    public static MessageExportWriter of(Format format, OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+        if (format == Format.CSV) {
+            return new CsvWriter(outputStream);
+        }
+        return new NdjsonWriter(outputStream, objectMapper);
+    }
+
+    /**
+     * parses the requested format, NDJSON when the format is unknown
+     *
+     * @param format - the format name in any case
+     * @return the export format
+     */
+    public static Format formatOf(String format) {
+        return Format.CSV.name().equalsIgnoreCase(format) ? Format.CSV : Format.NDJSON;
+    }
+
+    public static String contentType(Format format) {
+        return format == Format.CSV ? "text/csv" : "application/x-ndjson";
+    }
+
+    public static String fileExtension(Format format) {
+        return format == Format.CSV ? ".csv" : ".ndjson";
+    }
+
+    public abstract void write(Message message) throws IOException;
+
+    private static class NdjsonWriter extends MessageExportWriter {
+        private final ObjectWriter objectWriter;
+        private final JsonGenerator generator;
+        private boolean written;
+
+        private NdjsonWriter(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+            this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE).withRootValueSeparator("\n");
+            this.generator = objectWriter.createGenerator(outputStream).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(Message message) throws IOException {
+            objectWriter.writeValue(generator, message);
+            written = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (written) {
+                generator.writeRaw('\n');
+            }
+            generator.close();
+        }
+    }
+
+    private static class CsvWriter extends MessageExportWriter {
+        private final Writer writer;
+
+        private CsvWriter(OutputStream outputStream) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write("id,sender,receiver,content,roomId,issueDate,issueDateEpoch\n");
+        }
+
+        @Override
+        public void write(Message message) throws IOException {
+            writer.write(String.valueOf(message.getId()));
+            writer.write(',');
+            writeField(message.getSender());
+            writer.write(',');
+            writeField(message.getReceiver());
+            writer.write(',');
+            writeField(message.getContent());
+            writer.write(',');
+            writeField(message.getRoomId());
+            writer.write(',');
+            writer.write(String.valueOf(message.getIssueDate()));
+            writer.write(',');
+            writer.write(String.valueOf(message.getIssueDateEpoch()));
+            writer.write('\n');
+        }
+
+        private void writeField(String field) throws IOException {
+            if (field == null) {
+                return;
+            }
+            if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+                writer.write(field);
+                return;
+            }
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package chatApp.utilities;
+
+import chatApp.entities.UserType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Route permissions compiled once into a trie of path segments. A rule like /chat/mainchatroom covers the path itself
+ * and everything below it, so a lookup walks the request URI once and collects the permissions of every rule on the way.
+ */
+public final class PathPermissionTable {
+
+    public static final int publicPath = 1;
+    public static final int guestPath = 1 << 1;
+    public static final int registeredDeniedPath = 1 << 2;
+
+    private final Node root = new Node(Utility.emptyString);
+
+    private PathPermissionTable() {
+    }
+
+    /**
+     * builds the table from the path lists
+     *
+     * @param pathsForAll             - paths open without a token
+     * @param pathsForGuest           - paths a guest may use
+     * @param deniedPathsForRegistered - paths a registered (non admin) user may not use
+     * @return the compiled table
+     */
+    public static PathPermissionTable compile(List<String> pathsForAll, List<String> pathsForGuest, List<String> deniedPathsForRegistered) {
+        PathPermissionTable table = new PathPermissionTable();
+        pathsForAll.forEach(path -> table.add(path, publicPath));
+        pathsForGuest.forEach(path -> table.add(path, guestPath));
+        deniedPathsForRegistered.forEach(path -> table.add(path, registeredDeniedPath));
+        return table;
+    }
+
+    /**
+     * collects the permissions of every rule covering the path
+     *
+     * @param path - the request URI
+     * @return the permission bits of the path, 0 when no rule covers it
+     */
+    public int lookup(String path) {
+        int permissions = root.permissions;
+        Node node = root;
+        int length = endOf(path);
+        int start = 0;
+        while (node != null && start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+            if (end > start) {
+                node = node.child(path, start, end - start);
+                if (node != null) {
+                    permissions |= node.permissions;
+                }
+            }
+            start = end + 1;
+        }
+        return permissions;
+    }
+
+    /**
+     * checks whether a user of the type may use a path with the given permissions
+     *
+     * @param permissions - the path permissions returned by lookup
+     * @param type        - the user type of the session
+     * @return true when the user may use the path
+     */
+    public static boolean isAllowed(int permissions, UserType type) {
+        if ((permissions & publicPath) != 0 || type == UserType.ADMIN) {
+            return true;
+        }
+        if (type == UserType.GUEST) {
+            return (permissions & guestPath) != 0;
+        }
+        return (permissions & registeredDeniedPath) == 0;
+    }
+
+    private void add(String path, int permission) {
+        Node node = root;
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                node = node.childOrCreate(segment);
+            }
+        }
+        node.permissions |= permission;
+    }
+
+    private static int endOf(String path) {
+        int parameters = path.indexOf(';');
+        return parameters < 0 ? path.length() : parameters;
+    }
+
+    private static class Node {
+        private final String segment;
+        private Node[] children = new Node[0];
+        private int permissions;
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private Node child(String path, int start, int length) {
+            for (Node child : children) {
+                if (child.segment.length() == length && path.regionMatches(start, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private Node childOrCreate(String segment) {
+            Node child = child(segment, 0, segment.length());
+            if (child == null) {
+                child = new Node(segment);
+                children = Arrays.copyOf(children, children.length + 1);
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+}
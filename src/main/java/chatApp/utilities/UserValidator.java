@@ -0,0 +1,127 @@
+package chatApp.utilities;
+
+import chatApp.customEntities.CustomResponse;
+import chatApp.customEntities.UserDTO;
+import chatApp.entities.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static chatApp.utilities.Utility.emptyString;
+import static chatApp.utilities.Utility.systemEmail;
+import static chatApp.utilities.messages.ExceptionMessages.*;
+
+/**
+ * Validation of the user payloads. The name and password rules are checked by hand-written scanners and the email
+ * by a pattern compiled once, with the same results as the regular expressions they replace, and checkValidUser
+ * checks the fields of one request in one call, in the order they are given
+ */
+public class UserValidator {
+
+    private static final Logger logger = LogManager.getLogger(UserValidator.class.getName());
+    private static final Pattern emailPattern = Pattern.compile("^(.+)@(\\S+)$");
+    private static final int minPasswordLength = 6;
+
+    public enum Field {
+        EMAIL, NAME, PASSWORD
+    }
+
+    private UserValidator() {
+    }
+
+    /**
+     * Check if user is valid : validates the given fields of the user, an empty field isn't validated
+     *
+     * @param user     - the user payload
+     * @param response - CustomResponse<UserDTO> to edit from controller.
+     * @param fields   - the fields to validate, in the order their errors take precedence
+     * @return the response with the message of the first invalid field wrapped in optional, empty when all are valid
+     */
+    public static Optional<CustomResponse<UserDTO>> checkValidUser(User user, CustomResponse<UserDTO> response, Field... fields) {
+        for (Field field : fields) {
+            String error = validate(user, field);
+            if (error != null) {
+                logger.error(error);
+                response.setMessage(error);
+                return Optional.of(response);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Is valid password : at least 6 characters and at least one capital letter, without line breaks
+     *
+     * @param password - the password
+     * @return true if valid password else false
+     */
+    public static boolean isValidPassword(String password) {
+        if (password == null || password.length() < minPasswordLength) {
+            return false;
+        }
+        boolean capitalLetter = false;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (isLineTerminator(c)) {
+                return false;
+            }
+            capitalLetter |= c >= 'A' && c <= 'Z';
+        }
+        return capitalLetter;
+    }
+
+    /**
+     * Is valid name : only english letters and spaces
+     *
+     * @param name - the name
+     * @return true if valid name else false
+     */
+    public static boolean isValidName(String name) {
+        if (name == null || name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != ' ' && (c < 'A' || c > 'Z') && (c < 'a' || c > 'z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Is valid email: check if syntax of email is valid
+     *
+     * @param emailAddress - the user email
+     * @return true if valid emailAddress else false
+     */
+    public static boolean isValidEmail(String emailAddress) {
+        return emailAddress != null && emailPattern.matcher(emailAddress).matches();
+    }
+
+    private static String validate(User user, Field field) {
+        switch (field) {
+            case EMAIL:
+                String email = user.getEmail();
+                if (email == null || (!email.equals(emptyString) && !isValidEmail(email))) {
+                    return invalidEmailMessage;
+                }
+                return email.contains(systemEmail) ? invalidRegistrationEmailMessage : null;
+            case NAME:
+                String name = user.getName();
+                return name == null || (!name.equals(emptyString) && !isValidName(name)) ? invalidNameMessage : null;
+            default:
+                String password = user.getPassword();
+                return password == null || (!password.equals(emptyString) && !isValidPassword(password)) ? invalidPasswordMessage : null;
+        }
+    }
+
+    /**
+     * the characters the . of a regular expression doesn't match
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
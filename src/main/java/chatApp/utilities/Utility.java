@@ -1,38 +1,32 @@
 package chatApp.utilities;
 
-import chatApp.customEntities.CustomResponse;
-import chatApp.customEntities.UserDTO;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
-import java.util.regex.Pattern;
-
-import static chatApp.utilities.messages.ExceptionMessages.*;
-import static chatApp.utilities.messages.ExceptionMessages.invalidPasswordMessage;
 
 public class Utility {
-    private static final Logger logger = LogManager.getLogger(Utility.class.getName());
     public static String separator = "E";
     public static String userIdNameInTable = "id";
+    public static String issueDateEpochNameInTable = "issueDateEpoch";
+    public static int maxHistoryPageSize = 200;
     public static String systemEmail = "@chatappsystem.com";
     public static String emptyString = "";
     public static String zoneOffsetId = "Z";
     public static String mainRoomReceiverName = "main";
     public static String mainRoomId = "0";
+    public static long roomKeyMaxUserId = 0xFFFFFFFFL;
     public static String guestPrefix = "Guest-";
     public static String innerSystemEmail = "seselevtion@gmail.com";
     public static String emailContent = "Chat App Verification Code";
     public static String firstPrivateMessage = "New Private Chat Room";
-    public static List<String> permissionPathsForAll = new ArrayList<>(List.of("/sign", "ws", "/mainchatroom", "/downloadmainchatroom", "chat/getusers"));
-    public static List<String> permissionPathsForGuest = new ArrayList<>(List.of("/logout", "update/status", "chat/mainchatroom", "chat/downloadmainchatroom", "/topic", "/app", "/plain"));
-    public static List<String> noPermissionsPathsForRegistered = new ArrayList<>(List.of("update/mute"));
+    public static List<String> permissionPathsForAll = new ArrayList<>(List.of("/sign", "/ws", "/chat/mainchatroom", "/chat/downloadmainchatroom", "/chat/getusers"));
+    public static List<String> permissionPathsForGuest = new ArrayList<>(List.of("/user/logout", "/user/update/status", "/chat/mainchatroom", "/chat/downloadmainchatroom"));
+    public static List<String> noPermissionsPathsForRegistered = new ArrayList<>(List.of("/user/update/mute"));
 
     /**
      * Is valid password : check if The length of the password > 6 & At least one capital letter
@@ -41,11 +35,7 @@ public class Utility {
      * @return true if valid password else false
      */
     public static boolean isValidPassword(String password) {
-        logger.debug("Check valid password");
-        if (password != null) {
-            return password.matches(".*[A-Z].*") && password.length() >= 6;
-        }
-        return false;
+        return UserValidator.isValidPassword(password);
     }
 
     /**
@@ -55,11 +45,7 @@ public class Utility {
      * @return true if valid name else false
      */
     public static boolean isValidName(String name) {
-        logger.debug("Check valid name");
-        if (name != null) {
-            return name.matches("^[ A-Za-z]+$");
-        }
-        return false;
+        return UserValidator.isValidName(name);
     }
 
     /**
@@ -69,36 +55,96 @@ public class Utility {
      * @return true if valid emailAddress else false
      */
     public static boolean isValidEmail(String emailAddress) {
-        logger.debug("Check valid email");
-        if (emailAddress != null) {
-            String regexPattern = "^(.+)@(\\S+)$";
+        return UserValidator.isValidEmail(emailAddress);
+    }
 
-            return Pattern.compile(regexPattern)
-                    .matcher(emailAddress)
-                    .matches();
+    /**
+     * Private room id : the canonical room id of two users, the smaller id always comes first
+     *
+     * @param firstUserId  - the id of one user
+     * @param secondUserId - the id of the other user
+     * @return the room id of the two users
+     */
+    public static String privateRoomId(Long firstUserId, Long secondUserId) {
+        return Math.min(firstUserId, secondUserId) + separator + Math.max(firstUserId, secondUserId);
+    }
+
+    /**
+     * Canonical room id : orders the two user ids of a private room id, other room ids are returned as they are
+     *
+     * @param roomId - the room id in any order
+     * @return the canonical room id
+     */
+    public static String canonicalRoomId(String roomId) {
+        String[] userIds = roomId.split(separator);
+        if (userIds.length != 2) {
+            return roomId;
+        }
+        try {
+            return privateRoomId(Long.parseLong(userIds[0]), Long.parseLong(userIds[1]));
+        } catch (NumberFormatException e) {
+            return roomId;
         }
-        return false;
     }
 
     /**
-     * Random string: generate random string
+     * Is room member : the user is one of the two users of a private room id
      *
-     * @return true if valid emailAddress else false
+     * @param roomId - the room id in any order
+     * @param userId - the user id
+     * @return true when the room id is a private room of that user, false for the main room or any other room id
      */
-    public static String randomString() {
-        UUID randomUUID = UUID.randomUUID();
-        return randomUUID.toString().replaceAll("_", "");
+    public static boolean isRoomMember(String roomId, Long userId) {
+        long[] userIds = roomUserIds(roomId);
+        return userIds != null && userId != null && (userIds[0] == userId || userIds[1] == userId);
+    }
+
+    /**
+     * Room user ids : the two user ids of a private room id
+     *
+     * @param roomId - the room id in any order
+     * @return the two user ids, the smaller first, null for the main room or a room id that isn't made of two user ids
+     */
+    public static long[] roomUserIds(String roomId) {
+        String[] userIds = roomId == null ? new String[0] : roomId.split(separator);
+        if (userIds.length != 2) {
+            return null;
+        }
+        try {
+            long firstUserId = Long.parseLong(userIds[0]);
+            long secondUserId = Long.parseLong(userIds[1]);
+            return new long[]{Math.min(firstUserId, secondUserId), Math.max(firstUserId, secondUserId)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     /**
-     * encrypt: encrypt string
+     * Room key : the numeric key of a room id, 0 for the main room and the two user ids of a private room
+     * packed in one long, the smaller id in the high 32 bits
      *
-     * @param stringToEncrypt - the string to encrypt
-     * @return the value encrypted
+     * @param roomId - the room id in any order
+     * @return the room key, null when the room id isn't the main room or a private room of user ids below 2^32
      */
-    public static String encrypt(String stringToEncrypt) {
-        BCryptPasswordEncoder bEncoder = new BCryptPasswordEncoder();
-        return bEncoder.encode(stringToEncrypt);
+    public static Long roomKey(String roomId) {
+        if (mainRoomId.equals(roomId)) {
+            return 0L;
+        }
+        long[] userIds = roomUserIds(roomId);
+        if (userIds == null || userIds[0] < 1 || userIds[1] > roomKeyMaxUserId) {
+            return null;
+        }
+        return userIds[0] << 32 | userIds[1];
+    }
+
+    /**
+     * Random string: generate random string
+     *
+     * @return true if valid emailAddress else false
+     */
+    public static String randomString() {
+        UUID randomUUID = UUID.randomUUID();
+        return randomUUID.toString().replaceAll("_", "");
     }
 
     /**
@@ -119,55 +165,23 @@ public class Utility {
         return LocalDateTime.now();
     }
 
-    /**
-     * Check if email is valid : validates email and check if email dosen't contain "@chatappsystem"
-     * @param email - user email, response - CustomResponse<UserDTO> to edit.
-     * @param response - CustomResponse<UserDTO> to edit from controller.
-     * @return the response edited and wrapped in optional, send it back to controller.
-     */
-    public static Optional<CustomResponse<UserDTO>> checkValidEmail(String email, CustomResponse<UserDTO> response){
-        if (!email.equals(emptyString) && !isValidEmail(email)){
-            logger.error(invalidEmailMessage);
-            response.setMessage(invalidEmailMessage);
-            return Optional.of(response);
-        }
-
-        if(email.contains(systemEmail)){
-            logger.error(invalidRegistrationEmailMessage);
-            response.setMessage(invalidRegistrationEmailMessage);
-            return Optional.of(response);
-        }
-        return Optional.empty();
-    }
-
-    /**
-     * Check if name is valid : validates name
-     * @param name - user name
-     * @param response - CustomResponse<UserDTO> to edit from controller.
-     * @return the response edited and wrapped in optional, send it back to controller.
-     */
-    public static Optional<CustomResponse<UserDTO>> checkValidName(String name, CustomResponse<UserDTO> response){
-        if (!name.equals(emptyString) && !isValidName(name)) {
-            logger.error(invalidNameMessage);
-            response.setMessage(invalidNameMessage);
-            return Optional.of(response);
-        }
-        return Optional.empty();
-    }
 
     /**
-     * Check if email is valid : validates email
-     * @param password - user password
-     * @param response - CustomResponse<UserDTO> to edit from controller.
-     * @return the response edited and wrapped in optional, send it back to controller.
+     * Run after commit : runs the task once the current transaction committed, right away when there is none,
+     * so an in memory copy of the db never sees a change that is rolled back
+     *
+     * @param task - the task to run
      */
-    public static Optional<CustomResponse<UserDTO>> checkValidPassword(String password, CustomResponse<UserDTO> response){
-        if (!password.equals(emptyString) && !isValidPassword(password)) {
-            logger.error(invalidPasswordMessage);
-            response.setMessage(invalidPasswordMessage);
-            return Optional.of(response);
+    public static void runAfterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
         }
-        return Optional.empty();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
     }
-
 }
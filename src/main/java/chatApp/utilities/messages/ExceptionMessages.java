@@ -21,6 +21,18 @@ public class ExceptionMessages {
     public static String privateChatRoomMessagesFailed = " Private chat room messages failed to get";
     public static String FailedToSendPrivateMessage = " Failed to send private message";
     public static String emailNotExistsMessage = " Email doesn't exists in users table";
+    public static String roomHistoryFailed = " Chat room history failed to get";
+    public static String messageQueueFullMessage = " Main chat is busy, message was not sent. Please try again";
+    public static String messageNotPersistedMessage = " Main chat message failed to save. Please try again";
+    public static String passwordHashingBusyMessage = " Too many logins at the moment, please try again";
+    public static String notRoomMemberMessage = " You are not a member of this private chat room";
+    public static String patternDestinationMessage = " Subscribing to a destination pattern isn't allowed";
+    public static String brokerDestinationMessage = " Messages can only be sent to the /app destinations";
+    public static String noRenameMessage = " Your messages were never renamed";
+
+    public static String mailSpoolNotAbsoluteMessage(String spoolDir) {
+        return String.format("The mail spool directory %s must be an absolute path", spoolDir);
+    }
 
     public static String emailNotExistsMessage(String email) {
         return String.format("Email %s doesn't exists in users table", email);
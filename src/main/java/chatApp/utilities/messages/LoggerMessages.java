@@ -1,7 +1,5 @@
 package chatApp.utilities.messages;
 
-import static chatApp.utilities.Utility.separator;
-
 public class LoggerMessages {
 
     public static String beforeLoginAsGuest = "Try to login as guest to the system";
@@ -10,12 +8,14 @@ public class LoggerMessages {
     public static String beforeSendPrivateMessage = "Try to send private message";
     public static String beforeGettingMainRoomMessages =  "Try to get main chat room messages";
     public static String beforeGettingPrivateRoomMessages =  "Try to get private chat room messages";
+    public static String beforeGettingRoomHistory =  "Try to get older messages of a chat room";
     public static String beforeDownloadingPrivateRoom =  "Try to download specific private chat room";
     public static String beforeDownloadingMainRoom =  "Try to download main chat room from specific time";
     public static String beforeGettingAllUsers = "Try to get all users to display in the frontend";
     public static String beforeLogout = "User try to logout in the system";
     public static String beforeMuteUnmute = "Try to mute / unmute user";
     public static String beforeUpdateStatus = "Try to changed the status of the user to ONLINE/AWAY";
+    public static String beforeGettingRenameStatus = "Try to get the status of the rename of the user messages";
     public static String checkPassword = "Check if password is correct";
     public static String createToken = "Create token for current user";
     public static String userLogged = "User is logged into the system";
@@ -29,6 +29,7 @@ public class LoggerMessages {
     public static String downloadPrivateChat = "Try to download private chat room messages";
     public static String addMessageInMainChat = "Try to add message to main chat room";
     public static String getMainChatMessages = "Try to get main chat room messages";
+    public static String getRoomHistory = "Try to get chat room messages before the cursor";
     public static String updateEmail = "Email has been updated";
     public static String updateNickname = "Nickname has been updated";
     public static String updateName = "Name has been updated";
@@ -40,23 +41,188 @@ public class LoggerMessages {
     public static String userLogout = "logging out the user from the system";
     public static String deleteGuest = "check if the user is a guest and delete him from DB, else update his status to offline";
     public static String toggledMute = "Mute or Unmute has been toggled";
-    public static String getAllUsers = "Get all users in users table sorted by admin,registered,guest and filtered the offline users";
+    public static String getAllUsers = "Get the present users sorted by admin,registered,guest from the presence registry";
     public static String updatingNewNicknameInOldMessages = "User has changed his email or nickname , updating all his old messages as sender and as receiver";
+    public static String messageBackfillAlreadyDone = "Every message has its user ids, the nicknames are resolved at read time";
+    public static String renameSkippedNormalized = "The messages reference their users by id, the old messages keep their nicknames";
+    public static String presenceDeltaFailed = "Publishing the presence changes failed: ";
+    public static String presenceResyncSkipped = "The present users changed while they were loaded, the resync will run again";
+    public static String muteResyncSkipped = "The muted users changed while they were loaded, the resync will run again";
 
     public static String beforeAnAction(String email, String action) {
         return String.format("Try to "+ action + " " + email + " to the system");
     }
 
-    public static String checkPrivateRoomMessage(Long senderId, Long receiverId) {
-        return String.format("check if the room " + senderId + separator + receiverId + " exists");
+    public static String checkPrivateRoomMessage(String roomId) {
+        return String.format("check if the room " + roomId + " exists");
+    }
+
+    public static String createPrivateRoomMessage(String roomId) {
+        return String.format("create the room " + roomId);
     }
 
-    public static String createPrivateRoomMessage(Long senderId, Long receiverId) {
-        return String.format("create if the room " + senderId + separator + receiverId + " exists");
+    public static String mergePrivateRoomMessage(String oldRoomId, String newRoomId) {
+        return String.format("merging the messages of room " + oldRoomId + " into room " + newRoomId);
     }
 
     public static String addMessageToPrivateRoom(String room) {
         return String.format("Try to add a message to a private chat room id: " + room);
     }
 
+    public static String streamingRoomMessages(String roomId) {
+        return String.format("Streaming the messages of room %s", roomId);
+    }
+
+    public static String warmUpRoomCache(String roomId) {
+        return String.format("Loading the newest messages of room %s into the history cache", roomId);
+    }
+
+    public static String batchFlushed(int size, long millis) {
+        return String.format("Flushed %d main chat messages in %d ms", size, millis);
+    }
+
+    public static String batchInsertFailed(int size) {
+        return String.format("Batch insert of %d main chat messages failed: ", size);
+    }
+
+    public static String fanOutRejected(String destination) {
+        return String.format("The broker is stopped, dropping the message to %s", destination);
+    }
+
+    public static String brokerModeSelected(String mode, int shards) {
+        return String.format("Using the %s message broker with %d shards", mode, shards);
+    }
+
+    public static String relayBrokerSelected(String host, int port) {
+        return String.format("Relaying /topic to the STOMP broker at %s:%d", host, port);
+    }
+
+    public static String embeddedBrokerStarted(int port) {
+        return String.format("Embedded STOMP broker listening on port %d", port);
+    }
+
+    public static String sessionEvicted(String email) {
+        return String.format("The session of %s expired", email);
+    }
+
+    public static String stompConnected(String email) {
+        return String.format("STOMP session connected for %s", email);
+    }
+
+    public static String muteRegistryLoaded(int size) {
+        return String.format("Loaded %d muted users", size);
+    }
+
+    public static String presenceLoaded(int size) {
+        return String.format("Loaded %d present users", size);
+    }
+
+    public static String presenceDeltaSent(int events) {
+        return String.format("Published %d presence changes", events);
+    }
+
+    public static String passwordHasherConfigured(int strength, int threads, int queueCapacity) {
+        return String.format("Hashing the passwords with BCrypt cost %d on %d threads with a queue of %d", strength, threads, queueCapacity);
+    }
+
+    public static String passwordRehashed(String email, int strength) {
+        return String.format("Rehashed the password of %s with BCrypt cost %d", email, strength);
+    }
+
+    public static String channelExecutorConfigured(String name, int poolSize, int queueCapacity) {
+        return String.format("WebSocket channel executor %s with %d threads and a queue of %d", name, poolSize, queueCapacity);
+    }
+
+    public static String channelExecutorStats(String name, int activeThreads, int poolSize, int queueDepth, long completedTasks) {
+        return String.format("WebSocket channel executor %s: %d/%d active threads, %d queued, %d completed", name, activeThreads, poolSize, queueDepth, completedTasks);
+    }
+
+    public static String slowConsumerSendTimeExceeded(String sessionId, int sendTimeLimit) {
+        return String.format("WebSocket session %s disconnected, a send took longer than %d ms", sessionId, sendTimeLimit);
+    }
+
+    public static String slowConsumerBufferExceeded(String sessionId, int bufferSizeLimit) {
+        return String.format("WebSocket session %s disconnected, the send buffer went over %d bytes", sessionId, bufferSizeLimit);
+    }
+
+    public static String slowConsumerDropped(String sessionId, int messages) {
+        return String.format("Dropped %d buffered messages of the slow WebSocket session %s", messages, sessionId);
+    }
+
+    public static String slowConsumerCoalesced(String sessionId, int messages) {
+        return String.format("Coalesced %d buffered messages of the slow WebSocket session %s", messages, sessionId);
+    }
+
+    public static String slowConsumerPolicySelected(String policy, int sendTimeLimit, int bufferSizeLimit) {
+        return String.format("Slow WebSocket consumers: %s policy, %d ms send time limit, %d bytes send buffer limit", policy, sendTimeLimit, bufferSizeLimit);
+    }
+
+    public static String slowConsumerStats(String policy, long dropped, long coalesced, long disconnected) {
+        return String.format("Slow WebSocket consumers (%s): %d dropped, %d coalesced, %d sessions disconnected", policy, dropped, coalesced, disconnected);
+    }
+
+    public static String userMessagesRenameProgress(String oldName, String newName, int percent, int renamed) {
+        return String.format("Renaming the messages of %s to %s: %d%% scanned, %d renamed", oldName, newName, percent, renamed);
+    }
+
+    public static String userMessagesRenamed(String oldName, String newName, int renamed, long millis) {
+        return String.format("Renamed %d messages of %s to %s in %d ms", renamed, oldName, newName, millis);
+    }
+
+    public static String userMessagesRenameFlushTimeout(String oldName) {
+        return String.format("The queued main chat messages weren't flushed in time, the messages of %s sent meanwhile may keep the old name", oldName);
+    }
+
+    public static String userMessagesCatchUpCapped(String oldName, String newName, int passes) {
+        return String.format("Messages of %s were still sent after %d catch-up passes, the newest ones may not be renamed to %s", oldName, passes, newName);
+    }
+
+    public static String userMessagesRenameFailed(String oldName, String newName) {
+        return String.format("Renaming the messages of %s to %s failed: ", oldName, newName);
+    }
+
+    public static String messageBackfillProgress(long lastId, int filled) {
+        return String.format("Backfilled the user ids of %d messages, up to message id %d", filled, lastId);
+    }
+
+    public static String messageBackfillFinished(int filled, long millis) {
+        return String.format("Backfilled the user ids of %d messages in %d ms, the nicknames are now resolved at read time", filled, millis);
+    }
+
+    public static String messageBackfillFailed(long lastId) {
+        return String.format("The backfill of the message user ids stopped after message id %d: ", lastId);
+    }
+
+    public static String mailSpoolLoaded(int mails) {
+        return String.format("Queued %d mails left in the spool directory", mails);
+    }
+
+    public static String mailSendRetry(String mailId, int attempts, long delayMs) {
+        return String.format("Sending the mail %s failed %d times, retrying in %d ms: ", mailId, attempts, delayMs);
+    }
+
+    public static String mailSendFailed(String mailId, int attempts) {
+        return String.format("Gave up sending the mail %s after %d attempts, it was moved to the failed spool: ", mailId, attempts);
+    }
+
+    public static String mailSpoolDropped(String file) {
+        return String.format("Dropped the spooled mail %s, its verification code expired or isn't needed anymore", file);
+    }
+
+    public static String mailFailedCleaned(int mails) {
+        return String.format("Deleted %d failed mails older than the failed retention", mails);
+    }
+
+    public static String mailBatchSent(int sent, int failed, long millis) {
+        return String.format("Sent %d mails over one SMTP connection in %d ms, %d failed", sent, millis, failed);
+    }
+
+    public static String mailBatchCrashed(int mails) {
+        return String.format("Delivering a batch of %d mails crashed, the mails still spooled are retried: ", mails);
+    }
+
+    public static String mailSpoolFailed(String file) {
+        return String.format("Spooling the mail %s failed: ", file);
+    }
+
 }
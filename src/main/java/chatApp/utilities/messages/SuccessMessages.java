@@ -8,11 +8,13 @@ public class SuccessMessages {
     public static String listOfAllUsersSuccessfulMessage = "List of all users has been returned successfully";
     public static String updateMuteUnmuteUserSuccessfulMessage = "Update mute/unmute user was made successfully";
     public static String updateStatusUserSuccessfulMessage = "Update user status was made successfully";
+    public static String renameStatusSuccessfulMessage = "Status of the messages rename has been returned successfully";
     public static String logoutSuccessfulMessage = "Logout was made successfully";
     public static String privateMessageSentSuccessfully = "Private message has been sent";
     public static String mainMessageSentSuccessfully = "Main chat message has been sent";
     public static String privateChatRoomMessagesSentSuccessfully = "Private chat room messages sent successfully";
     public static String mainChatRoomMessagesSentSuccessfully = "Main chat room messages sent successfully";
+    public static String roomHistorySentSuccessfully = "Chat room history sent successfully";
     public static String downloadPrivateRoomSentSuccessfully = "Download Private chat room sent successfully";
     public static String downloadMainRoomSentSuccessfully = "Download Main chat room sent successfully";
 
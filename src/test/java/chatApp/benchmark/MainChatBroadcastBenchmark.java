@@ -0,0 +1,112 @@
+package chatApp.benchmark;
+
+import chatApp.customEntities.CustomResponse;
+import chatApp.entities.Message;
+import chatApp.service.ChatBroadcaster;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU of one /topic/mainChat broadcast to 1k and 10k subscribers on the simple broker: converting the
+ * ResponseEntity through the template's message converter against handing the broker the json bytes encoded once
+ * by ChatBroadcaster. Every subscriber gets its STOMP frame encoded like the session handler does, so the per
+ * session work that stays is part of the measure; the compact twin is off so both send the same single message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MainChatBroadcastBenchmark {
+
+    private static final String destination = "/topic/mainChat";
+
+    @Param({"1000", "10000"})
+    private int subscribers;
+
+    private SimpleBrokerMessageHandler broker;
+    private SimpMessagingTemplate messagingTemplate;
+    private ChatBroadcaster chatBroadcaster;
+    private ResponseEntity<CustomResponse<Message>> response;
+    private long encodedBytes;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        StompEncoder stompEncoder = new StompEncoder();
+        ExecutorSubscribableChannel clientOutboundChannel = new ExecutorSubscribableChannel();
+        clientOutboundChannel.subscribe(message -> {
+            SimpMessageHeaderAccessor simpAccessor = SimpMessageHeaderAccessor.wrap(message);
+            StompHeaderAccessor stompAccessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            stompAccessor.setSubscriptionId(simpAccessor.getSubscriptionId());
+            stompAccessor.setDestination(simpAccessor.getDestination());
+            stompAccessor.setContentType(simpAccessor.getContentType());
+            stompAccessor.setMessageId(simpAccessor.getSessionId());
+            encodedBytes += stompEncoder.encode(stompAccessor.getMessageHeaders(), (byte[]) message.getPayload()).length;
+        });
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        broker = new SimpleBrokerMessageHandler(new ExecutorSubscribableChannel(), clientOutboundChannel, brokerChannel, Collections.singletonList("/topic"));
+        broker.start();
+        for (int i = 0; i < subscribers; i++) {
+            SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            subscribe.setSessionId("session-" + i);
+            subscribe.setSubscriptionId("sub-0");
+            subscribe.setDestination(destination);
+            broker.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        }
+
+        messagingTemplate = new SimpMessagingTemplate(brokerChannel);
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        messagingTemplate.setMessageConverter(converter);
+        chatBroadcaster = new ChatBroadcaster();
+        ReflectionTestUtils.setField(chatBroadcaster, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(chatBroadcaster, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(chatBroadcaster, "compactEnabled", false);
+
+        Message message = new Message("bench", "hello main content", "main", "0");
+        message.setId(1L);
+        response = ResponseEntity.ok().body(new CustomResponse<>(message, "Main message sent successfully"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    public long convertPerBroadcast() {
+        messagingTemplate.convertAndSend(destination, response);
+        return encodedBytes;
+    }
+
+    @Benchmark
+    public long encodeOncePerBroadcast() {
+        chatBroadcaster.broadcastMain(response);
+        return encodedBytes;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MainChatBroadcastBenchmark.class.getSimpleName()).build()).run();
+    }
+}
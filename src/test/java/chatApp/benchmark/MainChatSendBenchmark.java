@@ -0,0 +1,126 @@
+package chatApp.benchmark;
+
+import chatApp.customEntities.ChatPrincipal;
+import chatApp.entities.Message;
+import chatApp.entities.User;
+import chatApp.entities.UserType;
+import chatApp.repository.MessageRepository;
+import chatApp.repository.UserRepository;
+import chatApp.service.*;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.Mockito.*;
+
+/**
+ * Mute check of one main chat message: the findByNickname lookup and user copy the send path used to do against
+ * the mute registry lookups, and the whole STOMP send path up to the repository save.
+ * The repositories are mocks and the chatApp loggers are turned down to WARN, so only the code itself is measured
+ * and the db lookup is a lower bound without the round trip to MySQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MainChatSendBenchmark {
+
+    private static final String email = "bench@gmail.com";
+    private static final String nickname = "bench";
+
+    private UserRepository userRepository;
+    private MuteRegistry muteRegistry;
+    private SessionStore sessionStore;
+    private MessageService messageService;
+    private ChatPrincipal principal;
+    private Long userId;
+
+    @Setup
+    public void setUp() throws Exception {
+        Configurator.setLevel("chatApp", Level.WARN);
+        User user = User.createUser(nickname, email, "Aa123456");
+        user.setId(1L);
+        user.setNickname(nickname);
+        user.setType(UserType.REGISTERED);
+        userId = user.getId();
+        User mutedUser = User.createUser("muted", "muted@gmail.com", "Aa123456");
+        mutedUser.setId(2L);
+        mutedUser.setMute(true);
+
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByNickname(nickname)).thenReturn(user);
+        when(userRepository.findByIsMuteTrue()).thenReturn(Collections.singletonList(mutedUser));
+        MessageRepository messageRepository = mock(MessageRepository.class);
+        when(messageRepository.save(any(Message.class))).then(returnsFirstArg());
+
+        muteRegistry = new MuteRegistry();
+        ReflectionTestUtils.setField(muteRegistry, "userRepository", userRepository);
+        muteRegistry.resync();
+
+        sessionStore = new SessionStore();
+        ReflectionTestUtils.setField(sessionStore, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(sessionStore, "idleMinutes", 60L);
+        ReflectionTestUtils.setField(sessionStore, "tickMs", 1000L);
+        invoke(sessionStore, "start");
+        principal = sessionStore.getPrincipal(sessionStore.open(user));
+
+        messageService = new MessageService();
+        ReflectionTestUtils.setField(messageService, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(messageService, "messageBatchWriter", new MessageBatchWriter());
+        ReflectionTestUtils.setField(messageService, "recentMessagesCache", new RecentMessagesCache());
+        ReflectionTestUtils.setField(messageService, "sessionStore", sessionStore);
+        ReflectionTestUtils.setField(messageService, "muteRegistry", muteRegistry);
+        UserCache userCache = new UserCache();
+        ReflectionTestUtils.setField(userCache, "userRepository", userRepository);
+        MessageNormalizer messageNormalizer = new MessageNormalizer();
+        ReflectionTestUtils.setField(messageNormalizer, "userCache", userCache);
+        ReflectionTestUtils.setField(messageService, "messageNormalizer", messageNormalizer);
+        ReflectionTestUtils.setField(messageService, "userCache", userCache);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        invoke(sessionStore, "stop");
+    }
+
+    @Benchmark
+    public boolean dbMuteCheck() {
+        return User.dbUser(userRepository.findByNickname(nickname)).isMute();
+    }
+
+    @Benchmark
+    public boolean registryMuteCheckByNickname() {
+        return muteRegistry.isMuted(nickname);
+    }
+
+    @Benchmark
+    public boolean registryMuteCheckById() {
+        return muteRegistry.isMuted(userId);
+    }
+
+    @Benchmark
+    public Message sendMainMessage() {
+        return messageService.addMessageToMainChat(new Message(nickname, "hello main content", "main", "0"), principal);
+    }
+
+    private static void invoke(Object target, String methodName) throws Exception {
+        Method method = target.getClass().getDeclaredMethod(methodName);
+        method.setAccessible(true);
+        method.invoke(target);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MainChatSendBenchmark.class.getSimpleName()).build()).run();
+    }
+}
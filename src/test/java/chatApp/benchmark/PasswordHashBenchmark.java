@@ -0,0 +1,99 @@
+package chatApp.benchmark;
+
+import chatApp.entities.User;
+import chatApp.entities.UserType;
+import chatApp.repository.UserRepository;
+import chatApp.service.AuthService;
+import chatApp.service.PasswordHasher;
+import chatApp.service.SessionStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Login throughput per BCrypt cost from 4 request threads: the whole AuthService.login with the password checked
+ * on the hashing pool, against the encoder built on the request thread for every call as login used to do.
+ * The repository is a mock, so the numbers are the hashing cost alone, every step of cost halves them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(4)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+    private static final String email = "bench@gmail.com";
+    private static final String password = "abcdABCD123";
+
+    @Param({"8", "10", "12"})
+    private int cost;
+
+    private AuthService authService;
+    private PasswordHasher passwordHasher;
+    private SessionStore sessionStore;
+    private String hash;
+
+    @Setup
+    public void setUp() throws Exception {
+        passwordHasher = new PasswordHasher();
+        ReflectionTestUtils.setField(passwordHasher, "strength", cost);
+        ReflectionTestUtils.setField(passwordHasher, "queueCapacity", 64);
+        ReflectionTestUtils.setField(passwordHasher, "timeoutMs", 60000L);
+        invoke(passwordHasher, "start");
+        hash = passwordHasher.hash(password);
+
+        User user = User.createUser("bench", email, hash);
+        user.setType(UserType.REGISTERED);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(email)).thenReturn(user);
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        sessionStore = new SessionStore();
+        ReflectionTestUtils.setField(sessionStore, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(sessionStore, "idleMinutes", 60L);
+        ReflectionTestUtils.setField(sessionStore, "tickMs", 1000L);
+        invoke(sessionStore, "start");
+
+        authService = new AuthService();
+        ReflectionTestUtils.setField(authService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(authService, "sessionStore", sessionStore);
+        ReflectionTestUtils.setField(authService, "passwordHasher", passwordHasher);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        invoke(passwordHasher, "stop");
+        invoke(sessionStore, "stop");
+    }
+
+    @Benchmark
+    public User login() {
+        return authService.login(User.createUser("bench", email, password));
+    }
+
+    @Benchmark
+    public boolean newEncoderPerCall() {
+        return new BCryptPasswordEncoder().matches(password, hash);
+    }
+
+    private static void invoke(Object target, String methodName) throws Exception {
+        Method method = target.getClass().getDeclaredMethod(methodName);
+        method.setAccessible(true);
+        method.invoke(target);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PasswordHashBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,122 @@
+package chatApp.benchmark;
+
+import chatApp.entities.User;
+import chatApp.entities.UserType;
+import chatApp.filter.AuthFilter;
+import chatApp.repository.UserRepository;
+import chatApp.service.AuthService;
+import chatApp.service.SessionStore;
+import chatApp.utilities.PathPermissionTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import static chatApp.utilities.Utility.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Permission check overhead of one authenticated REST call: the db lookup the permission filter used to do on every
+ * request against the session cache lookup and the whole auth filter done now, and the substring scan of the path
+ * lists against the compiled path trie. The repository is a mock, so the db path doesn't even include the round trip
+ * to MySQL and is a lower bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionFilterBenchmark {
+
+    private static final String email = "bench@gmail.com";
+
+    private AuthFilter authFilter;
+    private UserRepository userRepository;
+    private SessionStore sessionStore;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private final FilterChain chain = (req, res) -> {
+    };
+    private String token;
+    private final PathPermissionTable permissionTable = PathPermissionTable.compile(permissionPathsForAll, permissionPathsForGuest, noPermissionsPathsForRegistered);
+
+    @Setup
+    public void setUp() throws Exception {
+        User user = User.createUser("bench", email, "Aa123456");
+        user.setType(UserType.REGISTERED);
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(email)).thenReturn(user);
+
+        sessionStore = new SessionStore();
+        ReflectionTestUtils.setField(sessionStore, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(sessionStore, "idleMinutes", 60L);
+        ReflectionTestUtils.setField(sessionStore, "tickMs", 1000L);
+        invoke(sessionStore, "start");
+        token = sessionStore.open(user);
+
+        AuthService authService = new AuthService();
+        ReflectionTestUtils.setField(authService, "sessionStore", sessionStore);
+        ReflectionTestUtils.setField(authService, "userRepository", userRepository);
+        authFilter = new AuthFilter();
+        ReflectionTestUtils.setField(authFilter, "authService", authService);
+
+        request = new MockHttpServletRequest("PUT", "/user/update");
+        request.setParameter("token", token);
+        response = new MockHttpServletResponse();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        invoke(sessionStore, "stop");
+    }
+
+    @Benchmark
+    public UserType dbLookup() {
+        String userEmail = sessionStore.getEmail(token);
+        return User.dbUser(userRepository.findByEmail(userEmail)).getType();
+    }
+
+    @Benchmark
+    public UserType sessionLookup() {
+        return sessionStore.getType(token);
+    }
+
+    @Benchmark
+    public boolean pathListScan() {
+        String path = request.getRequestURI();
+        return permissionPathsForAll.stream().noneMatch(path::contains)
+                && permissionPathsForGuest.stream().noneMatch(path::contains)
+                && noPermissionsPathsForRegistered.stream().noneMatch(path::contains);
+    }
+
+    @Benchmark
+    public int pathTrieLookup() {
+        return permissionTable.lookup(request.getRequestURI());
+    }
+
+    @Benchmark
+    public int authFilter() throws IOException, ServletException {
+        authFilter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+
+    private static void invoke(Object target, String methodName) throws Exception {
+        Method method = target.getClass().getDeclaredMethod(methodName);
+        method.setAccessible(true);
+        method.invoke(target);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PermissionFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,54 @@
+package chatApp.benchmark;
+
+import chatApp.customEntities.CustomResponse;
+import chatApp.customEntities.UserDTO;
+import chatApp.entities.User;
+import chatApp.utilities.UserValidator.Field;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static chatApp.utilities.UserValidator.checkValidUser;
+import static chatApp.utilities.Utility.emptyString;
+import static chatApp.utilities.Utility.systemEmail;
+
+/**
+ * Validation of a valid register payload: the three checks the controllers used to chain, each compiling its
+ * regular expression on every call, against the single validator call with the scanners and the precompiled pattern
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserValidationBenchmark {
+
+    private final User user = User.createUser("Dani Cohen", "dani.cohen@gmail.com", "abcdABCD123");
+
+    @Benchmark
+    public boolean regexPerCall() {
+        String email = user.getEmail();
+        String name = user.getName();
+        String password = user.getPassword();
+        boolean validEmail = email.equals(emptyString) || Pattern.compile("^(.+)@(\\S+)$").matcher(email).matches();
+        boolean validName = name.equals(emptyString) || name.matches("^[ A-Za-z]+$");
+        boolean validPassword = password.equals(emptyString) || (password.matches(".*[A-Z].*") && password.length() >= 6);
+        return validEmail && !email.contains(systemEmail) && validName && validPassword;
+    }
+
+    @Benchmark
+    public boolean userValidator() {
+        Optional<CustomResponse<UserDTO>> invalid = checkValidUser(user, new CustomResponse<>(null, emptyString), Field.EMAIL, Field.NAME, Field.PASSWORD);
+        return !invalid.isPresent();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UserValidationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,33 @@
+package chatApp.configuration;
+
+import chatApp.filter.AuthFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class CustomWebSecurityConfigurerAdapterTest {
+
+    @Autowired
+    private FilterRegistrationBean<AuthFilter> authFilterRegistration;
+
+    @Autowired
+    private FilterChainProxy filterChainProxy;
+
+    @Test
+    void authFilter_registeredInSecurityChainOnly() {
+        assertFalse(authFilterRegistration.isEnabled());
+        long inChain = filterChainProxy.getFilterChains().stream()
+                .flatMap(chain -> chain.getFilters().stream())
+                .filter(filter -> filter instanceof AuthFilter)
+                .count();
+        assertEquals(1, inChain);
+    }
+}
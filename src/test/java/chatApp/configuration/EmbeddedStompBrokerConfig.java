@@ -0,0 +1,63 @@
+package chatApp.configuration;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.config.impl.SecurityConfiguration;
+import org.apache.activemq.artemis.core.security.Role;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.spi.core.security.ActiveMQJAASSecurityManager;
+import org.apache.activemq.artemis.spi.core.security.jaas.InVMLoginModule;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+import static chatApp.utilities.messages.LoggerMessages.*;
+
+/**
+ * Test stand-in for the external broker of the relay mode: an in-memory Artemis broker with a STOMP acceptor on
+ * localhost, started when chat.broker.relay.embedded=true so one test node can serve the relay of the others.
+ * Only the relay client and system logins may connect
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.broker.relay.embedded", havingValue = "true")
+public class EmbeddedStompBrokerConfig {
+
+    private static final Logger logger = LogManager.getLogger(EmbeddedStompBrokerConfig.class.getName());
+    private static final String relayRole = "chat-relay";
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+    @Value("${chat.broker.relay.client-login:guest}")
+    private String relayClientLogin;
+    @Value("${chat.broker.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+    @Value("${chat.broker.relay.system-login:guest}")
+    private String relaySystemLogin;
+    @Value("${chat.broker.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    @Bean(destroyMethod = "stop")
+    public EmbeddedActiveMQ embeddedStompBroker() throws Exception {
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(true);
+        configuration.setJMXManagementEnabled(false);
+        configuration.putSecurityRoles("#", Set.of(new Role(relayRole, true, true, true, true, true, true, false, true, true, true)));
+        configuration.addAcceptorConfiguration("stomp", "tcp://localhost:" + relayPort + "?protocols=STOMP");
+        SecurityConfiguration users = new SecurityConfiguration();
+        users.addUser(relayClientLogin, relayClientPasscode);
+        users.addRole(relayClientLogin, relayRole);
+        users.addUser(relaySystemLogin, relaySystemPasscode);
+        users.addRole(relaySystemLogin, relayRole);
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        broker.setSecurityManager(new ActiveMQJAASSecurityManager(InVMLoginModule.class.getName(), users));
+        broker.start();
+        logger.info(embeddedBrokerStarted(relayPort));
+        return broker;
+    }
+}
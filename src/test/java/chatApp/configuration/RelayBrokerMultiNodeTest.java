@@ -0,0 +1,151 @@
+package chatApp.configuration;
+
+import chatApp.chatApp;
+import chatApp.entities.User;
+import chatApp.service.AuthService;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two chat nodes in one JVM sharing the embedded STOMP broker started by the first one,
+ * a message published on one node must reach a subscriber connected to the other node
+ */
+class RelayBrokerMultiNodeTest {
+
+    @Test
+    void mainChatMessage_publishedOnNodeA_receivedOnNodeB() throws Exception {
+        int stompPort = freePort();
+        try (ConfigurableApplicationContext nodeA = startNode(stompPort, true);
+             ConfigurableApplicationContext nodeB = startNode(stompPort, false)) {
+            awaitBrokerAvailable(nodeA);
+            awaitBrokerAvailable(nodeB);
+
+            WebSocketStompClient stompClient = new WebSocketStompClient(new SockJsClient(Collections.singletonList(new WebSocketTransport(new StandardWebSocketClient()))));
+            stompClient.setMessageConverter(new StringMessageConverter());
+            ThreadPoolTaskScheduler receiptScheduler = new ThreadPoolTaskScheduler();
+            receiptScheduler.initialize();
+            stompClient.setTaskScheduler(receiptScheduler);
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("token", guestToken(nodeB));
+            StompSession session = stompClient.connect("ws://localhost:" + serverPort(nodeB) + "/ws", new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+            }).get(10, TimeUnit.SECONDS);
+            session.setAutoReceipt(true);
+
+            BlockingQueue<String> received = new LinkedBlockingQueue<>();
+            CountDownLatch subscribed = new CountDownLatch(1);
+            session.subscribe("/topic/mainChat", new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return String.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    received.add((String) payload);
+                }
+            }).addReceiptTask(subscribed::countDown);
+            assertTrue(subscribed.await(10, TimeUnit.SECONDS));
+
+            nodeA.getBean(SimpMessagingTemplate.class).convertAndSend("/topic/mainChat", "hello from node A");
+
+            assertEquals("hello from node A", received.poll(10, TimeUnit.SECONDS));
+            session.disconnect();
+            stompClient.stop();
+            receiptScheduler.shutdown();
+        }
+    }
+
+    @Test
+    void embeddedBroker_wrongPasscode_connectRefused() throws Exception {
+        int stompPort = freePort();
+        EmbeddedStompBrokerConfig brokerConfig = new EmbeddedStompBrokerConfig();
+        ReflectionTestUtils.setField(brokerConfig, "relayPort", stompPort);
+        ReflectionTestUtils.setField(brokerConfig, "relayClientLogin", "guest");
+        ReflectionTestUtils.setField(brokerConfig, "relayClientPasscode", "guest");
+        ReflectionTestUtils.setField(brokerConfig, "relaySystemLogin", "guest");
+        ReflectionTestUtils.setField(brokerConfig, "relaySystemPasscode", "guest");
+        EmbeddedActiveMQ broker = brokerConfig.embeddedStompBroker();
+        try {
+            assertTrue(connectFrame(stompPort, "guest", "guest").startsWith("CONNECTED"));
+            assertTrue(connectFrame(stompPort, "guest", "wrong").startsWith("ERROR"));
+        } finally {
+            broker.stop();
+        }
+    }
+
+    private String connectFrame(int stompPort, String login, String passcode) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), stompPort)) {
+            socket.setSoTimeout(10000);
+            socket.getOutputStream().write(("CONNECT\naccept-version:1.2\nhost:localhost\nlogin:" + login + "\npasscode:" + passcode + "\n\n\0").getBytes(StandardCharsets.UTF_8));
+            StringBuilder frame = new StringBuilder();
+            int b;
+            while ((b = socket.getInputStream().read()) > 0) {
+                frame.append((char) b);
+            }
+            return frame.toString();
+        }
+    }
+
+    private ConfigurableApplicationContext startNode(int stompPort, boolean embeddedBroker) {
+        return new SpringApplicationBuilder(chatApp.class).properties(
+                "server.port=0",
+                "chat.broker.mode=relay",
+                "chat.broker.relay.port=" + stompPort,
+                "chat.broker.relay.embedded=" + embeddedBroker).run();
+    }
+
+    private String guestToken(ConfigurableApplicationContext node) {
+        User guest = User.createUser("relaytest", "relaytest@gmail.com", "Aa123456");
+        AuthService authService = node.getBean(AuthService.class);
+        return authService.getSessionToken(authService.addGuest(guest).getEmail());
+    }
+
+    private void awaitBrokerAvailable(ConfigurableApplicationContext node) throws InterruptedException {
+        AbstractBrokerMessageHandler relay = node.getBean("stompBrokerRelayMessageHandler", AbstractBrokerMessageHandler.class);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(15);
+        while (!relay.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertTrue(relay.isBrokerAvailable());
+    }
+
+    private int serverPort(ConfigurableApplicationContext node) {
+        return Integer.parseInt(node.getEnvironment().getProperty("local.server.port"));
+    }
+
+    private int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package chatApp.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedBrokerMessageHandlerTest {
+
+    private final BlockingQueue<Message<?>> sent = new LinkedBlockingQueue<>();
+    private ShardedBrokerMessageHandler broker;
+
+    @BeforeEach
+    void startBroker() {
+        broker = new ShardedBrokerMessageHandler(new ExecutorSubscribableChannel(), (message, timeout) -> sent.add(message),
+                new ExecutorSubscribableChannel(), List.of("/topic"), 4);
+        broker.start();
+        broker.handleMessage(connect("s1"));
+        broker.handleMessage(connect("s2"));
+        sent.clear();
+    }
+
+    @AfterEach
+    void stopBroker() {
+        broker.stop();
+    }
+
+    @Test
+    void handleMessage_subscribedRoom_sentToItsSubscriberOnTheRoomShard() throws InterruptedException {
+        broker.handleMessage(subscribe("s1", "sub1", "/topic/privatechat/1E2"));
+        broker.handleMessage(subscribe("s2", "sub1", "/topic/privatechat/1E3"));
+        broker.handleMessage(send("/topic/privatechat/1E2", "hello"));
+        Message<?> message = sent.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("s1", SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        assertEquals("hello", new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, broker.getFanOuts(new ShardedSubscriptionRegistry(4).shardOf("/topic/privatechat/1E2")));
+    }
+
+    @Test
+    void handleMessage_manyMessagesOfOneRoom_sentInOrder() throws InterruptedException {
+        broker.handleMessage(subscribe("s1", "sub1", "/topic/mainChat"));
+        for (int i = 0; i < 200; i++) {
+            broker.handleMessage(send("/topic/mainChat", "message " + i));
+        }
+        for (int i = 0; i < 200; i++) {
+            Message<?> message = sent.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertEquals("message " + i, new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private Message<byte[]> connect(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private Message<byte[]> subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private Message<byte[]> send(String destination, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+}
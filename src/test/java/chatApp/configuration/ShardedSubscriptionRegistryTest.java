@@ -0,0 +1,160 @@
+package chatApp.configuration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedSubscriptionRegistryTest {
+
+    private ShardedSubscriptionRegistry registry;
+
+    @BeforeEach
+    void newRegistry() {
+        registry = new ShardedSubscriptionRegistry(4);
+    }
+
+    @Test
+    void findSubscriptions_exactDestination_onlyThatRoomSubscribers() {
+        registry.registerSubscription(subscribe("s1", "sub1", "/topic/privatechat/1E2"));
+        registry.registerSubscription(subscribe("s2", "sub1", "/topic/privatechat/1E3"));
+        MultiValueMap<String, String> subscriptions = registry.findSubscriptions(send("/topic/privatechat/1E2"));
+        assertEquals(Collections.singletonList("sub1"), subscriptions.get("s1"));
+        assertFalse(subscriptions.containsKey("s2"));
+    }
+
+    @Test
+    void findSubscriptions_patternDestination_matchedWithExactOnes() {
+        registry.registerSubscription(subscribe("s1", "sub1", "/topic/mainChat"));
+        registry.registerSubscription(subscribe("s2", "sub2", "/topic/**"));
+        MultiValueMap<String, String> subscriptions = registry.findSubscriptions(send("/topic/mainChat"));
+        assertEquals(2, subscriptions.size());
+    }
+
+    @Test
+    void unregisterAllSubscriptions_sessionClosed_noSubscriptionsLeft() {
+        registry.registerSubscription(subscribe("s1", "sub1", "/topic/mainChat"));
+        registry.registerSubscription(subscribe("s1", "sub2", "/topic/privatechat/1E2"));
+        registry.unregisterAllSubscriptions("s1");
+        assertTrue(registry.findSubscriptions(send("/topic/mainChat")).isEmpty());
+        assertTrue(registry.findSubscriptions(send("/topic/privatechat/1E2")).isEmpty());
+    }
+
+    @Test
+    void unregisterSubscription_oneOfTwo_otherStillFound() {
+        registry.registerSubscription(subscribe("s1", "sub1", "/topic/mainChat"));
+        registry.registerSubscription(subscribe("s2", "sub1", "/topic/mainChat"));
+        registry.unregisterSubscription(unsubscribe("s1", "sub1"));
+        MultiValueMap<String, String> subscriptions = registry.findSubscriptions(send("/topic/mainChat"));
+        assertEquals(1, subscriptions.size());
+        assertTrue(subscriptions.containsKey("s2"));
+    }
+
+    @Test
+    void registerSubscription_concurrentWithLastUnsubscribe_neverLost() throws Exception {
+        int rooms = 4;
+        int rounds = 50000;
+        ExecutorService threads = Executors.newFixedThreadPool(rooms * 2);
+        try {
+            List<Future<?>> churns = new ArrayList<>();
+            List<Future<Integer>> lost = new ArrayList<>();
+            for (int room = 0; room < rooms; room++) {
+                String destination = "/topic/privatechat/1E" + room;
+                churns.add(threads.submit(() -> {
+                    for (int i = 0; i < rounds; i++) {
+                        registry.registerSubscription(subscribe("churn" + destination, "sub", destination));
+                        registry.unregisterSubscription(unsubscribe("churn" + destination, "sub"));
+                    }
+                }));
+                lost.add(threads.submit(() -> {
+                    int lostSubscriptions = 0;
+                    for (int i = 0; i < rounds; i++) {
+                        registry.registerSubscription(subscribe("keeper" + destination, "sub", destination));
+                        if (!registry.findSubscriptions(send(destination)).containsKey("keeper" + destination)) {
+                            lostSubscriptions++;
+                        }
+                        registry.unregisterSubscription(unsubscribe("keeper" + destination, "sub"));
+                    }
+                    return lostSubscriptions;
+                }));
+            }
+            for (Future<?> churn : churns) {
+                churn.get(60, TimeUnit.SECONDS);
+            }
+            for (Future<Integer> lostSubscriptions : lost) {
+                assertEquals(0, lostSubscriptions.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void registerSubscription_concurrentWithLookups_foundRightAfterAdd() throws Exception {
+        int readers = 4;
+        for (int i = 0; i < 5000; i++) {
+            registry.registerSubscription(subscribe("other" + i, "sub", "/topic/mainChat"));
+        }
+        AtomicBoolean adding = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            for (int i = 0; i < readers; i++) {
+                executor.execute(() -> {
+                    while (adding.get()) {
+                        registry.findSubscriptions(send("/topic/mainChat"));
+                    }
+                });
+            }
+            for (int i = 0; i < 500; i++) {
+                registry.registerSubscription(subscribe("s" + i, "sub" + i, "/topic/mainChat"));
+                assertTrue(registry.findSubscriptions(send("/topic/mainChat")).containsKey("s" + i), "s" + i);
+                registry.unregisterSubscription(unsubscribe("s" + i, "sub" + i));
+                assertFalse(registry.findSubscriptions(send("/topic/mainChat")).containsKey("s" + i), "s" + i);
+            }
+        } finally {
+            adding.set(false);
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void shardOf_sameDestination_sameShard() {
+        assertEquals(registry.shardOf("/topic/privatechat/1E2"), registry.shardOf("/topic/privatechat/1E2"));
+    }
+
+    private Message<byte[]> subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private Message<byte[]> unsubscribe(String sessionId, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private Message<byte[]> send(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
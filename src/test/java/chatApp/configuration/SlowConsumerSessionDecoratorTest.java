@@ -0,0 +1,185 @@
+package chatApp.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SlowConsumerSessionDecoratorTest {
+
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private SlowConsumerWebSocketHandler handler;
+
+    @AfterEach
+    void releaseSocket() {
+        release.countDown();
+    }
+
+    @Test
+    void sendMessage_dropPolicyOverBuffer_oldestDropped() throws Exception {
+        SlowConsumerSessionDecorator session = stuckSession(SlowConsumerPolicy.DROP, 10000, 100);
+        for (int i = 1; i <= 6; i++) {
+            session.sendMessage(frame("/topic/mainChat", "message " + i));
+        }
+        assertTrue(session.getBufferSize() <= 100);
+        assertTrue(handler.getDroppedMessages() > 0);
+        release.countDown();
+        waitForDrained(session);
+        session.sendMessage(frame("/topic/mainChat", "message 7"));
+        waitForWritten("message 7");
+        assertEquals("message 0", written.get(0));
+        assertEquals("message 7", written.get(written.size() - 1));
+        assertEquals(0, session.getBufferSize());
+    }
+
+    @Test
+    void sendMessage_coalescePolicyOverBuffer_newestPerDestinationKept() throws Exception {
+        SlowConsumerSessionDecorator session = stuckSession(SlowConsumerPolicy.COALESCE, 10000, 150);
+        session.sendMessage(frame("/topic/mainChat", "chat"));
+        session.sendMessage(frame("/topic/presence", "presence 1"));
+        session.sendMessage(frame("/topic/presence", "presence 2"));
+        session.sendMessage(frame("/topic/presence", "presence 3"));
+        assertEquals(2, handler.getCoalescedMessages());
+        assertEquals(0, handler.getDroppedMessages());
+        release.countDown();
+        waitForDrained(session);
+        session.sendMessage(frame("/topic/mainChat", "chat 2"));
+        waitForWritten("chat 2");
+        assertEquals(List.of("message 0", "chat", "presence 3", "chat 2"), written);
+    }
+
+    @Test
+    void sendMessage_dropPolicyOverBuffer_controlFramesKept() throws Exception {
+        SlowConsumerSessionDecorator session = stuckSession(SlowConsumerPolicy.DROP, 10000, 100);
+        session.sendMessage(control("RECEIPT\nreceipt-id:1\n\n\u0000"));
+        for (int i = 1; i <= 6; i++) {
+            session.sendMessage(frame("/topic/mainChat", "message " + i));
+        }
+        session.sendMessage(control("ERROR\nmessage:failed\n\n\u0000"));
+        assertTrue(handler.getDroppedMessages() > 0);
+        release.countDown();
+        waitForDrained(session);
+        waitForWritten("ERROR");
+        assertTrue(written.contains("RECEIPT"));
+        assertTrue(written.indexOf("RECEIPT") < written.indexOf("ERROR"));
+    }
+
+    @Test
+    void sendMessage_coalescePolicyOverBuffer_controlFramesKept() throws Exception {
+        SlowConsumerSessionDecorator session = stuckSession(SlowConsumerPolicy.COALESCE, 10000, 150);
+        session.sendMessage(control("RECEIPT\nreceipt-id:1\n\n\u0000"));
+        session.sendMessage(control("RECEIPT\nreceipt-id:2\n\n\u0000"));
+        for (int i = 1; i <= 6; i++) {
+            session.sendMessage(frame("/topic/presence", "presence " + i));
+        }
+        assertEquals(0, handler.getDroppedMessages());
+        release.countDown();
+        waitForDrained(session);
+        waitForWritten("presence 6");
+        assertEquals(List.of("message 0", "RECEIPT", "RECEIPT", "presence 6"), written);
+    }
+
+    @Test
+    void sendMessage_disconnectPolicyOverBuffer_sessionLimitExceeded() throws Exception {
+        SlowConsumerSessionDecorator session = stuckSession(SlowConsumerPolicy.DISCONNECT, 10000, 100);
+        session.sendMessage(frame("/topic/mainChat", "message 1"));
+        assertThrows(SessionLimitExceededException.class, () -> session.sendMessage(frame("/topic/mainChat", "message 2")));
+        assertEquals(1, handler.getDisconnectedSessions());
+        session.sendMessage(frame("/topic/mainChat", "ignored"));
+        assertEquals(1, handler.getDisconnectedSessions());
+    }
+
+    @Test
+    void sendMessage_sendStuckPastTimeLimit_disconnectedWhateverThePolicy() throws Exception {
+        SlowConsumerSessionDecorator session = stuckSession(SlowConsumerPolicy.DROP, 10, 100000);
+        Thread.sleep(50);
+        assertThrows(SessionLimitExceededException.class, () -> session.sendMessage(frame("/topic/mainChat", "message 1")));
+        assertEquals(1, handler.getDisconnectedSessions());
+        assertEquals(0, handler.getDroppedMessages());
+    }
+
+    @Test
+    void sendMessage_publishOrderCallback_calledForEveryBufferedFrame() throws Exception {
+        SlowConsumerSessionDecorator session = stuckSession(SlowConsumerPolicy.DROP, 10000, 100000);
+        List<String> callbacks = new CopyOnWriteArrayList<>();
+        session.setMessageCallback(message -> callbacks.add(body(message)));
+        session.sendMessage(frame("/topic/mainChat", "message 1"));
+        session.sendMessage(frame("/topic/mainChat", "message 2"));
+        assertEquals(List.of("message 1", "message 2"), callbacks);
+    }
+
+    /**
+     * a session whose socket write of the first message blocks until release
+     */
+    private SlowConsumerSessionDecorator stuckSession(SlowConsumerPolicy policy, int sendTimeLimit, int bufferSizeLimit) throws Exception {
+        handler = new SlowConsumerWebSocketHandler(mock(MessageChannel.class), mock(SubscribableChannel.class), policy);
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("session");
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            written.add(body(invocation.getArgument(0)));
+            return null;
+        }).when(delegate).sendMessage(any());
+        SlowConsumerSessionDecorator session = new SlowConsumerSessionDecorator(delegate, sendTimeLimit, bufferSizeLimit, policy, handler);
+        Thread writer = new Thread(() -> {
+            try {
+                session.sendMessage(frame("/topic/mainChat", "message 0"));
+            } catch (IOException | RuntimeException ignored) {
+            }
+        });
+        writer.setDaemon(true);
+        writer.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        return session;
+    }
+
+    private static void waitForDrained(SlowConsumerSessionDecorator session) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (session.getBufferSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void waitForWritten(String body) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!written.contains(body) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static TextMessage frame(String destination, String body) {
+        return new TextMessage("MESSAGE\ndestination:" + destination + "\ncontent-type:text/plain\n\n" + body + "\u0000");
+    }
+
+    private static TextMessage control(String frame) {
+        return new TextMessage(frame);
+    }
+
+    /**
+     * the body of a MESSAGE frame, the command of the other frames
+     */
+    private static String body(WebSocketMessage<?> message) {
+        String frame = ((TextMessage) message).getPayload();
+        if (!frame.startsWith("MESSAGE\n")) {
+            return frame.substring(0, frame.indexOf('\n'));
+        }
+        return frame.substring(frame.indexOf("\n\n") + 2, frame.length() - 1);
+    }
+}
@@ -0,0 +1,83 @@
+package chatApp.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketChannelStatsTest {
+
+    private WebSocketChannelStats stats;
+    private ThreadPoolTaskExecutor inboundExecutor;
+    private ThreadPoolTaskExecutor outboundExecutor;
+
+    @BeforeEach
+    void newStats() {
+        inboundExecutor = newExecutor("clientInboundChannel-");
+        outboundExecutor = newExecutor("clientOutboundChannel-");
+        stats = new WebSocketChannelStats();
+        ReflectionTestUtils.setField(stats, "inboundExecutor", inboundExecutor);
+        ReflectionTestUtils.setField(stats, "outboundExecutor", outboundExecutor);
+    }
+
+    @AfterEach
+    void shutdownExecutors() {
+        inboundExecutor.shutdown();
+        outboundExecutor.shutdown();
+    }
+
+    @Test
+    void gauges_inboundBlocked_outboundStillDrains() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 5; i++) {
+            inboundExecutor.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CountDownLatch delivered = new CountDownLatch(1);
+        outboundExecutor.execute(delivered::countDown);
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2, stats.getInboundActiveThreads());
+        assertEquals(3, stats.getInboundQueueDepth());
+        release.countDown();
+        waitFor(() -> stats.getInboundCompletedTasks() == 5 && stats.getOutboundCompletedTasks() == 1);
+        assertEquals(0, stats.getInboundQueueDepth());
+    }
+
+    private ThreadPoolTaskExecutor newExecutor(String threadNamePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(10);
+        executor.initialize();
+        return executor;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
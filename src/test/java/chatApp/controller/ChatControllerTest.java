@@ -1,20 +1,25 @@
 package chatApp.controller;
 
+import chatApp.customEntities.ChatPrincipal;
 import chatApp.customEntities.CustomResponse;
 import chatApp.customEntities.UserDTO;
 import chatApp.entities.Message;
 import chatApp.entities.User;
+import chatApp.entities.UserType;
 import chatApp.repository.MessageRepository;
 import chatApp.repository.UserRepository;
 import chatApp.service.AuthService;
+import chatApp.service.ChatBroadcaster;
 import chatApp.service.MessageService;
 import chatApp.service.UserService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -25,6 +30,8 @@ import java.util.List;
 import static chatApp.utilities.messages.ExceptionMessages.*;
 import static chatApp.utilities.messages.SuccessMessages.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static chatApp.utilities.Utility.*;
 
 
@@ -43,6 +50,8 @@ class ChatControllerTest {
     private MessageRepository messageRepository;
     @Autowired
     private UserRepository userRepository;
+    @MockBean
+    private ChatBroadcaster chatBroadcaster;
 
     Message mainMessage;
     Message privateMessage;
@@ -72,102 +81,121 @@ class ChatControllerTest {
 
     @Test
     void sendMainPlainMessage_contentResponseEqualsContentFromClient_equals() {
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendMainPlainMessage(mainMessage);
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendMain(mainMessage);
         assertEquals(responseMessage.getBody().getResponse().getContent(), mainMessage.getContent());
     }
 
     @Test
     void sendMainPlainMessage_contentInDatabaseEqualsContentFromClient_equals() {
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendMainPlainMessage(mainMessage);
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendMain(mainMessage);
         assertEquals(responseMessage.getBody().getResponse().getContent(), messageRepository.findByContent(responseMessage.getBody().getResponse().getContent()).get(0).getContent());
     }
 
     @Test
-    void sendMainPlainMessage_senderResponseEqualsSenderResponse_equals() {
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendMainPlainMessage(mainMessage);
-        assertEquals(responseMessage.getBody().getResponse().getSender(), mainMessage.getSender());
+    void sendMainPlainMessage_senderResponseEqualsSessionUser_equals() {
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendMain(mainMessage);
+        assertEquals(responseMessage.getBody().getResponse().getSender(), userSender.getNickname());
     }
 
     @Test
     void sendMainPlainMessage_senderInDatabaseEqualsSenderResponse_equals() {
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendMainPlainMessage(mainMessage);
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendMain(mainMessage);
         assertEquals(responseMessage.getBody().getResponse().getSender(), messageRepository.findBySenderAndContent(responseMessage.getBody().getResponse().getSender(), responseMessage.getBody().getResponse().getContent()).get(0).getSender());
     }
 
     @Test
     void sendMainPlainMessage_roomIdIsZero_equals() {
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendMainPlainMessage(mainMessage);
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendMain(mainMessage);
         assertEquals(responseMessage.getBody().getResponse().getRoomId(), "0");
     }
 
     @Test
     void sendMainPlainMessage_userIsMuted_badRequest() {
-        userSender.setMute(true);
-        userRepository.deleteAll();
-        User.dbUser(userRepository.save(userSender));
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendMainPlainMessage(mainMessage);
+        User admin = User.createUser("admin", "admin@gmail.com", "Aa12345");
+        admin.setType(UserType.ADMIN);
+        admin.setNickname("admin");
+        userRepository.save(admin);
+        userService.updateMuteUnmuteUser(userSender.getId(), admin.getEmail());
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendMain(mainMessage);
         assertEquals(userIsMutedMessage , responseMessage.getBody().getMessage());
     }
 
 
     @Test
     void sendPrivatePlainMessage_contentInDatabaseEqualsContentFromClient_equals() {
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendPrivatePlainMessage(privateMessage);
-        assertEquals(responseMessage.getBody().getResponse().getContent(), privateMessage.getContent());
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendPrivate(privateMessage.getRoomId(), privateMessage);
+        assertEquals(responseMessage.getBody().getResponse().getContent(), messageRepository.findById(responseMessage.getBody().getResponse().getId()).get().getContent());
     }
 
     @Test
-    void sendPrivatePlainMessage_senderInDatabaseEqualsSenderFromClient_equals() {
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendPrivatePlainMessage(privateMessage);
-        assertEquals(responseMessage.getBody().getResponse().getSender(), privateMessage.getSender());
+    void sendPrivatePlainMessage_senderInDatabaseEqualsSessionUser_equals() {
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendPrivate(privateMessage.getRoomId(), privateMessage);
+        assertEquals(userSender.getNickname(), messageRepository.findById(responseMessage.getBody().getResponse().getId()).get().getSender());
     }
 
     @Test
     void sendPrivatePlainMessage_receiverInDatabaseEqualsReceiverFromClient_equals() {
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendPrivatePlainMessage(privateMessage);
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendPrivate(privateMessage.getRoomId(), privateMessage);
         assertEquals(responseMessage.getBody().getResponse().getReceiver(), privateMessage.getReceiver());
     }
 
     @Test
     void sendPrivatePlainMessage_roomIdIs1E2_equals() {
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendPrivatePlainMessage(privateMessage);
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendPrivate(privateMessage.getRoomId(), privateMessage);
         assertEquals(responseMessage.getBody().getResponse().getRoomId(), privateMessage.getRoomId());
     }
 
     @Test
-    void sendPrivatePlainMessage_roomIdNull_badRequestResponse() {
-        privateMessage.setRoomId(null);
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendPrivatePlainMessage(privateMessage);
+    void sendPrivatePlainMessage_otherRoomInBody_savedInDestinationRoom() {
+        privateMessage.setRoomId(userReceiver.getId() + separator + (userReceiver.getId() + 1000));
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendPrivate(userSender.getId() + separator + userReceiver.getId(), privateMessage);
+        assertEquals(privateRoomId(userSender.getId(), userReceiver.getId()), messageRepository.findById(responseMessage.getBody().getResponse().getId()).get().getRoomId());
+    }
+
+    @Test
+    void sendPrivatePlainMessage_senderNotRoomMember_badRequestAndNotSaved() {
+        String otherRoomId = userReceiver.getId() + separator + (userReceiver.getId() + 1000);
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendPrivate(otherRoomId, privateMessage);
         assertEquals(HttpStatus.BAD_REQUEST, responseMessage.getStatusCode());
+        assertEquals(notRoomMemberMessage, responseMessage.getBody().getMessage());
+        assertTrue(messageRepository.findByRoomId(canonicalRoomId(otherRoomId)).isEmpty());
     }
 
     @Test
     void sendPrivatePlainMessage_roomIdIsNotZero_equals() {
-        ResponseEntity<CustomResponse<Message>> responseMessage = chatController.sendPrivatePlainMessage(privateMessage);
+        ResponseEntity<CustomResponse<Message>> responseMessage = sendPrivate(privateMessage.getRoomId(), privateMessage);
         assertNotEquals(responseMessage.getBody().getResponse().getRoomId(), "0");
     }
 
 
     @Test
     void getAllUsers_checkIfEmpty_notEmpty() {
-        ResponseEntity<CustomResponse<List<UserDTO>>> responseUsers = chatController.getAllUsers();
+        ResponseEntity<CustomResponse<List<UserDTO>>> responseUsers = chatController.getAllUsers(null);
         assertFalse(responseUsers.getBody().getResponse().isEmpty());
     }
 
     @Test
     void getAllUsers__badRequestResponse() {
-        ResponseEntity<CustomResponse<List<UserDTO>>> responseUsers = chatController.getAllUsers();
+        ResponseEntity<CustomResponse<List<UserDTO>>> responseUsers = chatController.getAllUsers(null);
         assertFalse(responseUsers.getBody().getResponse().isEmpty());
     }
+    @Test
+    void getAllUsers_unchangedListEtag_notModified() {
+        String etag = chatController.getAllUsers(null).getHeaders().getETag();
+        ResponseEntity<CustomResponse<List<UserDTO>>> responseUsers = chatController.getAllUsers(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, responseUsers.getStatusCode());
+        assertNull(responseUsers.getBody());
+    }
+
     @Test
     void getAllUsers_checkUserInDatabaseEqualsUserResponse_equals() {
-        ResponseEntity<CustomResponse<List<UserDTO>>> responseUsers = chatController.getAllUsers();
+        ResponseEntity<CustomResponse<List<UserDTO>>> responseUsers = chatController.getAllUsers(null);
         assertTrue(responseUsers.getBody().getResponse().get(0).equals(UserDTO.userToUserDTO(userRepository.findByEmail(userSender.getEmail()))));
     }
 
     @Test
     void getAllUsers_checkIfUserDTOInFirstIndexIsUserSenderDTO_equals() {
-        ResponseEntity<CustomResponse<List<UserDTO>>> responseUsers = chatController.getAllUsers();
+        ResponseEntity<CustomResponse<List<UserDTO>>> responseUsers = chatController.getAllUsers(null);
         assertEquals(responseUsers.getBody().getMessage(), listOfAllUsersSuccessfulMessage);
     }
 
@@ -177,6 +205,24 @@ class ChatControllerTest {
         assertEquals(responseMessages.getBody().getResponse().get(0).getRoomId(), privateMessage.getRoomId());
     }
 
+    @Test
+    void getPrivateRoomHistory_roomMemberWithReversedRoomId_roomMessages() {
+        String token = authService.getSessionToken(userSender.getEmail());
+        ResponseEntity<CustomResponse<List<Message>>> response = chatController.getPrivateRoomHistory(token, userReceiver.getId() + separator + userSender.getId(), null, null, 10);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().getResponse().stream().allMatch(message -> message.getRoomId().equals(privateMessage.getRoomId())));
+        assertFalse(response.getBody().getResponse().isEmpty());
+    }
+
+    @Test
+    void getPrivateRoomHistory_notRoomMember_badRequest() {
+        String token = authService.getSessionToken(userSender.getEmail());
+        ResponseEntity<CustomResponse<List<Message>>> response = chatController.getPrivateRoomHistory(token, userReceiver.getId() + separator + (userReceiver.getId() + 1000), null, null, 10);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertNull(response.getBody().getResponse());
+        assertEquals(HttpStatus.BAD_REQUEST, chatController.getPrivateRoomHistory("unknown", privateMessage.getRoomId(), null, null, 10).getStatusCode());
+    }
+
     @Test
     void getMainRoom_checkIfOneMessageReturnedToClient_true() {
         ResponseEntity<CustomResponse<List<Message>>> responseMessages = chatController.getMainRoom(1);
@@ -201,4 +247,21 @@ class ChatControllerTest {
         assertEquals(responseMessages.getBody().getResponse().get(0).getRoomId(), mainMessage.getRoomId());
     }
 
-}
\ No newline at end of file
+    private ResponseEntity<CustomResponse<Message>> sendMain(Message message) {
+        chatController.sendMainPlainMessage(message, senderPrincipal());
+        ArgumentCaptor<ResponseEntity<CustomResponse<Message>>> response = ArgumentCaptor.forClass(ResponseEntity.class);
+        verify(chatBroadcaster).broadcastMain(response.capture());
+        return response.getValue();
+    }
+
+    private ResponseEntity<CustomResponse<Message>> sendPrivate(String roomId, Message message) {
+        chatController.sendPrivatePlainMessage(roomId, message, senderPrincipal());
+        ArgumentCaptor<ResponseEntity<CustomResponse<Message>>> response = ArgumentCaptor.forClass(ResponseEntity.class);
+        verify(chatBroadcaster).broadcastPrivate(eq(roomId), response.capture());
+        return response.getValue();
+    }
+
+    private ChatPrincipal senderPrincipal() {
+        return authService.getSessionPrincipal(authService.getSessionToken(userSender.getEmail()));
+    }
+}
@@ -7,6 +7,7 @@ import chatApp.entities.UserStatuses;
 import chatApp.entities.UserType;
 import chatApp.repository.UserRepository;
 import chatApp.service.AuthService;
+import chatApp.service.UserMessagesRenamer;
 import chatApp.service.UserService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -59,28 +60,28 @@ class UserControllerTest {
     @Test
     void updateUser_updateName_newName() {
         user.setName("ses");
-        ResponseEntity<CustomResponse<UserDTO>> user1 = userController.updateUser(user, authService.getKeyEmailsValTokens().get(user.getEmail()));
+        ResponseEntity<CustomResponse<UserDTO>> user1 = userController.updateUser(user, authService.getSessionToken(user.getEmail()));
         assertEquals(user.getName(), user1.getBody().getResponse().getName());
     }
 
     @Test
     void updateUser_updateInvalidEmail_invalidMessage() {
         user.setEmail("ses");
-        ResponseEntity<CustomResponse<UserDTO>> user1 = userController.updateUser(user, authService.getKeyEmailsValTokens().get(user.getEmail()));
+        ResponseEntity<CustomResponse<UserDTO>> user1 = userController.updateUser(user, authService.getSessionToken(user.getEmail()));
         assertEquals(tokenSessionExpired, user1.getBody().getMessage());
     }
 
     @Test
     void updateUser_updatePassword_invalidPasswordMessage() {
         user.setPassword("s");
-        ResponseEntity<CustomResponse<UserDTO>> user1 = userController.updateUser(user, authService.getKeyEmailsValTokens().get(user.getEmail()));
+        ResponseEntity<CustomResponse<UserDTO>> user1 = userController.updateUser(user, authService.getSessionToken(user.getEmail()));
         assertEquals(invalidPasswordMessage, user1.getBody().getMessage());
     }
 
     @Test
     void updateUser_updateName_invalidPasswordMessage() {
         user.setName("@");
-        ResponseEntity<CustomResponse<UserDTO>> user1 = userController.updateUser(user, authService.getKeyEmailsValTokens().get(user.getEmail()));
+        ResponseEntity<CustomResponse<UserDTO>> user1 = userController.updateUser(user, authService.getSessionToken(user.getEmail()));
         assertEquals(invalidNameMessage, user1.getBody().getMessage());
     }
 
@@ -96,19 +97,19 @@ class UserControllerTest {
         userRepository.deleteAll();
         User regularUser = authService.addUser(this.user1);
         User adminUser = User.dbUser(userRepository.save(user));
-        ResponseEntity<CustomResponse<UserDTO>> userTestRes = userController.updateMuteUser(authService.getKeyEmailsValTokens().get(adminUser.getEmail()), regularUser.getId());
+        ResponseEntity<CustomResponse<UserDTO>> userTestRes = userController.updateMuteUser(authService.getSessionToken(adminUser.getEmail()), regularUser.getId());
         assertEquals(!regularUser.isMute(), userTestRes.getBody().getResponse().isMute());
     }
 
     @Test
     void updateMuteUser_updateMute_failedCatch() {
-        ResponseEntity<CustomResponse<UserDTO>> userTestRes = userController.updateMuteUser(authService.getKeyEmailsValTokens().get(user.getEmail()), user1.getId());
+        ResponseEntity<CustomResponse<UserDTO>> userTestRes = userController.updateMuteUser(authService.getSessionToken(user.getEmail()), user1.getId());
         assertEquals(notAdminUser, userTestRes.getBody().getMessage());
     }
 
     @Test
     void updateStatusUser_updateStatus_successfulUpdate() {
-        ResponseEntity<CustomResponse<UserDTO>> userTestRes = userController.updateStatusUser(authService.getKeyEmailsValTokens().get(user.getEmail()), "online");
+        ResponseEntity<CustomResponse<UserDTO>> userTestRes = userController.updateStatusUser(authService.getSessionToken(user.getEmail()), "online");
         assertEquals(UserStatuses.ONLINE, userTestRes.getBody().getResponse().getUserStatus());
     }
 
@@ -119,7 +120,7 @@ class UserControllerTest {
     }
     @Test
     void logoutUser_logout_successLogout() {
-        ResponseEntity<CustomResponse<UserDTO>> userDTO = userController.logoutUser(authService.getKeyEmailsValTokens().get(user.getEmail()));
+        ResponseEntity<CustomResponse<UserDTO>> userDTO = userController.logoutUser(authService.getSessionToken(user.getEmail()));
         assertEquals(UserStatuses.OFFLINE, userDTO.getBody().getResponse().getUserStatus());
     }
     @Test
@@ -127,4 +128,16 @@ class UserControllerTest {
         ResponseEntity<CustomResponse<UserDTO>> userDTO = userController.logoutUser(null);
         assertEquals(tokenSessionExpired, userDTO.getBody().getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getRenameStatus_neverRenamed_noRenameMessage() {
+        ResponseEntity<CustomResponse<UserMessagesRenamer.RenameProgress>> status = userController.getRenameStatus(authService.getSessionToken(user.getEmail()));
+        assertEquals(noRenameMessage, status.getBody().getMessage());
+    }
+
+    @Test
+    void getRenameStatus_expiredToken_tokenSessionExpiredMessage() {
+        ResponseEntity<CustomResponse<UserMessagesRenamer.RenameProgress>> status = userController.getRenameStatus("unknown");
+        assertEquals(tokenSessionExpired, status.getBody().getMessage());
+    }
+}
@@ -0,0 +1,62 @@
+package chatApp.entities;
+
+import chatApp.repository.UserRepository;
+import chatApp.service.PresenceRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class PresenceListenerTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void deleteUsers() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void userSaved_transactionRolledBack_registryUnchanged() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.saveAndFlush(onlineUser("prolledback@gmail.com"));
+            assertFalse(isPresent("prolledback@gmail.com"));
+            status.setRollbackOnly();
+        });
+        assertFalse(isPresent("prolledback@gmail.com"));
+    }
+
+    @Test
+    void userSaved_transactionCommitted_registryUpdated() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.saveAndFlush(onlineUser("pcommitted@gmail.com"));
+            assertFalse(isPresent("pcommitted@gmail.com"));
+        });
+        assertTrue(isPresent("pcommitted@gmail.com"));
+    }
+
+    private User onlineUser(String email) {
+        User user = User.createUser("presence", email, "Aa123456");
+        user.setUserStatus(UserStatuses.ONLINE);
+        return user;
+    }
+
+    private boolean isPresent(String email) {
+        return presenceRegistry.getSnapshot().getUsers().stream().anyMatch(user -> email.equals(user.getEmail()));
+    }
+}
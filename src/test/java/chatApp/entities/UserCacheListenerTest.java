@@ -0,0 +1,69 @@
+package chatApp.entities;
+
+import chatApp.repository.UserRepository;
+import chatApp.service.UserCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class UserCacheListenerTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long userId;
+
+    @BeforeEach
+    void saveUser() {
+        userId = userRepository.save(User.createUser("cached", "ucache@gmail.com", "Aa123456")).getId();
+        assertEquals("ucache@gmail.com", userCache.getNickname(userId));
+    }
+
+    @AfterEach
+    void deleteUsers() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void userSaved_transactionRolledBack_cacheUnchanged() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            rename("rolledback");
+            assertEquals("ucache@gmail.com", userCache.getNickname(userId));
+            status.setRollbackOnly();
+        });
+        assertEquals("ucache@gmail.com", userCache.getNickname(userId));
+        assertNull(userCache.getUserId("rolledback"));
+    }
+
+    @Test
+    void userSaved_transactionCommitted_cacheUpdated() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            rename("committed");
+            assertEquals("ucache@gmail.com", userCache.getNickname(userId));
+        });
+        assertEquals("committed", userCache.getNickname(userId));
+        assertEquals(userId, userCache.getUserId("committed"));
+    }
+
+    private void rename(String nickname) {
+        User user = userRepository.findById(userId).orElseThrow();
+        user.setNickname(nickname);
+        userRepository.saveAndFlush(user);
+    }
+}
@@ -0,0 +1,97 @@
+package chatApp.filter;
+
+import chatApp.customEntities.ChatPrincipal;
+import chatApp.entities.UserType;
+import chatApp.service.AuthService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static chatApp.utilities.messages.ExceptionMessages.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StompAuthInterceptorTest {
+
+    private StompAuthInterceptor interceptor;
+    private AuthService authService;
+    private final ChatPrincipal principal = new ChatPrincipal("token", 1L, "test@gmail.com", "tester", UserType.REGISTERED);
+
+    @BeforeEach
+    void newInterceptor() {
+        authService = mock(AuthService.class);
+        when(authService.getSessionPrincipal("token")).thenReturn(principal);
+        interceptor = new StompAuthInterceptor();
+        ReflectionTestUtils.setField(interceptor, "authService", authService);
+    }
+
+    @Test
+    void preSend_connectWithValidToken_principalSetOnSession() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("token", "token");
+        accessor.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        interceptor.preSend(message, null);
+        assertSame(principal, accessor.getUser());
+    }
+
+    @Test
+    void preSend_connectWithUnknownToken_throwsIllegalArgument() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("token", "unknown");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null));
+        assertEquals(tokenSessionExpired, e.getMessage());
+    }
+
+    @Test
+    void preSend_sendWithoutPrincipal_throwsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> interceptor.preSend(frame(StompCommand.SEND, "/app/plain", null), null));
+    }
+
+    @Test
+    void preSend_subscribeToOthersPrivateRoom_throwsIllegalArgument() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/privatechat/2E3", principal), null));
+        assertEquals(notRoomMemberMessage, e.getMessage());
+    }
+
+    @Test
+    void preSend_sendToOwnPrivateRoomInAnyOrder_passes() {
+        Message<byte[]> message = frame(StompCommand.SEND, "/app/plain/privatechat/3E1", principal);
+        assertSame(message, interceptor.preSend(message, null));
+        assertNotNull(interceptor.preSend(frame(StompCommand.SEND, "/app/plain", principal), null));
+    }
+
+    @Test
+    void preSend_subscribeToCompactPrivateRoom_checkedAsTheRoom() {
+        Message<byte[]> message = frame(StompCommand.SUBSCRIBE, "/topic/privatechat/1E3.compact", principal);
+        assertSame(message, interceptor.preSend(message, null));
+        assertThrows(IllegalArgumentException.class, () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/privatechat/2E3.compact", principal), null));
+    }
+
+    @Test
+    void preSend_subscribeToDestinationPattern_throwsIllegalArgument() {
+        for (String destination : new String[]{"/topic/**", "/topic/*/1E3", "/topic/privatechat/*", "/topic/{room}", "/topic/#"}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, destination, principal), null));
+            assertEquals(patternDestinationMessage, e.getMessage());
+        }
+    }
+
+    @Test
+    void preSend_sendToBrokerDestination_throwsIllegalArgument() {
+        for (String destination : new String[]{"/topic/mainChat", "/topic/presence", "/topic/privatechat/1E3"}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> interceptor.preSend(frame(StompCommand.SEND, destination, principal), null));
+            assertEquals(brokerDestinationMessage, e.getMessage());
+        }
+    }
+
+    private Message<byte[]> frame(StompCommand command, String destination, ChatPrincipal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        accessor.setUser(user);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
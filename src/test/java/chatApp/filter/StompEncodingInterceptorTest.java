@@ -0,0 +1,87 @@
+package chatApp.filter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StompEncodingInterceptorTest {
+
+    private StompEncodingInterceptor interceptor;
+    private Map<String, Object> sessionAttributes;
+
+    @BeforeEach
+    void newInterceptor() {
+        interceptor = new StompEncodingInterceptor();
+        ReflectionTestUtils.setField(interceptor, "compactEnabled", true);
+        sessionAttributes = new HashMap<>();
+    }
+
+    @Test
+    void preSend_compactSessionSubscribesToMainChat_movedToCompactTopic() {
+        interceptor.preSend(connect("compact"), null);
+        StompHeaderAccessor accessor = subscribe("/topic/mainChat");
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+        assertEquals("/topic/mainChat.compact", accessor.getDestination());
+    }
+
+    @Test
+    void preSend_compactSessionSubscribesToPrivateRoom_movedToCompactTopic() {
+        interceptor.preSend(connect("COMPACT"), null);
+        StompHeaderAccessor accessor = subscribe("/topic/privatechat/1E2");
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+        assertEquals("/topic/privatechat/1E2.compact", accessor.getDestination());
+    }
+
+    @Test
+    void preSend_jsonSessionSubscribesToMainChat_destinationUnchanged() {
+        interceptor.preSend(connect("json"), null);
+        StompHeaderAccessor accessor = subscribe("/topic/mainChat");
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+        assertEquals("/topic/mainChat", accessor.getDestination());
+    }
+
+    @Test
+    void preSend_compactSessionSubscribesToCompactOrOtherTopic_destinationUnchanged() {
+        interceptor.preSend(connect("compact"), null);
+        StompHeaderAccessor compact = subscribe("/topic/mainChat.compact");
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], compact.getMessageHeaders()), null);
+        StompHeaderAccessor other = subscribe("/topic/other");
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], other.getMessageHeaders()), null);
+        assertEquals("/topic/mainChat.compact", compact.getDestination());
+        assertEquals("/topic/other", other.getDestination());
+    }
+
+    @Test
+    void preSend_compactDisabled_compactSessionKeepsEnvelopeTopic() {
+        ReflectionTestUtils.setField(interceptor, "compactEnabled", false);
+        interceptor.preSend(connect("compact"), null);
+        StompHeaderAccessor accessor = subscribe("/topic/mainChat");
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+        assertEquals("/topic/mainChat", accessor.getDestination());
+        assertFalse(sessionAttributes.containsKey("chat.encoding"));
+    }
+
+    private Message<byte[]> connect(String encoding) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("encoding", encoding);
+        accessor.setSessionAttributes(sessionAttributes);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private StompHeaderAccessor subscribe(String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setSessionAttributes(sessionAttributes);
+        accessor.setLeaveMutable(true);
+        return accessor;
+    }
+}
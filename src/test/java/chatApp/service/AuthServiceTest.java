@@ -10,20 +10,26 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
 
 import static chatApp.utilities.Utility.randomString;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
 class AuthServiceTest {
 
     @Autowired
     AuthService authService;
-    @Autowired
+    @SpyBean
     private UserRepository userRepo;
+    @Autowired
+    private PasswordHasher passwordHasher;
 
     User user;
 
@@ -53,6 +59,36 @@ class AuthServiceTest {
         assertNotEquals(UserStatuses.OFFLINE, dbuser.getUserStatus().toString());
     }
     @Test
+    void login_passwordHashedWithOtherCost_rehashedWithConfiguredCost()  {
+        authService.addUser(user);
+        User dbUser = userRepo.findByEmail(user.getEmail());
+        dbUser.setPassword(new BCryptPasswordEncoder(4).encode("abcdABCD123"));
+        userRepo.save(dbUser);
+        user.setPassword("abcdABCD123");
+        authService.login(user);
+        String rehashed = userRepo.findByEmail(user.getEmail()).getPassword();
+        assertFalse(passwordHasher.needsRehash(rehashed));
+        assertTrue(passwordHasher.matches("abcdABCD123", rehashed));
+    }
+    @Test
+    void login_registeredUser_oneUserQuery()  {
+        authService.addUser(user);
+        clearInvocations(userRepo);
+        user.setPassword("abcdABCD123");
+        authService.login(user);
+        verify(userRepo, times(1)).findByEmail(user.getEmail());
+        verify(userRepo, never()).findById(any());
+    }
+    @Test
+    void verifyEmail_registeredUser_oneUserQuery()  {
+        User registeredUser = authService.addUser(user);
+        clearInvocations(userRepo);
+        user.setVerifyCode(registeredUser.getVerifyCode());
+        assertTrue(authService.verifyEmail(user).isEnabled());
+        verify(userRepo, times(1)).findByEmail(user.getEmail());
+        verify(userRepo, never()).findById(any());
+    }
+    @Test
     void addUser_checkEmailExists_IllegalArgumentException()  {
         User user1 = User.createUser("abcdCopy", "abcd1234567@gmail.com", "abcdABCD123Copy");
         authService.addUser(user1);
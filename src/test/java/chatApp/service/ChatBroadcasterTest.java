@@ -0,0 +1,85 @@
+package chatApp.service;
+
+import chatApp.customEntities.BroadcastMessage;
+import chatApp.customEntities.CustomResponse;
+import chatApp.entities.Message;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ChatBroadcasterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private ChatBroadcaster chatBroadcaster;
+    private SimpMessagingTemplate messagingTemplate;
+    private ResponseEntity<CustomResponse<Message>> response;
+
+    @BeforeEach
+    void newBroadcaster() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        chatBroadcaster = new ChatBroadcaster();
+        ReflectionTestUtils.setField(chatBroadcaster, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(chatBroadcaster, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(chatBroadcaster, "compactEnabled", true);
+        Message message = new Message("sender", "hello main content", "main", "0");
+        message.setId(7L);
+        response = ResponseEntity.ok().body(new CustomResponse<>(message, "sent"));
+    }
+
+    @Test
+    void broadcastMain_compactEnabled_envelopeAndCompactSentAsJsonBytes() throws Exception {
+        chatBroadcaster.broadcastMain(response);
+        List<org.springframework.messaging.Message<?>> sent = sentMessages(2);
+        verify(messagingTemplate).send(eq("/topic/mainChat"), any());
+        verify(messagingTemplate).send(eq("/topic/mainChat.compact"), any());
+        JsonNode envelope = objectMapper.readTree((byte[]) sent.get(0).getPayload());
+        JsonNode compact = objectMapper.readTree((byte[]) sent.get(1).getPayload());
+        assertEquals("hello main content", envelope.get("body").get("response").get("content").asText());
+        assertEquals(7L, compact.get("id").asLong());
+        assertEquals(response.getBody().getResponse().getIssueDateEpoch(), compact.get("time").asLong());
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, sent.get(0).getHeaders().get(MessageHeaders.CONTENT_TYPE));
+    }
+
+    @Test
+    void broadcastPrivate_compactDisabled_onlyEnvelopeSent() {
+        ReflectionTestUtils.setField(chatBroadcaster, "compactEnabled", false);
+        chatBroadcaster.broadcastPrivate("1E2", response);
+        verify(messagingTemplate).send(eq("/topic/privatechat/1E2"), any());
+        verifyNoMoreInteractions(messagingTemplate);
+    }
+
+    @Test
+    void responseToBroadcastMessage_failedSend_onlyError() throws Exception {
+        BroadcastMessage broadcastMessage = BroadcastMessage.responseToBroadcastMessage(new CustomResponse<>(null, "muted"));
+        assertEquals("{\"error\":\"muted\"}", objectMapper.writeValueAsString(broadcastMessage));
+    }
+
+    @Test
+    void responseToBroadcastMessage_sentMessage_smallerThanEnvelope() throws Exception {
+        String envelope = objectMapper.writeValueAsString(response);
+        String compact = objectMapper.writeValueAsString(BroadcastMessage.responseToBroadcastMessage(response.getBody()));
+        assertTrue(compact.length() * 2 < envelope.length(), compact + " vs " + envelope);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<org.springframework.messaging.Message<?>> sentMessages(int count) {
+        ArgumentCaptor<org.springframework.messaging.Message<?>> captor = ArgumentCaptor.forClass(org.springframework.messaging.Message.class);
+        verify(messagingTemplate, times(count)).send(any(String.class), captor.capture());
+        return captor.getAllValues();
+    }
+}
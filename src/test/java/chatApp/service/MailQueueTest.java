@@ -0,0 +1,263 @@
+package chatApp.service;
+
+import chatApp.entities.User;
+import chatApp.repository.UserRepository;
+import chatApp.utilities.FakeSmtpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+class MailQueueTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private FakeSmtpServer smtpServer;
+    private MailQueue mailQueue;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void startSmtp() throws IOException {
+        smtpServer = new FakeSmtpServer();
+        userRepository = mock(UserRepository.class);
+    }
+
+    @AfterEach
+    void stopQueue() throws Exception {
+        if (mailQueue != null) {
+            mailQueue.stop();
+        }
+        smtpServer.close();
+    }
+
+    @Test
+    void enqueue_smtpUp_sentAndRemovedFromSpool() throws Exception {
+        mailQueue = newQueue(3);
+        mailQueue.start();
+        mailQueue.enqueue("abcd@gmail.com", "Chat App Verification Code", "code123");
+        String data = smtpServer.getMessages().poll(5, TimeUnit.SECONDS);
+        assertNotNull(data);
+        assertTrue(data.contains("code123"));
+        assertTrue(data.contains("To: abcd@gmail.com"));
+        awaitSpooled(0);
+        assertEquals(1, mailQueue.getSentMails());
+        assertEquals(0, mailQueue.getPendingMails());
+    }
+
+    @Test
+    void enqueue_transientFailures_retriedWithBackoffThenSent() throws Exception {
+        smtpServer.failNext(2);
+        mailQueue = newQueue(5);
+        mailQueue.start();
+        mailQueue.enqueue("abcd@gmail.com", "subject", "code123");
+        assertNotNull(smtpServer.getMessages().poll(5, TimeUnit.SECONDS));
+        assertEquals(2, mailQueue.getRetriedMails());
+        awaitSpooled(0);
+        assertEquals(1, mailQueue.getSentMails());
+    }
+
+    @Test
+    void enqueue_senderThrowsRuntimeException_workerSurvivesAndMailRetried() throws Exception {
+        mailQueue = newQueue(3);
+        MailSenderService mailSenderService = spy((MailSenderService) ReflectionTestUtils.getField(mailQueue, "mailSenderService"));
+        doThrow(new IllegalStateException("smtp client crashed")).doCallRealMethod().when(mailSenderService).send(anyList());
+        ReflectionTestUtils.setField(mailQueue, "mailSenderService", mailSenderService);
+        mailQueue.start();
+        mailQueue.enqueue("abcd@gmail.com", "subject", "code123");
+        assertNotNull(smtpServer.getMessages().poll(5, TimeUnit.SECONDS));
+        assertEquals(1, mailQueue.getRetriedMails());
+        awaitSpooled(0);
+        assertEquals(1, mailQueue.getSentMails());
+    }
+
+    @Test
+    void enqueue_senderAlwaysThrowsRuntimeException_movedToFailed() throws Exception {
+        mailQueue = newQueue(2);
+        MailSenderService mailSenderService = mock(MailSenderService.class);
+        when(mailSenderService.send(anyList())).thenThrow(new IllegalStateException("smtp client crashed"));
+        ReflectionTestUtils.setField(mailQueue, "mailSenderService", mailSenderService);
+        mailQueue.start();
+        mailQueue.enqueue("abcd@gmail.com", "subject", "code123");
+        awaitSpooled(0);
+        assertEquals(1, mailQueue.getFailedMails());
+        assertEquals(0, mailQueue.getPendingMails());
+        try (Stream<Path> failed = Files.list(spoolDir.resolve("failed"))) {
+            assertEquals(1, failed.count());
+        }
+    }
+
+    @Test
+    void start_mailsLeftInSpool_sentAfterRestart() throws Exception {
+        pendingUser("first@gmail.com", "code1");
+        pendingUser("second@gmail.com", "code2");
+        MailQueue stopped = newQueue(3);
+        ReflectionTestUtils.setField(stopped, "spool", spoolDir);
+        stopped.enqueue("first@gmail.com", "subject", "code1");
+        stopped.enqueue("second@gmail.com", "subject", "code2");
+        assertEquals(2, spooled());
+
+        mailQueue = newQueue(3);
+        mailQueue.start();
+        String first = smtpServer.getMessages().poll(5, TimeUnit.SECONDS);
+        String second = smtpServer.getMessages().poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertTrue((first + second).contains("code1") && (first + second).contains("code2"));
+        awaitSpooled(0);
+    }
+
+    @Test
+    void enqueue_spooledMail_verificationCodeNotWritten() throws Exception {
+        MailQueue stopped = newQueue(3);
+        ReflectionTestUtils.setField(stopped, "spool", spoolDir);
+        stopped.enqueue("abcd@gmail.com", "subject", "code123");
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            Path file = files.filter(spooled -> spooled.toString().endsWith(".mail")).findFirst().orElseThrow();
+            String content = Files.readString(file);
+            assertTrue(content.contains("abcd@gmail.com"));
+            assertFalse(content.contains("code123"));
+        }
+    }
+
+    @Test
+    void start_spooledMailOfActivatedUser_droppedNotSent() throws Exception {
+        User activated = pendingUser("done@gmail.com", "code1");
+        activated.setEnabled(true);
+        MailQueue stopped = newQueue(3);
+        ReflectionTestUtils.setField(stopped, "spool", spoolDir);
+        stopped.enqueue("done@gmail.com", "subject", "code1");
+        mailQueue = newQueue(3);
+        mailQueue.start();
+        awaitSpooled(0);
+        assertNull(smtpServer.getMessages().poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, mailQueue.getPendingMails());
+    }
+
+    @Test
+    void cleanFailed_failedMailsPastRetention_deleted() throws Exception {
+        Path failed = Files.createDirectories(spoolDir.resolve("failed"));
+        Path old = Files.writeString(failed.resolve("old.mail"), "to=old@gmail.com");
+        Files.setLastModifiedTime(old, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(200)));
+        Path recent = Files.writeString(failed.resolve("recent.mail"), "to=recent@gmail.com");
+        mailQueue = newQueue(3);
+        mailQueue.start();
+        mailQueue.cleanFailed();
+        assertFalse(Files.exists(old));
+        assertTrue(Files.exists(recent));
+    }
+
+    @Test
+    void start_relativeSpoolDir_throwsIllegalArgument() {
+        MailQueue queue = newQueue(3);
+        ReflectionTestUtils.setField(queue, "spoolDir", "spool/mail");
+        assertThrows(IllegalArgumentException.class, queue::start);
+    }
+
+    @Test
+    void start_manySpooledMails_sentInBatches() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            pendingUser("user" + i + "@gmail.com", "code" + i);
+        }
+        MailQueue stopped = newQueue(3);
+        ReflectionTestUtils.setField(stopped, "spool", spoolDir);
+        for (int i = 0; i < 30; i++) {
+            stopped.enqueue("user" + i + "@gmail.com", "subject", "code" + i);
+        }
+        mailQueue = newQueue(3);
+        ReflectionTestUtils.setField(mailQueue, "workers", 1);
+        ReflectionTestUtils.setField(mailQueue, "batchSize", 10);
+        mailQueue.start();
+        awaitSpooled(0);
+        assertEquals(30, smtpServer.getMessages().size());
+        assertTrue(smtpServer.getConnections() <= 3 + 1);
+    }
+
+    @Test
+    void enqueue_maxAttemptsReached_movedToFailedSpool() throws Exception {
+        smtpServer.failNext(10);
+        mailQueue = newQueue(2);
+        mailQueue.start();
+        mailQueue.enqueue("abcd@gmail.com", "subject", "code123");
+        awaitSpooled(0);
+        assertEquals(1, mailQueue.getFailedMails());
+        try (Stream<Path> failed = Files.list(spoolDir.resolve("failed"))) {
+            assertEquals(1, failed.count());
+        }
+        assertTrue(smtpServer.getMessages().isEmpty());
+    }
+
+    @Test
+    void backoff_doubledPerAttempt_cappedAtMax() {
+        mailQueue = newQueue(3);
+        ReflectionTestUtils.setField(mailQueue, "backoffMs", 1000L);
+        ReflectionTestUtils.setField(mailQueue, "maxBackoffMs", 5000L);
+        assertEquals(1000, mailQueue.backoff(1));
+        assertEquals(2000, mailQueue.backoff(2));
+        assertEquals(4000, mailQueue.backoff(3));
+        assertEquals(5000, mailQueue.backoff(4));
+        assertEquals(5000, mailQueue.backoff(100));
+    }
+
+    private MailQueue newQueue(int maxAttempts) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpServer.getPort());
+        MailSenderService mailSenderService = new MailSenderService();
+        ReflectionTestUtils.setField(mailSenderService, "mailSender", mailSender);
+        MailQueue queue = new MailQueue();
+        ReflectionTestUtils.setField(queue, "mailSenderService", mailSenderService);
+        ReflectionTestUtils.setField(queue, "userRepository", userRepository);
+        ReflectionTestUtils.setField(queue, "spoolDir", spoolDir.toString());
+        ReflectionTestUtils.setField(queue, "spoolTtlHours", 24L);
+        ReflectionTestUtils.setField(queue, "failedRetentionHours", 168L);
+        ReflectionTestUtils.setField(queue, "workers", 2);
+        ReflectionTestUtils.setField(queue, "batchSize", 20);
+        ReflectionTestUtils.setField(queue, "maxAttempts", maxAttempts);
+        ReflectionTestUtils.setField(queue, "backoffMs", 10L);
+        ReflectionTestUtils.setField(queue, "maxBackoffMs", 100L);
+        return queue;
+    }
+
+    /**
+     * a registered user waiting for the activation of its email
+     */
+    private User pendingUser(String email, String verifyCode) {
+        User user = User.createUser("pending", email, "Aa123456");
+        user.setVerifyCode(verifyCode);
+        user.setIssueDate(LocalDate.now());
+        when(userRepository.findByEmail(email)).thenReturn(user);
+        return user;
+    }
+
+    private long spooled() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            return files.filter(file -> file.toString().endsWith(".mail")).count();
+        }
+    }
+
+    private void awaitSpooled(long expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (spooled() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, spooled());
+    }
+}
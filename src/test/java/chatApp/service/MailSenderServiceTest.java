@@ -0,0 +1,91 @@
+package chatApp.service;
+
+import chatApp.customEntities.OutgoingMail;
+import chatApp.utilities.FakeSmtpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailSenderServiceTest {
+
+    private FakeSmtpServer smtpServer;
+    private MailSenderService mailSenderService;
+
+    @BeforeEach
+    void newSender() throws IOException {
+        smtpServer = new FakeSmtpServer();
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpServer.getPort());
+        mailSenderService = new MailSenderService();
+        ReflectionTestUtils.setField(mailSenderService, "mailSender", mailSender);
+    }
+
+    @AfterEach
+    void stopSmtp() throws IOException {
+        smtpServer.close();
+    }
+
+    @Test
+    void send_batch_sentOverOneConnection() {
+        List<OutgoingMail> mails = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            mails.add(OutgoingMail.of("user" + i + "@gmail.com", "subject", "code" + i));
+        }
+        assertTrue(mailSenderService.send(mails).isEmpty());
+        assertEquals(5, smtpServer.getMessages().size());
+        assertEquals(1, smtpServer.getConnections());
+        assertEquals(5, mailSenderService.getSentMails());
+        assertEquals(1, mailSenderService.getBatches());
+        assertTrue(mailSenderService.getLastSendLatencyNanos() > 0);
+    }
+
+    @Test
+    void send_oneMailRefused_onlyThatMailFailed() {
+        smtpServer.failNext(1);
+        List<OutgoingMail> mails = Arrays.asList(OutgoingMail.of("first@gmail.com", "subject", "code1"),
+                OutgoingMail.of("second@gmail.com", "subject", "code2"),
+                OutgoingMail.of("third@gmail.com", "subject", "code3"));
+        Map<OutgoingMail, Exception> failed = mailSenderService.send(mails);
+        assertEquals(1, failed.size());
+        assertEquals(2, smtpServer.getMessages().size());
+        assertEquals(2, mailSenderService.getSentMails());
+        assertEquals(1, mailSenderService.getFailedMails());
+    }
+
+    @Test
+    void send_smtpDown_allFailed() {
+        smtpServer.goDown();
+        List<OutgoingMail> mails = Arrays.asList(OutgoingMail.of("first@gmail.com", "subject", "code1"),
+                OutgoingMail.of("second@gmail.com", "subject", "code2"));
+        assertEquals(2, mailSenderService.send(mails).size());
+        assertEquals(2, mailSenderService.getFailedMails());
+    }
+
+    @Test
+    void send_concurrentSenders_everyRecipientGetsItsOwnCode() throws Exception {
+        ExecutorService senders = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 40; i++) {
+            String code = "code" + i;
+            senders.execute(() -> mailSenderService.send(Collections.singletonList(OutgoingMail.of(code + "@gmail.com", "subject", code))));
+        }
+        senders.shutdown();
+        assertTrue(senders.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(40, smtpServer.getMessages().size());
+        for (String data : smtpServer.getMessages()) {
+            int to = data.indexOf("To: ") + 4;
+            String code = data.substring(to, data.indexOf("@gmail.com", to));
+            assertTrue(data.trim().endsWith(code), data);
+        }
+    }
+}
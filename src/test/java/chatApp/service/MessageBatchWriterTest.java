@@ -0,0 +1,89 @@
+package chatApp.service;
+
+import chatApp.entities.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+
+import static chatApp.utilities.messages.ExceptionMessages.messageNotPersistedMessage;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MessageBatchWriterTest {
+
+    private MessageBatchWriter messageBatchWriter;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void newWriter() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        messageBatchWriter = new MessageBatchWriter();
+        ReflectionTestUtils.setField(messageBatchWriter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(messageBatchWriter, "enabled", true);
+        ReflectionTestUtils.setField(messageBatchWriter, "batchSize", 3);
+        ReflectionTestUtils.setField(messageBatchWriter, "flushIntervalMs", 2000L);
+        ReflectionTestUtils.setField(messageBatchWriter, "queueCapacity", 10);
+        ReflectionTestUtils.setField(messageBatchWriter, "offerTimeoutMs", 10L);
+        ReflectionTestUtils.setField(messageBatchWriter, "ackTimeoutMs", 1000L);
+    }
+
+    @AfterEach
+    void stopWriter() throws InterruptedException {
+        messageBatchWriter.stop();
+    }
+
+    @Test
+    void enqueue_fullBatch_flushedAsOneBatchInsert() {
+        messageBatchWriter.start();
+        for (int i = 0; i < 3; i++) {
+            messageBatchWriter.enqueue(newMainMessage("content " + i));
+        }
+        verify(jdbcTemplate, timeout(1000)).batchUpdate(anyString(), argThat((Collection<Object> batch) -> batch.size() == 3), eq(3), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void enqueue_durableAckBatchFailed_throwsIllegalArgument() {
+        ReflectionTestUtils.setField(messageBatchWriter, "durableAck", true);
+        ReflectionTestUtils.setField(messageBatchWriter, "flushIntervalMs", 10L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class))).thenThrow(new IllegalStateException("db down"));
+        messageBatchWriter.start();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> messageBatchWriter.enqueue(newMainMessage("lost")));
+        assertEquals(messageNotPersistedMessage, e.getMessage());
+        assertEquals(1, messageBatchWriter.getFailedMessages());
+    }
+
+    @Test
+    void enqueue_writerNotStarted_throwsIllegalArgument() {
+        ReflectionTestUtils.setField(messageBatchWriter, "enabled", false);
+        messageBatchWriter.start();
+        assertThrows(IllegalArgumentException.class, () -> messageBatchWriter.enqueue(newMainMessage("rejected")));
+        assertEquals(1, messageBatchWriter.getRejectedMessages());
+    }
+
+    @Test
+    void awaitFlushed_queuedMessages_returnsAfterTheirBatchInsert() {
+        ReflectionTestUtils.setField(messageBatchWriter, "flushIntervalMs", 20L);
+        messageBatchWriter.start();
+        messageBatchWriter.enqueue(newMainMessage("queued"));
+        assertTrue(messageBatchWriter.awaitFlushed());
+        assertEquals(1, messageBatchWriter.getPersistedMessages());
+    }
+
+    @Test
+    void awaitFlushed_emptyQueue_flushMarkerNotInserted() {
+        ReflectionTestUtils.setField(messageBatchWriter, "flushIntervalMs", 20L);
+        messageBatchWriter.start();
+        assertTrue(messageBatchWriter.awaitFlushed());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    private Message newMainMessage(String content) {
+        return new Message("sender", content, "main", "0");
+    }
+}
@@ -0,0 +1,144 @@
+package chatApp.service;
+
+import chatApp.entities.Message;
+import chatApp.entities.User;
+import chatApp.repository.MessageRepository;
+import chatApp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static chatApp.utilities.Utility.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class MessageNormalizerTest {
+
+    @Autowired
+    MessageNormalizer messageNormalizer;
+
+    @Autowired
+    MessageService messageService;
+
+    @Autowired
+    MessageRepository messageRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    User sender;
+    User receiver;
+    String roomId;
+
+    @BeforeEach
+    void newLegacyMessages() {
+        sender = userRepository.save(User.createUser("nsender", "nsender@gmail.com", "Aa123456"));
+        receiver = userRepository.save(User.createUser("nreceiver", "nreceiver@gmail.com", "Aa123456"));
+        roomId = privateRoomId(sender.getId(), receiver.getId());
+        ReflectionTestUtils.setField(messageNormalizer, "batchSize", 2);
+        ReflectionTestUtils.setField(messageNormalizer, "pauseMs", 0L);
+        for (int i = 0; i < 3; i++) {
+            messageRepository.save(new Message(sender.getNickname(), "legacy " + i, receiver.getNickname(), roomId));
+        }
+        messageRepository.save(new Message(sender.getNickname(), "legacy main", mainRoomReceiverName, mainRoomId));
+    }
+
+    @AfterEach
+    void deleteAll() {
+        ReflectionTestUtils.setField(messageNormalizer, "backfilled", false);
+        ReflectionTestUtils.setField(messageNormalizer, "backfilledUpToId", 0L);
+        ReflectionTestUtils.setField(messageNormalizer, "running", false);
+        ReflectionTestUtils.setField(messageNormalizer, "schema", "legacy");
+        messageRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void backfill_legacyRows_userIdsAndRoomKeysFilled() {
+        ReflectionTestUtils.setField(messageNormalizer, "running", true);
+        messageNormalizer.backfill();
+        assertTrue(messageNormalizer.isNormalized());
+        for (Message message : messageRepository.findByRoomId(roomId)) {
+            assertEquals(sender.getId(), message.getSenderId());
+            assertEquals(receiver.getId(), message.getReceiverId());
+            assertEquals(roomKey(roomId), message.getRoomKey());
+        }
+        Message mainMessage = messageRepository.findByContent("legacy main").get(0);
+        assertEquals(sender.getId(), mainMessage.getSenderId());
+        assertNull(mainMessage.getReceiverId());
+        assertEquals(0L, mainMessage.getRoomKey());
+    }
+
+    @Test
+    void resolveNicknames_renamedUserAfterBackfill_currentNicknameReadRowUnchanged() {
+        ReflectionTestUtils.setField(messageNormalizer, "running", true);
+        messageNormalizer.backfill();
+        sender.setNickname("nrenamed");
+        userRepository.save(sender);
+        List<Message> messages = messageService.downloadPrivateRoomMessages(roomId);
+        assertEquals(3, messages.size());
+        messages.forEach(message -> assertEquals("nrenamed", message.getSender()));
+        assertEquals(4, messageRepository.findBySender("nsender@gmail.com").size());
+    }
+
+    @Test
+    void addUserIds_sessionSender_receiverIsTheOtherRoomUser() {
+        Message message = new Message(sender.getNickname(), "new", receiver.getNickname(), privateRoomId(receiver.getId(), sender.getId()));
+        messageNormalizer.addUserIds(message, sender.getId());
+        assertEquals(sender.getId(), message.getSenderId());
+        assertEquals(receiver.getId(), message.getReceiverId());
+        assertEquals(roomKey(roomId), message.getRoomKey());
+    }
+
+    @Test
+    void addUserIds_noSessionSender_noIdMatchedByNickname() {
+        Message message = new Message(sender.getNickname(), "new", receiver.getNickname(), roomId);
+        messageNormalizer.addUserIds(message, null);
+        assertNull(message.getSenderId());
+        assertNull(message.getReceiverId());
+        assertEquals(roomKey(roomId), message.getRoomKey());
+    }
+
+    @Test
+    void backfill_senderNicknameOutsideTheRoom_noUserIds() {
+        User outsider = userRepository.save(User.createUser("noutsider", "noutsider@gmail.com", "Aa123456"));
+        messageRepository.save(new Message(outsider.getNickname(), "claimed", outsider.getNickname(), roomId));
+        ReflectionTestUtils.setField(messageNormalizer, "running", true);
+        messageNormalizer.backfill();
+        Message claimed = messageRepository.findByContent("claimed").get(0);
+        assertNull(claimed.getSenderId());
+        assertNull(claimed.getReceiverId());
+        assertEquals(roomKey(roomId), claimed.getRoomKey());
+    }
+
+    @Test
+    void start_backfilledByAnEarlierRun_normalizedWithoutBackfill() {
+        ReflectionTestUtils.setField(messageNormalizer, "running", true);
+        messageNormalizer.backfill();
+        ReflectionTestUtils.setField(messageNormalizer, "backfilled", false);
+        ReflectionTestUtils.setField(messageNormalizer, "schema", "normalized");
+        messageNormalizer.start();
+        assertTrue(messageNormalizer.isNormalized());
+        assertNull(ReflectionTestUtils.getField(messageNormalizer, "backfill"));
+    }
+
+    @Test
+    void resolveNicknames_renamedUser_sharedMessagesUnchanged() {
+        ReflectionTestUtils.setField(messageNormalizer, "running", true);
+        messageNormalizer.backfill();
+        List<Message> shared = messageRepository.findByRoomId(roomId);
+        sender.setNickname("nrenamed");
+        userRepository.save(sender);
+        List<Message> resolved = messageNormalizer.resolveNicknames(shared);
+        resolved.forEach(message -> assertEquals("nrenamed", message.getSender()));
+        shared.forEach(message -> assertEquals("nsender@gmail.com", message.getSender()));
+    }
+}
@@ -1,9 +1,12 @@
 package chatApp.service;
 
+import chatApp.customEntities.ChatPrincipal;
 import chatApp.entities.Message;
 import chatApp.entities.User;
+import chatApp.entities.UserType;
 import chatApp.repository.MessageRepository;
 import chatApp.repository.UserRepository;
+import org.hibernate.Session;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,10 +15,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.sql.SQLDataException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static chatApp.utilities.messages.ExceptionMessages.tokenSessionExpired;
+import static chatApp.utilities.messages.ExceptionMessages.userIsMutedMessage;
 import static org.junit.jupiter.api.Assertions.*;
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -31,6 +41,8 @@ class MessageServiceTest {
     private MessageRepository messageRepository;
     @Autowired
     private UserRepository userRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
 
     Message mainMessage;
     Message privateMessage;
@@ -70,6 +82,53 @@ class MessageServiceTest {
         assertThrows(IllegalArgumentException.class, () -> messageService.addMessageToMainChat(privateMessage));
     }
 
+    @Test
+    void addMessageToMainChat_sessionSender_senderStampedFromSession() {
+        ChatPrincipal sender = authService.getSessionPrincipal(authService.getSessionToken(userSender.getEmail()));
+        Message claimed = new Message("someone else", "hello main content", "main", "0");
+        assertEquals(userSender.getNickname(), messageService.addMessageToMainChat(claimed, sender).getSender());
+    }
+
+    @Test
+    void addMessageToMainChat_emailAndNicknameChangedAfterConnect_sentWithNewNickname() {
+        ChatPrincipal sender = authService.getSessionPrincipal(authService.getSessionToken(userSender.getEmail()));
+        User update = User.createUser("", "renamed@gmail.com", "");
+        update.setNickname("renamed");
+        userService.updateUser(update, userSender.getEmail());
+        Message message = new Message("someone else", "hello main content", "main", "0");
+        assertEquals("renamed", messageService.addMessageToMainChat(message, sender).getSender());
+    }
+
+    @Test
+    void addMessageToPrivateChat_nicknameChangedAfterConnect_sentWithNewNickname() {
+        ChatPrincipal sender = authService.getSessionPrincipal(authService.getSessionToken(userSender.getEmail()));
+        User update = User.createUser("", "", "");
+        update.setNickname("renamed");
+        userService.updateUser(update, userSender.getEmail());
+        Message message = new Message("someone else", "hello elisamer content", "seselevtion@gmail.com", privateMessage.getRoomId());
+        assertEquals("renamed", messageService.addMessageToPrivateChat(privateMessage.getRoomId(), message, sender).getSender());
+    }
+
+    @Test
+    void addMessageToMainChat_sessionLoggedOut_throwIllegalArgument() {
+        ChatPrincipal sender = authService.getSessionPrincipal(authService.getSessionToken(userSender.getEmail()));
+        authService.closeSession(sender.getToken());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> messageService.addMessageToMainChat(mainMessage, sender));
+        assertEquals(tokenSessionExpired, e.getMessage());
+    }
+
+    @Test
+    void addMessageToMainChat_sessionUserMuted_throwIllegalArgument() {
+        ChatPrincipal sender = authService.getSessionPrincipal(authService.getSessionToken(userSender.getEmail()));
+        User admin = User.createUser("admin", "admin@gmail.com", "Aa12345");
+        admin.setType(UserType.ADMIN);
+        admin.setNickname("admin");
+        userRepository.save(admin);
+        userService.updateMuteUnmuteUser(userSender.getId(), admin.getEmail());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> messageService.addMessageToMainChat(mainMessage, sender));
+        assertEquals(userIsMutedMessage, e.getMessage());
+    }
+
     @Test
     void getPrivateRoomMessages_roomIdExistsInTheOppositeWay_NotEquals() {
         List<Message> messages = messageService.getPrivateRoomMessages(userReceiver.getEmail(), userRepository.findByEmail(userReceiver.getEmail()).getId());
@@ -135,4 +194,80 @@ class MessageServiceTest {
         List<Message> messages = messageService.getMainRoomMessagesByTime(mainMessage.getIssueDateEpoch() - 1);
         assertEquals(0, messages.stream().filter(msg -> !Objects.equals(msg.getRoomId(), "0")).count());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getRoomHistory_beforeNewestMessageId_olderMessagesOnly() {
+        Message newer = messageService.addMessageToPrivateChat(privateMessage);
+        List<Message> messages = messageService.getRoomHistory(privateMessage.getRoomId(), newer.getId(), null, 10);
+        assertTrue(messages.stream().allMatch(message -> message.getId() < newer.getId()));
+    }
+
+    @Test
+    void getRoomHistory_beforeEpochAndId_sortedNewestFirst() {
+        Message newer = messageService.addMessageToPrivateChat(privateMessage);
+        List<Message> messages = messageService.getRoomHistory(privateMessage.getRoomId(), newer.getId() + 1, newer.getIssueDateEpoch(), 10);
+        assertEquals(newer.getId(), messages.get(0).getId());
+    }
+
+    @Test
+    void getRoomHistory_messagesOfTheSameSecond_nextPageSkipsNone() {
+        Message first = messageService.addMessageToPrivateChat(privateMessage);
+        Message second = messageService.addMessageToPrivateChat(privateMessage);
+        second.setIssueDateEpoch(first.getIssueDateEpoch());
+        messageRepository.save(second);
+        List<Message> messages = messageService.getRoomHistory(privateMessage.getRoomId(), second.getId(), first.getIssueDateEpoch(), 10);
+        assertEquals(first.getId(), messages.get(0).getId());
+    }
+
+    @Test
+    void getRoomHistory_beforeIdOnlyWithIdsOutOfIssueOrder_pagedByIssueTime() {
+        Message first = messageService.addMessageToPrivateChat(privateMessage);
+        Message older = messageService.addMessageToPrivateChat(privateMessage);
+        older.setIssueDateEpoch(first.getIssueDateEpoch() - 10);
+        messageRepository.save(older);
+        List<Message> messages = messageService.getRoomHistory(privateMessage.getRoomId(), first.getId(), null, 10);
+        assertTrue(messages.stream().anyMatch(message -> message.getId().equals(older.getId())));
+        assertTrue(messages.stream().noneMatch(message -> message.getId().equals(first.getId())));
+    }
+
+    @Test
+    void getRoomHistory_beforeIdNotInTheRoom_throwsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> messageService.getRoomHistory(privateMessage.getRoomId(), Long.MAX_VALUE, null, 10));
+    }
+
+    @Test
+    void getRoomHistory_beforeEpochWithoutId_throwsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> messageService.getRoomHistory(privateMessage.getRoomId(), null, privateMessage.getIssueDateEpoch(), 10));
+    }
+
+    @Test
+    void getRoomHistory_limitAboveMax_throwsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> messageService.getRoomHistory(privateMessage.getRoomId(), null, null, 100000));
+    }
+
+    @Test
+    void streamRoomMessages_manyRows_streamedInIdOrderWithoutKeepingTheRows() {
+        List<Message> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rows.add(new Message("shai", "row " + i, "elisamer", privateMessage.getRoomId()));
+        }
+        messageRepository.saveAll(rows);
+        AtomicInteger streamed = new AtomicInteger();
+        AtomicLong lastId = new AtomicLong();
+        AtomicInteger maxManaged = new AtomicInteger();
+        messageService.streamRoomMessages(privateMessage.getRoomId(), 0, message -> {
+            assertTrue(message.getId() > lastId.getAndSet(message.getId()));
+            maxManaged.accumulateAndGet(entityManager.unwrap(Session.class).getStatistics().getEntityCount(), Math::max);
+            streamed.incrementAndGet();
+        });
+        assertEquals(messageRepository.findByRoomId(privateMessage.getRoomId()).size(), streamed.get());
+        assertTrue(maxManaged.get() <= 1, "rows kept in the persistence context: " + maxManaged.get());
+    }
+
+    @Test
+    void streamRoomMessages_emptyRoom_nothingStreamed() {
+        AtomicInteger streamed = new AtomicInteger();
+        messageService.streamRoomMessages("no-such-room", 0, message -> streamed.incrementAndGet());
+        assertEquals(0, streamed.get());
+    }
+}
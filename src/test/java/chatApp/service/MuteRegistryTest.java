@@ -0,0 +1,79 @@
+package chatApp.service;
+
+import chatApp.entities.User;
+import chatApp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MuteRegistryTest {
+
+    private MuteRegistry muteRegistry;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void newRegistry() {
+        userRepository = mock(UserRepository.class);
+        muteRegistry = new MuteRegistry();
+        ReflectionTestUtils.setField(muteRegistry, "userRepository", userRepository);
+    }
+
+    @Test
+    void resync_mutedUsersInDb_mutedByIdAndNickname() {
+        when(userRepository.findByIsMuteTrue()).thenReturn(Collections.singletonList(newUser(1L, "shai", true)));
+        muteRegistry.resync();
+        assertTrue(muteRegistry.isMuted(1L));
+        assertTrue(muteRegistry.isMuted("shai"));
+        assertFalse(muteRegistry.isMuted(2L));
+        assertFalse(muteRegistry.isMuted((String) null));
+    }
+
+    @Test
+    void update_muteThenUnmute_registryFollows() {
+        muteRegistry.update(newUser(1L, "shai", true));
+        assertTrue(muteRegistry.isMuted("shai"));
+        muteRegistry.update(newUser(1L, "shai", false));
+        assertFalse(muteRegistry.isMuted(1L));
+        assertFalse(muteRegistry.isMuted("shai"));
+        assertEquals(0, muteRegistry.size());
+    }
+
+    @Test
+    void update_mutedUserChangedNickname_oldNicknameReleased() {
+        muteRegistry.update(newUser(1L, "shai", true));
+        muteRegistry.update(newUser(1L, "elishai", true));
+        assertFalse(muteRegistry.isMuted("shai"));
+        assertTrue(muteRegistry.isMuted("elishai"));
+    }
+
+    @Test
+    void remove_deletedMutedUser_notMuted() {
+        muteRegistry.update(newUser(1L, "shai", true));
+        muteRegistry.remove(1L);
+        assertFalse(muteRegistry.isMuted(1L));
+        assertFalse(muteRegistry.isMuted("shai"));
+    }
+
+    @Test
+    void resync_localChangeWhileLoading_resultDropped() {
+        when(userRepository.findByIsMuteTrue()).thenAnswer(invocation -> {
+            muteRegistry.update(newUser(2L, "elisamer", true));
+            return Collections.emptyList();
+        });
+        muteRegistry.resync();
+        assertTrue(muteRegistry.isMuted(2L));
+    }
+
+    private User newUser(Long id, String nickname, boolean mute) {
+        User user = User.createUser(nickname, nickname + "@gmail.com", "Aa123456");
+        user.setId(id);
+        user.setNickname(nickname);
+        user.setMute(mute);
+        return user;
+    }
+}
@@ -0,0 +1,77 @@
+package chatApp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static chatApp.utilities.messages.ExceptionMessages.passwordHashingBusyMessage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private PasswordHasher passwordHasher;
+
+    @AfterEach
+    void stopHasher() throws InterruptedException {
+        passwordHasher.stop();
+    }
+
+    @Test
+    void hash_configuredCost_matchesAndNoRehash() {
+        passwordHasher = newHasher(5, 2, 10);
+        String hash = passwordHasher.hash("abcdABCD123");
+        assertTrue(hash.startsWith("$2a$05$"));
+        assertTrue(passwordHasher.matches("abcdABCD123", hash));
+        assertFalse(passwordHasher.matches("abcdABCD124", hash));
+        assertFalse(passwordHasher.needsRehash(hash));
+        assertEquals(3, passwordHasher.getHashes());
+    }
+
+    @Test
+    void needsRehash_otherCost_true() {
+        passwordHasher = newHasher(6, 1, 10);
+        String lowerCost = new BCryptPasswordEncoder(4).encode("abcdABCD123");
+        String higherCost = new BCryptPasswordEncoder(8).encode("abcdABCD123");
+        assertTrue(passwordHasher.matches("abcdABCD123", lowerCost));
+        assertTrue(passwordHasher.needsRehash(lowerCost));
+        assertTrue(passwordHasher.needsRehash(higherCost));
+        assertTrue(passwordHasher.needsRehash("plain"));
+    }
+
+    @Test
+    void hash_queueFull_rejectedWithIllegalArgument() throws Exception {
+        passwordHasher = newHasher(12, 1, 1);
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+        List<Future<String>> hashes = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            hashes.add(callers.submit(() -> passwordHasher.hash("abcdABCD123")));
+        }
+        int rejected = 0;
+        for (Future<String> hash : hashes) {
+            try {
+                hash.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertEquals(passwordHashingBusyMessage, e.getCause().getMessage());
+                rejected++;
+            }
+        }
+        callers.shutdown();
+        assertTrue(rejected >= 1);
+        assertEquals(rejected, passwordHasher.getRejectedHashes());
+    }
+
+    private PasswordHasher newHasher(int strength, int threads, int queueCapacity) {
+        PasswordHasher hasher = new PasswordHasher();
+        ReflectionTestUtils.setField(hasher, "strength", strength);
+        ReflectionTestUtils.setField(hasher, "threads", threads);
+        ReflectionTestUtils.setField(hasher, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(hasher, "timeoutMs", 30000L);
+        hasher.start();
+        return hasher;
+    }
+}
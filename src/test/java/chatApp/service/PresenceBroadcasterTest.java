@@ -0,0 +1,138 @@
+package chatApp.service;
+
+import chatApp.customEntities.PresenceDelta;
+import chatApp.customEntities.PresenceEventType;
+import chatApp.customEntities.UserDTO;
+import chatApp.entities.User;
+import chatApp.entities.UserStatuses;
+import chatApp.entities.UserType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PresenceBroadcasterTest {
+
+    private PresenceBroadcaster presenceBroadcaster;
+    private SimpMessagingTemplate messagingTemplate;
+
+    @BeforeEach
+    void newBroadcaster() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        presenceBroadcaster = new PresenceBroadcaster();
+        ReflectionTestUtils.setField(presenceBroadcaster, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(presenceBroadcaster, "presenceRegistry", new PresenceRegistry());
+    }
+
+    @Test
+    void publish_awayOnlineFlapsInOneWindow_nothingSent() {
+        UserDTO online = user(1L, UserStatuses.ONLINE);
+        UserDTO away = user(1L, UserStatuses.AWAY);
+        for (int i = 0; i < 10; i++) {
+            presenceBroadcaster.onChange(1L, online, away);
+            presenceBroadcaster.onChange(1L, away, online);
+        }
+        presenceBroadcaster.publish();
+        verifyNoInteractions(messagingTemplate);
+        assertEquals(19, presenceBroadcaster.getCoalescedChanges());
+        assertEquals(0, presenceBroadcaster.getPendingChanges());
+    }
+
+    @Test
+    void publish_joinedAndLeftInOneWindow_nothingSent() {
+        presenceBroadcaster.onChange(1L, null, user(1L, UserStatuses.ONLINE));
+        presenceBroadcaster.onChange(1L, user(1L, UserStatuses.ONLINE), null);
+        presenceBroadcaster.publish();
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void publish_changesOfSeveralUsers_oneDeltaWithTheNetEvents() {
+        presenceBroadcaster.onChange(1L, null, user(1L, UserStatuses.ONLINE));
+        presenceBroadcaster.onChange(2L, user(2L, UserStatuses.ONLINE), user(2L, UserStatuses.AWAY));
+        presenceBroadcaster.onChange(2L, user(2L, UserStatuses.AWAY), user(2L, UserStatuses.ONLINE));
+        presenceBroadcaster.onChange(2L, user(2L, UserStatuses.ONLINE), user(2L, UserStatuses.AWAY));
+        presenceBroadcaster.onChange(3L, user(3L, UserStatuses.ONLINE), null);
+        presenceBroadcaster.publish();
+        ArgumentCaptor<Object> delta = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/presence"), delta.capture());
+        PresenceDelta presenceDelta = (PresenceDelta) delta.getValue();
+        assertEquals(3, presenceDelta.getEvents().size());
+        presenceDelta.getEvents().forEach(event -> {
+            if (event.getUserId() == 1L) {
+                assertEquals(PresenceEventType.JOINED, event.getType());
+            } else if (event.getUserId() == 2L) {
+                assertEquals(PresenceEventType.STATUS_CHANGED, event.getType());
+                assertEquals(UserStatuses.AWAY, event.getUser().getUserStatus());
+            } else {
+                assertEquals(PresenceEventType.LEFT, event.getType());
+                assertNull(event.getUser());
+            }
+        });
+        presenceBroadcaster.publish();
+        verify(messagingTemplate, times(1)).convertAndSend(any(String.class), any(Object.class));
+    }
+
+    @Test
+    void publish_mutedUser_mutedEvent() {
+        UserDTO muted = user(1L, UserStatuses.ONLINE, true);
+        presenceBroadcaster.onChange(1L, user(1L, UserStatuses.ONLINE), muted);
+        presenceBroadcaster.publish();
+        ArgumentCaptor<Object> delta = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/presence"), delta.capture());
+        assertEquals(PresenceEventType.MUTED, ((PresenceDelta) delta.getValue()).getEvents().get(0).getType());
+    }
+
+    @Test
+    void publish_twoWindowsOfRegistryChanges_deltasChainedByEtag() {
+        PresenceRegistry presenceRegistry = new PresenceRegistry();
+        ObjectProvider<PresenceBroadcaster> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(presenceBroadcaster);
+        ReflectionTestUtils.setField(presenceRegistry, "presenceBroadcaster", provider);
+        ReflectionTestUtils.setField(presenceBroadcaster, "presenceRegistry", presenceRegistry);
+        ReflectionTestUtils.setField(presenceBroadcaster, "coalesceMs", 60000L);
+        presenceBroadcaster.start();
+        try {
+            String emptyList = presenceRegistry.getEtag();
+            presenceRegistry.update(entity(1L, UserStatuses.ONLINE));
+            presenceBroadcaster.publish();
+            presenceRegistry.update(entity(1L, UserStatuses.AWAY));
+            presenceBroadcaster.publish();
+            ArgumentCaptor<Object> deltas = ArgumentCaptor.forClass(Object.class);
+            verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/presence"), deltas.capture());
+            PresenceDelta joined = (PresenceDelta) deltas.getAllValues().get(0);
+            PresenceDelta away = (PresenceDelta) deltas.getAllValues().get(1);
+            assertEquals(emptyList, joined.getBaseEtag());
+            assertEquals(joined.getEtag(), away.getBaseEtag());
+            assertEquals(presenceRegistry.getEtag(), away.getEtag());
+            assertNotEquals(joined.getEtag(), away.getEtag());
+        } finally {
+            presenceBroadcaster.stop();
+        }
+    }
+
+    private UserDTO user(Long id, UserStatuses status) {
+        return user(id, status, false);
+    }
+
+    private UserDTO user(Long id, UserStatuses status, boolean mute) {
+        User user = entity(id, status);
+        user.setMute(mute);
+        return UserDTO.userToUserDTO(user);
+    }
+
+    private User entity(Long id, UserStatuses status) {
+        User user = User.createUser("user" + id, "user" + id + "@gmail.com", "Aa123456");
+        user.setId(id);
+        user.setType(UserType.REGISTERED);
+        user.setUserStatus(status);
+        return user;
+    }
+}
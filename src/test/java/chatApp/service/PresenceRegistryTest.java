@@ -0,0 +1,93 @@
+package chatApp.service;
+
+import chatApp.customEntities.PresentUsers;
+import chatApp.entities.User;
+import chatApp.entities.UserStatuses;
+import chatApp.entities.UserType;
+import chatApp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PresenceRegistryTest {
+
+    private PresenceRegistry presenceRegistry;
+
+    @BeforeEach
+    void newRegistry() {
+        presenceRegistry = new PresenceRegistry();
+    }
+
+    @Test
+    void getSnapshot_usersOfEveryType_sortedByTypeWithoutOffline() {
+        presenceRegistry.update(user(1L, UserType.GUEST, UserStatuses.ONLINE));
+        presenceRegistry.update(user(2L, UserType.REGISTERED, UserStatuses.AWAY));
+        presenceRegistry.update(user(3L, UserType.ADMIN, UserStatuses.ONLINE));
+        presenceRegistry.update(user(4L, UserType.REGISTERED, UserStatuses.OFFLINE));
+        PresentUsers snapshot = presenceRegistry.getSnapshot();
+        assertEquals(3, snapshot.getUsers().size());
+        assertEquals(3L, snapshot.getUsers().get(0).getId());
+        assertEquals(2L, snapshot.getUsers().get(1).getId());
+        assertEquals(1L, snapshot.getUsers().get(2).getId());
+    }
+
+    @Test
+    void getSnapshot_sameUserSavedAgain_sameSnapshotAndEtag() {
+        presenceRegistry.update(user(1L, UserType.REGISTERED, UserStatuses.ONLINE));
+        PresentUsers first = presenceRegistry.getSnapshot();
+        presenceRegistry.update(user(1L, UserType.REGISTERED, UserStatuses.ONLINE));
+        assertSame(first, presenceRegistry.getSnapshot());
+        assertTrue(presenceRegistry.getSnapshot().matches("W/" + first.getEtag()));
+    }
+
+    @Test
+    void getSnapshot_statusChangedThenLoggedOut_newEtags() {
+        presenceRegistry.update(user(1L, UserType.REGISTERED, UserStatuses.ONLINE));
+        String online = presenceRegistry.getSnapshot().getEtag();
+        presenceRegistry.update(user(1L, UserType.REGISTERED, UserStatuses.AWAY));
+        PresentUsers away = presenceRegistry.getSnapshot();
+        assertFalse(away.matches(online));
+        assertEquals(UserStatuses.AWAY, away.getUsers().get(0).getUserStatus());
+        presenceRegistry.update(user(1L, UserType.REGISTERED, UserStatuses.OFFLINE));
+        assertTrue(presenceRegistry.getSnapshot().getUsers().isEmpty());
+        assertFalse(presenceRegistry.getSnapshot().matches(away.getEtag()));
+    }
+
+    @Test
+    void getSnapshot_sameUsersInAnotherOrder_sameEtag() {
+        PresenceRegistry other = new PresenceRegistry();
+        presenceRegistry.update(user(1L, UserType.REGISTERED, UserStatuses.ONLINE));
+        presenceRegistry.update(user(2L, UserType.GUEST, UserStatuses.AWAY));
+        other.update(user(2L, UserType.GUEST, UserStatuses.AWAY));
+        other.update(user(1L, UserType.REGISTERED, UserStatuses.ONLINE));
+        assertEquals(presenceRegistry.getEtag(), other.getEtag());
+        other.update(user(1L, UserType.REGISTERED, UserStatuses.AWAY));
+        assertNotEquals(presenceRegistry.getEtag(), other.getEtag());
+    }
+
+    @Test
+    void resync_changedOnAnotherNode_registryReplacedByTheDb() {
+        UserRepository userRepository = mock(UserRepository.class);
+        ReflectionTestUtils.setField(presenceRegistry, "userRepository", userRepository);
+        presenceRegistry.update(user(1L, UserType.REGISTERED, UserStatuses.ONLINE));
+        when(userRepository.findByUserStatusNot(UserStatuses.OFFLINE)).thenReturn(List.of(user(2L, UserType.GUEST, UserStatuses.ONLINE)));
+        presenceRegistry.resync();
+        PresentUsers snapshot = presenceRegistry.getSnapshot();
+        assertEquals(1, snapshot.getUsers().size());
+        assertEquals(2L, snapshot.getUsers().get(0).getId());
+    }
+
+    private User user(Long id, UserType type, UserStatuses status) {
+        User user = User.createUser("user" + id, "user" + id + "@gmail.com", "Aa123456");
+        user.setId(id);
+        user.setType(type);
+        user.setUserStatus(status);
+        return user;
+    }
+}
@@ -0,0 +1,63 @@
+package chatApp.service;
+
+import chatApp.entities.Message;
+import chatApp.repository.MessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static chatApp.utilities.Utility.firstPrivateMessage;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class PrivateRoomMigrationTest {
+
+    @Autowired
+    private PrivateRoomMigration privateRoomMigration;
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @AfterEach
+    void deleteMessages() {
+        messageRepository.deleteAll();
+    }
+
+    @Test
+    void mergeReversedRooms_bothRoomsExist_oneOpeningMessageAndUserMessagesKept() {
+        messageRepository.save(new Message("first", firstPrivateMessage, "second", "3E5"));
+        messageRepository.save(new Message("first", "hello", "second", "3E5"));
+        messageRepository.save(new Message("second", firstPrivateMessage, "first", "5E3"));
+        messageRepository.save(new Message("second", firstPrivateMessage, "first", "5E3"));
+        assertEquals(1, privateRoomMigration.mergeReversedRooms());
+        List<Message> merged = messageRepository.findByRoomId("3E5");
+        assertEquals(3, merged.size());
+        assertEquals(2, merged.stream().filter(message -> firstPrivateMessage.equals(message.getContent())).count());
+        assertEquals(1, merged.stream().filter(message -> message.getSender().equals("second")).count());
+        assertTrue(messageRepository.findByRoomId("5E3").isEmpty());
+    }
+
+    @Test
+    void mergeReversedRooms_reversedRoomStartsWithUserMessage_nothingDeleted() {
+        messageRepository.save(new Message("first", firstPrivateMessage, "second", "3E5"));
+        messageRepository.save(new Message("second", "hi", "first", "5E3"));
+        messageRepository.save(new Message("second", firstPrivateMessage, "first", "5E3"));
+        privateRoomMigration.mergeReversedRooms();
+        assertEquals(3, messageRepository.findByRoomId("3E5").size());
+    }
+
+    @Test
+    void mergeReversedRooms_onlyReversedRoom_renamedWithItsOpeningMessage() {
+        messageRepository.save(new Message("second", firstPrivateMessage, "first", "5E3"));
+        messageRepository.save(new Message("second", "hi", "first", "5E3"));
+        assertEquals(1, privateRoomMigration.mergeReversedRooms());
+        assertEquals(List.of(firstPrivateMessage, "hi"), messageRepository.findByRoomId("3E5").stream().map(Message::getContent).collect(Collectors.toList()));
+        assertEquals(0, privateRoomMigration.mergeReversedRooms());
+    }
+}
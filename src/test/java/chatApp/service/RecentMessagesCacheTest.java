@@ -0,0 +1,78 @@
+package chatApp.service;
+
+import chatApp.entities.Message;
+import chatApp.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static chatApp.utilities.Utility.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RecentMessagesCacheTest {
+
+    private RecentMessagesCache recentMessagesCache;
+    private MessageRepository messageRepository;
+
+    @BeforeEach
+    void newCache() {
+        messageRepository = mock(MessageRepository.class);
+        recentMessagesCache = new RecentMessagesCache();
+        ReflectionTestUtils.setField(recentMessagesCache, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(recentMessagesCache, "capacity", 3);
+    }
+
+    @Test
+    void getNewest_roomSmallerThanCapacity_servedFromCache() {
+        when(messageRepository.findByRoomId(eq(mainRoomId), any(Pageable.class))).thenReturn(newMessages(2, 1));
+        recentMessagesCache.warmUp();
+        List<Message> messages = recentMessagesCache.getNewest(mainRoomId, 10).get();
+        assertEquals(2L, messages.get(0).getId());
+        assertEquals(2, messages.size());
+        assertEquals(1, recentMessagesCache.getHits());
+    }
+
+    @Test
+    void getNewest_addedMessagesEvictOldest_newestFirst() {
+        when(messageRepository.findByRoomId(eq(mainRoomId), any(Pageable.class))).thenReturn(newMessages(3, 2, 1));
+        recentMessagesCache.warmUp();
+        recentMessagesCache.add(newMessage(4L));
+        List<Message> messages = recentMessagesCache.getNewest(mainRoomId, 3).get();
+        assertEquals(List.of(4L, 3L, 2L), List.of(messages.get(0).getId(), messages.get(1).getId(), messages.get(2).getId()));
+    }
+
+    @Test
+    void getNewest_sizeBiggerThanBuffer_miss() {
+        when(messageRepository.findByRoomId(eq(mainRoomId), any(Pageable.class))).thenReturn(newMessages(3, 2, 1));
+        recentMessagesCache.warmUp();
+        assertFalse(recentMessagesCache.getNewest(mainRoomId, 4).isPresent());
+        assertEquals(1, recentMessagesCache.getMisses());
+    }
+
+    @Test
+    void getNewest_roomNeverLoaded_miss() {
+        recentMessagesCache.add(newMessage(1L));
+        assertFalse(recentMessagesCache.getNewest(mainRoomId, 1).isPresent());
+    }
+
+    private List<Message> newMessages(long... ids) {
+        List<Message> messages = new ArrayList<>();
+        for (long id : ids) {
+            messages.add(newMessage(id));
+        }
+        return messages;
+    }
+
+    private Message newMessage(Long id) {
+        Message message = new Message("sender", "content " + id, mainRoomReceiverName, mainRoomId);
+        message.setId(id);
+        return message;
+    }
+}
@@ -0,0 +1,105 @@
+package chatApp.service;
+
+import chatApp.entities.User;
+import chatApp.entities.UserType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+
+    private SessionStore sessionStore;
+
+    @BeforeEach
+    void newStore() {
+        sessionStore = new SessionStore();
+        ReflectionTestUtils.setField(sessionStore, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(sessionStore, "idleMinutes", 60L);
+        ReflectionTestUtils.setField(sessionStore, "tickMs", 10L);
+        sessionStore.start();
+    }
+
+    @AfterEach
+    void stopStore() {
+        sessionStore.stop();
+    }
+
+    @Test
+    void open_sameEmailTwice_oldTokenReplaced() {
+        String oldToken = sessionStore.open(newUser("test@gmail.com"));
+        String newToken = sessionStore.open(newUser("test@gmail.com"));
+        assertNull(sessionStore.getEmail(oldToken));
+        assertEquals("test@gmail.com", sessionStore.getEmail(newToken));
+        assertEquals(newToken, sessionStore.getToken("test@gmail.com"));
+        assertEquals(1, sessionStore.size());
+        assertEquals(1, sessionStore.getReplacedSessions());
+    }
+
+    @Test
+    void close_openSession_tokenAndEmailRemoved() {
+        String token = sessionStore.open(newUser("test@gmail.com"));
+        assertEquals("test@gmail.com", sessionStore.close(token));
+        assertNull(sessionStore.getEmail(token));
+        assertNull(sessionStore.getToken("test@gmail.com"));
+        assertEquals(0, sessionStore.size());
+    }
+
+    @Test
+    void getEmail_nullOrUnknownToken_returnsNull() {
+        assertNull(sessionStore.getEmail(null));
+        assertNull(sessionStore.getEmail("unknown"));
+    }
+
+    @Test
+    void tick_ttlPassed_sessionEvicted() throws InterruptedException {
+        ReflectionTestUtils.setField(sessionStore, "ttlMinutes", 0L);
+        String token = sessionStore.open(newUser("test@gmail.com"));
+        for (int i = 0; i < 100 && sessionStore.size() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, sessionStore.size());
+        assertEquals(1, sessionStore.getExpiredSessions());
+        assertNull(sessionStore.getEmail(token));
+    }
+
+    @Test
+    void getEmail_idleTimePassed_returnsNull() {
+        ReflectionTestUtils.setField(sessionStore, "idleMinutes", 0L);
+        String token = sessionStore.open(newUser("test@gmail.com"));
+        assertNull(sessionStore.getEmail(token));
+        assertEquals(1, sessionStore.getIdleSessions());
+    }
+
+    @Test
+    void refresh_userVerified_sessionTypeUpdated() {
+        User user = newUser("test@gmail.com");
+        user.setType(UserType.GUEST);
+        String token = sessionStore.open(user);
+        user.setType(UserType.REGISTERED);
+        user.setMute(true);
+        sessionStore.refresh("test@gmail.com", user);
+        assertEquals(UserType.REGISTERED, sessionStore.getType(token));
+        assertTrue(sessionStore.isMute("test@gmail.com"));
+    }
+
+    @Test
+    void refresh_emailChanged_sameTokenMovedToNewEmail() {
+        User user = newUser("old@gmail.com");
+        String token = sessionStore.open(user);
+        user.setEmail("new@gmail.com");
+        sessionStore.refresh("old@gmail.com", user);
+        assertEquals("new@gmail.com", sessionStore.getEmail(token));
+        assertEquals(token, sessionStore.getToken("new@gmail.com"));
+        assertNull(sessionStore.getToken("old@gmail.com"));
+        assertEquals(1, sessionStore.size());
+    }
+
+    private User newUser(String email) {
+        User user = User.createUser("test", email, "Aa123456");
+        user.setType(UserType.REGISTERED);
+        return user;
+    }
+}
@@ -0,0 +1,81 @@
+package chatApp.service;
+
+import chatApp.entities.User;
+import chatApp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserCacheTest {
+
+    private UserCache userCache;
+    private UserRepository userRepository;
+    private User user;
+
+    @BeforeEach
+    void newCache() {
+        user = User.createUser("tester", "test@gmail.com", "Aa123456");
+        user.setId(1L);
+        user.setNickname("tester");
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.findByNickname("tester")).thenReturn(user);
+        when(userRepository.findByEmail("test@gmail.com")).thenReturn(user);
+        userCache = new UserCache();
+        ReflectionTestUtils.setField(userCache, "userRepository", userRepository);
+    }
+
+    @Test
+    void getNickname_secondLookup_loadedOnce() {
+        assertEquals("tester", userCache.getNickname(1L));
+        assertEquals("tester", userCache.getNickname(1L));
+        assertEquals(1L, userCache.getUserId("tester"));
+        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, never()).findByNickname("tester");
+    }
+
+    @Test
+    void update_renamedUser_oldNicknameStopsResolving() {
+        userCache.getNickname(1L);
+        user.setNickname("renamed");
+        userCache.update(user);
+        when(userRepository.findByNickname("tester")).thenReturn(null);
+        assertEquals("renamed", userCache.getNickname(1L));
+        assertEquals(1L, userCache.getUserId("renamed"));
+        assertNull(userCache.getUserId("tester"));
+    }
+
+    @Test
+    void remove_deletedUser_loadedAgain() {
+        userCache.getNickname(1L);
+        userCache.remove(1L);
+        assertEquals(0, userCache.size());
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        assertNull(userCache.getNickname(1L));
+    }
+
+    @Test
+    void getUserIdByEmail_secondLookup_loadedOnce() {
+        assertEquals(1L, userCache.getUserIdByEmail("test@gmail.com"));
+        assertEquals(1L, userCache.getUserIdByEmail("test@gmail.com"));
+        assertEquals("tester", userCache.getNickname(1L));
+        verify(userRepository, times(1)).findByEmail("test@gmail.com");
+        verify(userRepository, never()).findById(1L);
+    }
+
+    @Test
+    void getUserIdByEmail_expiredEntry_loadedAgain() throws InterruptedException {
+        ReflectionTestUtils.setField(userCache, "ttlMs", 1L);
+        userCache.getUserIdByEmail("test@gmail.com");
+        Thread.sleep(5);
+        user.setEmail("changed@gmail.com");
+        when(userRepository.findByEmail("test@gmail.com")).thenReturn(null);
+        assertNull(userCache.getUserIdByEmail("test@gmail.com"));
+        verify(userRepository, times(2)).findByEmail("test@gmail.com");
+    }
+}
@@ -0,0 +1,103 @@
+package chatApp.service;
+
+import chatApp.entities.Message;
+import chatApp.repository.MessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class UserMessagesRenamerTest {
+
+    @Autowired
+    UserMessagesRenamer userMessagesRenamer;
+
+    @Autowired
+    MessageRepository messageRepository;
+
+    @BeforeEach
+    void newMessages() {
+        ReflectionTestUtils.setField(userMessagesRenamer, "chunkSize", 2);
+        for (int i = 0; i < 5; i++) {
+            messageRepository.save(new Message("old-name", "sent " + i, "main", "0"));
+            messageRepository.save(new Message("other", "received " + i, "old-name", "1E2"));
+        }
+        messageRepository.save(new Message("other", "untouched", "someone", "1E3"));
+    }
+
+    @AfterEach
+    void deleteMessages() {
+        messageRepository.deleteAll();
+    }
+
+    @Test
+    void rename_messagesOverSeveralChunks_senderAndReceiverRenamed() throws Exception {
+        assertEquals(10, userMessagesRenamer.rename(1L, "old-name", "new-name").awaitRenamed(10, TimeUnit.SECONDS));
+        assertTrue(messageRepository.findBySender("old-name").isEmpty());
+        assertTrue(messageRepository.findByReceiver("old-name").isEmpty());
+        assertEquals(5, messageRepository.findBySender("new-name").size());
+        assertEquals(5, messageRepository.findByReceiver("new-name").size());
+        assertEquals("someone", messageRepository.findByContent("untouched").get(0).getReceiver());
+    }
+
+    @Test
+    void rename_done_progressComplete() throws Exception {
+        userMessagesRenamer.rename(1L, "old-name", "new-name").awaitRenamed(10, TimeUnit.SECONDS);
+        UserMessagesRenamer.RenameProgress progress = userMessagesRenamer.getProgress();
+        assertTrue(progress.isDone());
+        assertEquals(100, progress.getPercent());
+        assertEquals(10, progress.getRenamed());
+    }
+
+    @Test
+    void rename_twoRenamesInARow_appliedInOrder() throws Exception {
+        userMessagesRenamer.rename(1L, "old-name", "new-name");
+        userMessagesRenamer.rename(1L, "new-name", "newest-name").awaitRenamed(10, TimeUnit.SECONDS);
+        assertEquals(5, messageRepository.findBySender("newest-name").size());
+        assertTrue(messageRepository.findBySender("new-name").isEmpty());
+    }
+
+    @Test
+    void rename_twoRenamesInARow_statusOfTheLastOneKeptPerUser() throws Exception {
+        userMessagesRenamer.rename(1L, "old-name", "new-name");
+        UserMessagesRenamer.RenameProgress last = userMessagesRenamer.rename(1L, "new-name", "newest-name");
+        last.awaitRenamed(10, TimeUnit.SECONDS);
+        assertSame(last, userMessagesRenamer.getProgress(1L));
+        assertNull(userMessagesRenamer.getProgress(2L));
+        assertEquals("newest-name", last.getNewName());
+        assertFalse(last.isFailed());
+    }
+
+    @Test
+    void rename_repositoryFails_statusFailed() {
+        MessageRepository failing = mock(MessageRepository.class);
+        when(failing.findMaxId()).thenReturn(10L);
+        when(failing.updateSender(any(), any(), anyLong(), anyLong())).thenThrow(new IllegalStateException("db down"));
+        ReflectionTestUtils.setField(userMessagesRenamer, "messageRepository", failing);
+        try {
+            UserMessagesRenamer.RenameProgress progress = userMessagesRenamer.rename(1L, "old-name", "new-name");
+            assertThrows(ExecutionException.class, () -> progress.awaitRenamed(10, TimeUnit.SECONDS));
+            assertTrue(progress.isDone());
+            assertTrue(progress.isFailed());
+            assertEquals("db down", progress.getError());
+            assertSame(progress, userMessagesRenamer.getProgress(1L));
+        } finally {
+            ReflectionTestUtils.setField(userMessagesRenamer, "messageRepository", messageRepository);
+        }
+    }
+}
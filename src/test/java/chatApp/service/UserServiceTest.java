@@ -1,5 +1,6 @@
 package chatApp.service;
 
+import chatApp.customEntities.UserDTO;
 import chatApp.entities.User;
 import chatApp.entities.UserStatuses;
 import chatApp.entities.UserType;
@@ -10,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
@@ -17,6 +19,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -28,7 +33,7 @@ class UserServiceTest {
     @Autowired
     AuthService authService;
 
-    @Autowired
+    @SpyBean
     UserRepository userRepository;
     User user;
     User user2;
@@ -66,14 +71,14 @@ class UserServiceTest {
     void updateUser_updateUserName_failedUpdate() {
         user.setName("@");
         assertThrows(IllegalArgumentException.class, () -> {
-            userService.updateUser(user, authService.getKeyEmailsValTokens().get(user.getEmail()));
+            userService.updateUser(user, authService.getSessionToken(user.getEmail()));
         });
     }
     @Test
     void updateUser_updateUserDateOfBirth_failedUpdate() {
         user.setDateOfBirth(LocalDate.of(2023,4,20));
         assertThrows(IllegalArgumentException.class, () -> {
-            userService.updateUser(user, authService.getKeyEmailsValTokens().get(user.getEmail()));
+            userService.updateUser(user, authService.getSessionToken(user.getEmail()));
         });
     }
     @Test
@@ -109,7 +114,7 @@ class UserServiceTest {
     }
     @Test
     void getAllUsers_getAllUsersNotOffline_listOfUsers() {
-        List<User> l = userService.getAllUsers();
+        List<UserDTO> l = userService.getAllUsers().getUsers();
         List<User> newl = new ArrayList<>();
         newl.add(user);
         assertEquals(newl.get(0).getId(),l.get(0).getId());
@@ -124,7 +129,7 @@ class UserServiceTest {
     @Test
     void updateMuteUnMuteUser_updateMuteUserToUnMuteNotAdmin_failedUpdate() {
         assertThrows(IllegalArgumentException.class, () -> {
-            userService.updateMuteUnmuteUser(user2.getId(), authService.getKeyEmailsValTokens().get(user.getEmail()));
+            userService.updateMuteUnmuteUser(user2.getId(), authService.getSessionToken(user.getEmail()));
         });
     }
     @Test
@@ -136,7 +141,39 @@ class UserServiceTest {
     @Test
     void updateMuteUnMuteUser_updateMuteUserToUnMuteNullId_failedUpdate() {
         assertThrows(IllegalArgumentException.class, () -> {
-            userService.updateMuteUnmuteUser(80000000000000000L, authService.getKeyEmailsValTokens().get(user.getEmail()));
+            userService.updateMuteUnmuteUser(80000000000000000L, authService.getSessionToken(user.getEmail()));
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateUser_updateUserName_oneUserQuery() {
+        clearInvocations(userRepository);
+        user.setName("tteesstt");
+        userService.updateUser(user, user.getEmail());
+        verify(userRepository, times(1)).findByEmail(anyString());
+        verify(userRepository, never()).findById(any());
+    }
+    @Test
+    void logoutUser_registeredUser_oneUserQuery() {
+        clearInvocations(userRepository);
+        userService.logoutUser(user.getEmail());
+        verify(userRepository, times(1)).findByEmail(user.getEmail());
+        verify(userRepository, never()).findById(any());
+    }
+    @Test
+    void updateStatusUser_registeredUser_oneUserQuery() {
+        clearInvocations(userRepository);
+        userService.updateStatusUser(user.getEmail(), "away");
+        verify(userRepository, times(1)).findByEmail(user.getEmail());
+        verify(userRepository, never()).findById(any());
+    }
+    @Test
+    void updateMuteUnMuteUser_admin_oneQueryPerUser() {
+        user.setType(UserType.ADMIN);
+        userRepository.save(user);
+        clearInvocations(userRepository);
+        userService.updateMuteUnmuteUser(user2.getId(), user.getEmail());
+        verify(userRepository, times(1)).findByEmail(user.getEmail());
+        verify(userRepository, times(1)).findById(user2.getId());
+    }
+}
@@ -0,0 +1,128 @@
+package chatApp.utilities;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local SMTP sink for the mail tests: accepts every mail on a free port of the loopback address and keeps the
+ * raw message data, the next failNext mails are refused with a transient 451 reply and every connection is refused
+ * with a 421 reply once the server is down
+ */
+public class FakeSmtpServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+    private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+    private final AtomicInteger failNext = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicBoolean down = new AtomicBoolean();
+
+    public FakeSmtpServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "fake-smtp");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public BlockingQueue<String> getMessages() {
+        return messages;
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public void failNext(int mails) {
+        failNext.set(mails);
+    }
+
+    /**
+     * keeps the port bound but refuses every new connection, unlike close the port can't be taken by another server
+     */
+    public void goDown() {
+        down.set(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                Thread session = new Thread(() -> serve(socket), "fake-smtp-session");
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket client = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+             PrintWriter out = new PrintWriter(client.getOutputStream(), true)) {
+            if (down.get()) {
+                reply(out, "421 localhost service not available");
+                return;
+            }
+            reply(out, "220 localhost fake SMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase(Locale.ROOT);
+                if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                    reply(out, "250 localhost");
+                } else if (command.startsWith("MAIL FROM")) {
+                    if (failNext.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                        reply(out, "451 try again later");
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                } else if (command.startsWith("DATA")) {
+                    reply(out, "354 end with <CRLF>.<CRLF>");
+                    messages.add(readData(in));
+                    reply(out, "250 OK");
+                } else if (command.startsWith("QUIT")) {
+                    reply(out, "221 bye");
+                    return;
+                } else {
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String readData(BufferedReader in) throws IOException {
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            data.append(line.startsWith("..") ? line.substring(1) : line).append('\n');
+        }
+        return data.toString();
+    }
+
+    private static void reply(PrintWriter out, String reply) {
+        out.print(reply + "\r\n");
+        out.flush();
+    }
+}
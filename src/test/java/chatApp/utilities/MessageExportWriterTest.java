@@ -0,0 +1,64 @@
+package chatApp.utilities;
+
+import chatApp.entities.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageExportWriterTest {
+
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void newObjectMapper() {
+        objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Test
+    void write_ndjson_oneLinePerMessage() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (MessageExportWriter writer = MessageExportWriter.of(MessageExportWriter.Format.NDJSON, outputStream, objectMapper)) {
+            writer.write(newMessage(1, "hello"));
+            writer.write(newMessage(2, "world"));
+        }
+        String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("world", objectMapper.readTree(lines[1]).get("content").asText());
+    }
+
+    @Test
+    void write_csvContentWithCommaAndQuote_escaped() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (MessageExportWriter writer = MessageExportWriter.of(MessageExportWriter.Format.CSV, outputStream, objectMapper)) {
+            writer.write(newMessage(1, "hi, \"you\""));
+        }
+        String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertTrue(lines[1].startsWith("1,sender,main,\"hi, \"\"you\"\"\",0,"));
+    }
+
+    @Test
+    void formatOf_unknownFormat_ndjson() {
+        assertEquals(MessageExportWriter.Format.NDJSON, MessageExportWriter.formatOf("xml"));
+        assertEquals(MessageExportWriter.Format.CSV, MessageExportWriter.formatOf("csv"));
+    }
+
+    @Test
+    void write_ndjsonEmptyRoom_nothingWritten() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MessageExportWriter.of(MessageExportWriter.Format.NDJSON, outputStream, objectMapper).close();
+        assertEquals(0, outputStream.size());
+    }
+
+    private Message newMessage(long id, String content) {
+        Message message = new Message("sender", content, "main", "0");
+        message.setId(id);
+        return message;
+    }
+}
@@ -0,0 +1,45 @@
+package chatApp.utilities;
+
+import chatApp.entities.UserType;
+import org.junit.jupiter.api.Test;
+
+import static chatApp.utilities.PathPermissionTable.*;
+import static chatApp.utilities.Utility.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathPermissionTableTest {
+
+    private final PathPermissionTable table = PathPermissionTable.compile(permissionPathsForAll, permissionPathsForGuest, noPermissionsPathsForRegistered);
+
+    @Test
+    void lookup_publicPathAndSubPath_public() {
+        assertNotEquals(0, table.lookup("/sign/login") & publicPath);
+        assertNotEquals(0, table.lookup("/chat/mainchatroom/history") & publicPath);
+        assertNotEquals(0, table.lookup("/ws/123/abc/websocket") & publicPath);
+    }
+
+    @Test
+    void lookup_pathOnlyContainingRule_notPublic() {
+        assertEquals(0, table.lookup("/news") & publicPath);
+        assertEquals(0, table.lookup("/chat/privatechatroom") & publicPath);
+        assertEquals(0, table.lookup("/signature") & publicPath);
+    }
+
+    @Test
+    void isAllowed_guestOnRegisteredPath_false() {
+        assertFalse(isAllowed(table.lookup("/chat/privatechatroom"), UserType.GUEST));
+        assertTrue(isAllowed(table.lookup("/user/update/status"), UserType.GUEST));
+    }
+
+    @Test
+    void isAllowed_registeredOnMutePath_falseAdminTrue() {
+        assertFalse(isAllowed(table.lookup("/user/update/mute"), UserType.REGISTERED));
+        assertTrue(isAllowed(table.lookup("/user/update/mute"), UserType.ADMIN));
+        assertTrue(isAllowed(table.lookup("/user/update"), UserType.REGISTERED));
+    }
+
+    @Test
+    void lookup_doubleSlashAndPathParameters_ignored() {
+        assertNotEquals(0, table.lookup("//chat//getusers;jsessionid=1") & publicPath);
+    }
+}
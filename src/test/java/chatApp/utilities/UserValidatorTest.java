@@ -0,0 +1,63 @@
+package chatApp.utilities;
+
+import chatApp.customEntities.CustomResponse;
+import chatApp.customEntities.UserDTO;
+import chatApp.entities.User;
+import chatApp.utilities.UserValidator.Field;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static chatApp.utilities.UserValidator.*;
+import static chatApp.utilities.messages.ExceptionMessages.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserValidatorTest {
+
+    private static final List<String> samples = Arrays.asList("", " ", "a", "dani", "Dani Cohen", "dani9", "dani_", "Abcdef",
+            "abcdef", "ABCDEF", "abcdE", "abcdEf", "abc\ndEf", "abcdEf\r", "abc\u2028dEf", "abc\u0085dEf", "abc\tdEf",
+            "eli@gmail.com", "@gmail.com", "eli@", "eli@ gmail.com", "eli@gmail.com ", "a@b@c", "e li@gmail.com",
+            "eli\n@gmail.com", "eli@gmail\n.com", "a@b\u2028@c", "a\u2028b@c", "\u05e9\u05dc\u05d5\u05dd", "\u00dcn\u00efcode", "\u00e9@x");
+
+    @Test
+    void scanners_sameResultsAsTheRegularExpressions() {
+        for (String sample : samples) {
+            assertEquals(sample.matches(".*[A-Z].*") && sample.length() >= 6, isValidPassword(sample), sample);
+            assertEquals(sample.matches("^[ A-Za-z]+$"), isValidName(sample), sample);
+            assertEquals(sample.matches("^(.+)@(\\S+)$"), isValidEmail(sample), sample);
+        }
+        assertFalse(isValidPassword(null));
+        assertFalse(isValidName(null));
+        assertFalse(isValidEmail(null));
+    }
+
+    @Test
+    void checkValidUser_severalInvalidFields_firstFieldMessage() {
+        User user = User.createUser("dani9", "k", "abc");
+        assertEquals(invalidEmailMessage, message(user, Field.EMAIL, Field.NAME, Field.PASSWORD));
+        assertEquals(invalidNameMessage, message(user, Field.NAME, Field.PASSWORD));
+        assertEquals(invalidPasswordMessage, message(user, Field.PASSWORD, Field.NAME));
+    }
+
+    @Test
+    void checkValidUser_emptyFields_notValidated() {
+        User user = User.createUser("", "", "");
+        assertFalse(checkValidUser(user, new CustomResponse<>(null, ""), Field.EMAIL, Field.NAME, Field.PASSWORD).isPresent());
+        user = User.createUser("dani", "dani@gmail.com", "abcdABCD123");
+        assertFalse(checkValidUser(user, new CustomResponse<>(null, ""), Field.EMAIL, Field.NAME, Field.PASSWORD).isPresent());
+    }
+
+    @Test
+    void checkValidUser_systemEmailOrMissingField_invalid() {
+        assertEquals(invalidRegistrationEmailMessage, message(User.createUser("dani", "dani@chatappsystem.com", "abcdABCD123"), Field.EMAIL));
+        assertEquals(invalidEmailMessage, message(User.createUser("dani", null, "abcdABCD123"), Field.EMAIL));
+        assertEquals(invalidPasswordMessage, message(User.createUser("dani", "dani@gmail.com", null), Field.PASSWORD));
+    }
+
+    private static String message(User user, Field... fields) {
+        Optional<CustomResponse<UserDTO>> invalid = checkValidUser(user, new CustomResponse<>(null, ""), fields);
+        return invalid.map(CustomResponse::getMessage).orElse(null);
+    }
+}
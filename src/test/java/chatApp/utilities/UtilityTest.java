@@ -41,4 +41,27 @@ class UtilityTest {
     }
     @Test
     void isValidEmail_checkEmail_validEmail() {assertTrue(Utility.isValidEmail("eli@gmail.com"));}
-}
\ No newline at end of file
+    @Test
+    void privateRoomId_reversedUserIds_sameRoomId() {
+        assertEquals(Utility.privateRoomId(3L, 12L), Utility.privateRoomId(12L, 3L));
+    }
+    @Test
+    void canonicalRoomId_reversedRoomId_smallerIdFirst() {
+        assertEquals("3E12", Utility.canonicalRoomId("12E3"));
+    }
+    @Test
+    void canonicalRoomId_mainRoomId_unchanged() {
+        assertEquals("0", Utility.canonicalRoomId("0"));
+    }
+    @Test
+    void roomKey_reversedRoomId_sameKey() {
+        assertEquals((3L << 32) | 12L, Utility.roomKey("12E3"));
+        assertEquals(Utility.roomKey("3E12"), Utility.roomKey("12E3"));
+    }
+    @Test
+    void roomKey_mainOrInvalidRoomId_zeroOrNull() {
+        assertEquals(0L, Utility.roomKey("0"));
+        assertNull(Utility.roomKey("aEb"));
+        assertNull(Utility.roomKey("1E" + (1L << 32)));
+    }
+}